@@ -0,0 +1,35 @@
+#!/bin/sh
+# Wall-clock time of whole processes running one command, without and with a
+# class data sharing archive created by bin/launch.sh --train-cds, for the
+# Guice and the Bootstrap path. Linux only (date +%N), needs Java 10 or later.
+#
+#   ./cds-startup.sh [runs] [java]
+
+RUNS=${1:-20}
+export JAVA=${2:-java}
+DIR=$(dirname "$0")
+LAUNCH="$DIR/../bin/launch.sh"
+export JAMPHONY_CP="$DIR/target/benchmarks.jar"
+export JAMPHONY_MAIN=org.dsikkema.jamphony.benchmarks.StartupMain
+
+average() {
+    total=0
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        start=$(date +%s%N)
+        "$LAUNCH" "$@"
+        end=$(date +%s%N)
+        total=$((total + (end - start) / 1000000))
+        i=$((i + 1))
+    done
+    echo $((total / RUNS))
+}
+
+for path in guice bootstrap; do
+    export JAMPHONY_CDS_ARCHIVE="$DIR/target/startup-$path.jsa"
+    rm -f "$JAMPHONY_CDS_ARCHIVE"
+    without=$(average $path wide-1 42 --option0=0 --verbose)
+    "$LAUNCH" $path --train-cds wide-1 42 --option0=0 --verbose 2> /dev/null || exit 1
+    with=$(average $path wide-1 42 --option0=0 --verbose)
+    echo "$path: $without ms without archive, $with ms with archive, average over $RUNS runs"
+done
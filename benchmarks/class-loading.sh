@@ -0,0 +1,82 @@
+#!/bin/sh
+# Classes loaded by a process that runs one of many commands, with the
+# commands registered by class in getCommandMap() and through the table
+# CommandProcessor generates, which registers them by class name. Generates
+# and compiles an application of that many commands first, so needs a JDK
+# (8 to 16, as Guice 3 does not run on later ones without --add-opens).
+#
+#   ./class-loading.sh [commands] [java home]
+
+COMMANDS=${1:-300}
+JAVA_BIN=${2:+$2/bin/}
+JAR="$(cd "$(dirname "$0")" && pwd)/target/benchmarks.jar"
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+mkdir -p "$WORK/src/example" "$WORK/classes"
+
+i=0
+while [ $i -lt "$COMMANDS" ]; do
+    cat > "$WORK/src/example/Command$i.java" <<EOF
+package example;
+
+import org.dsikkema.jamphony.jamphony.Command;
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+
+@Command(name = "command-$i")
+public class Command$i implements CommandInterface {
+    public int execute(InputData inputArgs) {
+        return 0;
+    }
+}
+EOF
+    i=$((i + 1))
+done
+
+{
+    echo "package example;"
+    echo "public class ByClassModule implements org.dsikkema.jamphony.jamphony.CommandModuleInterface {"
+    echo "    public java.util.HashMap<String, Class<? extends org.dsikkema.jamphony.jamphony.CommandInterface>> getCommandMap() {"
+    echo "        java.util.HashMap<String, Class<? extends org.dsikkema.jamphony.jamphony.CommandInterface>> commands = new java.util.HashMap<>();"
+    i=0
+    while [ $i -lt "$COMMANDS" ]; do
+        echo "        commands.put(\"command-$i\", Command$i.class);"
+        i=$((i + 1))
+    done
+    echo "        return commands;"
+    echo "    }"
+    echo "}"
+} > "$WORK/src/example/ByClassModule.java"
+
+cat > "$WORK/src/example/Main.java" <<EOF
+package example;
+
+import org.dsikkema.jamphony.jamphony.CommandModuleInterface;
+import org.dsikkema.jamphony.jamphony.CommandRunner;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+public class Main {
+    public static void main(String[] args) {
+        CommandModuleInterface commandModule = "by-class".equals(args[0]) ? new ByClassModule() : new GeneratedCommandTable();
+        CommandRunner runner = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(CommandModuleInterface.class).toInstance(commandModule);
+            }
+        }).getInstance(CommandRunner.class);
+        System.exit(runner.run(new String[] {"command-0"}));
+    }
+}
+EOF
+
+"${JAVA_BIN}javac" -nowarn -cp "$JAR" -processor org.dsikkema.jamphony.jamphony.processor.CommandProcessor \
+    -d "$WORK/classes" -s "$WORK/classes" "$WORK"/src/example/*.java || exit 1
+
+for registration in by-class generated-table; do
+    "${JAVA_BIN}java" -verbose:class -cp "$JAR:$WORK/classes" example.Main $registration > "$WORK/loaded.txt" || exit 1
+    commands=$(grep -c 'example\.Command[0-9]* ' "$WORK/loaded.txt")
+    total=$(grep -c 'Loaded \|class,load' "$WORK/loaded.txt")
+    echo "$registration: $commands of $COMMANDS command classes loaded, $total classes in total"
+done
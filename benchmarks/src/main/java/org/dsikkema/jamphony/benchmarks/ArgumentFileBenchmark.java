@@ -0,0 +1,88 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.io.ArgumentFileExpander;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.CommandLineTokenizer;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expanding an argument file of options with ArgumentFileExpander, compared
+ * with reading it with Files.readAllLines and tokenizing the joined lines.
+ * The large file is above ArgumentFileExpander's threshold and is
+ * memory-mapped, the small one is read in one go.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArgumentFileBenchmark {
+
+	/**
+	 * Approximate size of the file in bytes
+	 */
+	@Param({"65536", "4194304"})
+	public int size;
+
+	private Path argfile;
+	private String[] entries;
+	private CommandInputDefinition inputDefinition;
+	private ArgumentFileExpander expander;
+	private CommandLineTokenizer tokenizer;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.argfile = Files.createTempFile("jamphony-args", ".txt");
+		try (Writer writer = Files.newBufferedWriter(this.argfile, StandardCharsets.UTF_8)) {
+			int written = 0;
+			for (int i = 0; written < this.size; i++) {
+				String line = "--option" + i + "=\"value " + i + "\" --flag" + i + "\n";
+				writer.write(line);
+				written += line.length();
+			}
+		}
+		this.entries = new String[] {"test-command", "@" + this.argfile};
+		this.inputDefinition = new CommandInputDefinition();
+		this.inputDefinition.setArgumentFiles(true);
+		this.inputDefinition.freeze();
+		this.tokenizer = new CommandLineTokenizer();
+		this.expander = new ArgumentFileExpander(this.tokenizer);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(this.argfile);
+	}
+
+	@Benchmark
+	public String[] mapped() throws InputException {
+		return this.expander.expand(this.entries, this.inputDefinition);
+	}
+
+	@Benchmark
+	public String[] readAllLines() throws IOException, InputException {
+		List<String> lines = Files.readAllLines(this.argfile, StandardCharsets.UTF_8);
+		return this.tokenizer.tokenize(String.join("\n", lines));
+	}
+}
@@ -0,0 +1,74 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.io.BufferedStdout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dumping a 1 MB payload that the command already has as bytes, e.g. read
+ * from a file or a database: decoded into a String and written as a line,
+ * against written as bytes. To a sink that discards it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryOutputBenchmark {
+
+	private static final int SIZE = 1024 * 1024;
+
+	private byte[] payload;
+	private ByteBuffer payloadBuffer;
+	private BufferedStdout stdout;
+
+	@Setup
+	public void setUp() {
+		this.payload = new byte[SIZE];
+		Arrays.fill(this.payload, (byte)'x');
+		this.payloadBuffer = ByteBuffer.allocateDirect(SIZE);
+		this.payloadBuffer.put(this.payload).flip();
+
+		PrintStream discard = new PrintStream(new DiscardingOutputStream(), true);
+		this.stdout = new BufferedStdout(discard, System.err, BufferedStdout.DEFAULT_BUFFER_SIZE, BufferedStdout.DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	@Benchmark
+	public void asText() {
+		this.stdout.writeLnOut(new String(this.payload, StandardCharsets.UTF_8));
+		this.stdout.flush();
+	}
+
+	@Benchmark
+	public void asBytes() {
+		this.payloadBuffer.rewind();
+		this.stdout.write(this.payloadBuffer);
+		this.stdout.flush();
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.CommandIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Abbreviations and typo suggestions over an application's worth of
+ * namespaced command names. scanSuggestions is what suggesting takes without
+ * the index: the edit distance to every name.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandIndexBenchmark {
+
+	@Param({"50", "500"})
+	public int commandCount;
+
+	private List<String> names;
+	private CommandIndex index;
+
+	@Setup
+	public void setUp() {
+		this.names = new ArrayList<>();
+		for (int i = 0; i < this.commandCount; i++) {
+			this.names.add("namespace" + (i / 10) + ":command-" + (i % 10));
+		}
+		this.index = new CommandIndex(this.names);
+	}
+
+	@Benchmark
+	public List<String> matchAbbreviation() {
+		return this.index.match("namespace4:c");
+	}
+
+	@Benchmark
+	public List<String> suggest() {
+		return this.index.suggest("namesapce4:comand-7", 2);
+	}
+
+	@Benchmark
+	public List<String> scanSuggestions() {
+		List<String> suggestions = new ArrayList<>();
+		for (String name : this.names) {
+			if (distance("namesapce4:comand-7", name) <= 2) {
+				suggestions.add(name);
+			}
+		}
+		return suggestions;
+	}
+
+	private static int distance(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					d[i][j] = i + j;
+					continue;
+				}
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
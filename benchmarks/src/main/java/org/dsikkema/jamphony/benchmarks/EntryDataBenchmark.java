@@ -0,0 +1,59 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.io.EntryData;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.OptionDefinition;
+import org.dsikkema.jamphony.jamphony.io.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting a single value, including the failure path for a value that
+ * does not match its type
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntryDataBenchmark {
+
+	private OptionDefinition intDefinition;
+	private OptionDefinition stringDefinition;
+
+	@Setup
+	public void setUp() {
+		this.intDefinition = new OptionDefinition("count", Type.INT);
+		this.stringDefinition = new OptionDefinition("name", Type.STRING);
+	}
+
+	@Benchmark
+	public EntryData intValue() throws InputException {
+		return new EntryData(this.intDefinition, "-1234567");
+	}
+
+	@Benchmark
+	public EntryData stringValue() throws InputException {
+		return new EntryData(this.stringDefinition, "some value");
+	}
+
+	@Benchmark
+	public Object invalidIntValue() {
+		try {
+			return new EntryData(this.intDefinition, "12x4567");
+		} catch (InputException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.benchmarks.fixture.WideCommand;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Input validation and conversion on its own, against a definition that is
+ * already built and frozen the way CommandRegistry caches it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputDataBenchmark {
+
+	@Param({"1", "50", "500"})
+	public int optionCount;
+
+	private InputData.Factory factory;
+	private CommandInputDefinition inputDefinition;
+	private String[] entries;
+	private InputData inputData;
+	private String[] optionNames;
+
+	@Setup
+	public void setUp() {
+		this.factory = new InputData.Factory();
+		this.inputDefinition = new CommandInputDefinition();
+		WideCommand.defineInput(this.inputDefinition, this.optionCount);
+		this.inputDefinition.freeze();
+		this.entries = WideCommand.entries(WideCommand.commandName(this.optionCount), this.optionCount);
+		this.optionNames = new String[this.optionCount];
+		for (int i = 0; i < this.optionCount; i++) {
+			this.optionNames[i] = "option" + i;
+		}
+		try {
+			this.inputData = this.factory.create(this.inputDefinition, this.entries);
+		} catch (InputException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Benchmark
+	public InputData create() throws InputException {
+		return this.factory.create(this.inputDefinition, this.entries);
+	}
+
+	/**
+	 * Reading every INT option back by name, and by slot. WideCommand adds
+	 * the argument first, so option i has slot i + 1.
+	 */
+	@Benchmark
+	public long readIntsByName() {
+		long sum = 0;
+		for (int i = 0; i < this.optionCount; i += 2) {
+			sum += this.inputData.getOption(this.optionNames[i]).getIntValue();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long readIntsBySlot() {
+		long sum = 0;
+		for (int i = 0; i < this.optionCount; i += 2) {
+			sum += this.inputData.getInt(i + 1);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,190 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.dsikkema.jamphony.jamphony.Bootstrap;
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandModuleInterface;
+import org.dsikkema.jamphony.jamphony.CommandRunner;
+import org.dsikkema.jamphony.jamphony.io.CapturedOutput;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.LinePipe;
+import org.dsikkema.jamphony.jamphony.io.Stdin;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.io.Type;
+import org.dsikkema.jamphony.jamphony.metrics.NoCommandInstrumentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Three commands, numbers | evens | count, over 100,000 lines: as an
+ * in-process pipeline, against running them one after the other with the
+ * whole output of each captured as bytes and decoded again as the input of
+ * the next, which is what chaining them through a shell comes down to,
+ * minus starting the JVMs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+	private static final int LINES = 100_000;
+
+	private Stdout stdout;
+	private Stdin stdin;
+	private CommandRunner runner;
+	private ExecutorService executor;
+	private String[][] stages;
+
+	@Setup
+	public void setUp() {
+		this.stdout = new Stdout();
+		Bootstrap bootstrap = new Bootstrap(new PipelineModule(this.stdout))
+				.setStdout(this.stdout)
+				.setInstrumentation(new NoCommandInstrumentation());
+		this.stdin = bootstrap.getStdin();
+		this.runner = bootstrap.createRunner();
+		this.executor = Executors.newCachedThreadPool();
+		this.stages = new String[][] {{"numbers", Integer.toString(LINES)}, {"evens", "-"}, {"count", "-"}};
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.executor.shutdown();
+	}
+
+	@Benchmark
+	public String pipeline() throws InterruptedException {
+		this.stdout.beginCapture();
+		this.runner.runPipeline(Arrays.asList(this.stages), this.executor);
+		return this.stdout.endCapture().getOutString();
+	}
+
+	@Benchmark
+	public String sequential() {
+		CapturedOutput output = null;
+		for (String[] stage : this.stages) {
+			if (output != null) {
+				LinePipe input = new LinePipe(LINES * 2);
+				input.writeBytes(ByteBuffer.wrap(output.getOut()));
+				input.closeWriter();
+				this.stdin.setPipe(input);
+			}
+			this.stdout.beginCapture();
+			try {
+				this.runner.run(stage);
+			} finally {
+				output = this.stdout.endCapture();
+				this.stdin.setPipe(null);
+			}
+		}
+		return output.getOutString();
+	}
+
+	private static class PipelineModule implements CommandModuleInterface {
+		private final Stdout stdout;
+
+		private PipelineModule(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public Map<String, Supplier<? extends CommandInterface>> getCommandSuppliers() {
+			Map<String, Supplier<? extends CommandInterface>> suppliers = new HashMap<>();
+			suppliers.put("numbers", () -> new NumbersCommand(this.stdout));
+			suppliers.put("evens", () -> new EvensCommand(this.stdout));
+			suppliers.put("count", () -> new CountCommand(this.stdout));
+			return suppliers;
+		}
+	}
+
+	private static class NumbersCommand implements CommandInterface {
+		private final Stdout stdout;
+
+		private NumbersCommand(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			int count = inputArgs.getInt(0);
+			for (int i = 1; i <= count; i++) {
+				this.stdout.writeLnOut(Integer.toString(i));
+			}
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addArgument("count", Type.INT);
+		}
+	}
+
+	private static class EvensCommand implements CommandInterface {
+		private final Stdout stdout;
+
+		private EvensCommand(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			for (Iterator<String> numbers = inputArgs.getStreamingArgument(); numbers.hasNext();) {
+				String number = numbers.next();
+				if (Integer.parseInt(number) % 2 == 0) {
+					this.stdout.writeLnOut(number);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addStreamingArgument("numbers");
+		}
+	}
+
+	private static class CountCommand implements CommandInterface {
+		private final Stdout stdout;
+
+		private CountCommand(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			int count = 0;
+			for (Iterator<String> values = inputArgs.getStreamingArgument(); values.hasNext(); values.next()) {
+				count++;
+			}
+			this.stdout.writeLnOut(Integer.toString(count));
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addStreamingArgument("values");
+		}
+	}
+}
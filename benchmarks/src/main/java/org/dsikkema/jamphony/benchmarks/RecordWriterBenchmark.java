@@ -0,0 +1,77 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.io.BufferedStdout;
+import org.dsikkema.jamphony.jamphony.io.OutputFormat;
+import org.dsikkema.jamphony.jamphony.io.RecordWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing the rows of an export as NDJSON records, against building each
+ * JSON line as a String and writing it to buffered Stdout. Per record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordWriterBenchmark {
+
+	private static final int RECORDS = 10_000;
+	private static final String EMAIL = "someone@example.com";
+	private static final String NAME = "Some One";
+
+	private BufferedStdout stdout;
+	private RecordWriter records;
+
+	@Setup
+	public void setUp() {
+		PrintStream discard = new PrintStream(new DiscardingOutputStream(), true);
+		this.stdout = new BufferedStdout(discard, System.err, BufferedStdout.DEFAULT_BUFFER_SIZE, BufferedStdout.DEFAULT_FLUSH_INTERVAL_MILLIS);
+		this.records = new RecordWriter(this.stdout);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void recordWriter() {
+		this.records.setFormat(OutputFormat.NDJSON);
+		for (int i = 0; i < RECORDS; i++) {
+			this.records.begin().field("id", i).field("email", EMAIL).field("name", NAME).field("active", true).end();
+		}
+		this.records.finish();
+		this.stdout.flush();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void stringLines() {
+		for (int i = 0; i < RECORDS; i++) {
+			this.stdout.writeLnOut("{\"id\":" + i + ",\"email\":\"" + EMAIL + "\",\"name\":\"" + NAME + "\",\"active\":true}");
+		}
+		this.stdout.flush();
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
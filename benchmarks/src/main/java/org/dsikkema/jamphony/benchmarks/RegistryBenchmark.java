@@ -0,0 +1,45 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.benchmarks.fixture.BenchmarkCommandModule;
+import org.dsikkema.jamphony.benchmarks.fixture.WideCommand;
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandRegistry;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Command lookup and instantiation through Guice
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+
+	private CommandRegistry commandRegistry;
+	private String commandName;
+
+	@Setup
+	public void setUp() {
+		this.commandRegistry = BenchmarkCommandModule.createInjector().getInstance(CommandRegistry.class);
+		this.commandName = WideCommand.commandName(50);
+	}
+
+	@Benchmark
+	public CommandInterface getCommandInstance() throws InputException {
+		return this.commandRegistry.getCommandInstance(this.commandName);
+	}
+}
@@ -0,0 +1,55 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.benchmarks.fixture.BenchmarkCommandModule;
+import org.dsikkema.jamphony.benchmarks.fixture.WideCommand;
+import org.dsikkema.jamphony.jamphony.CommandRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The whole path a command invocation takes inside the JVM: splitting,
+ * looking up and instantiating the command, validating input and executing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RunnerBenchmark {
+
+	@Param({"1", "50", "500"})
+	public int optionCount;
+
+	private CommandRunner commandRunner;
+	private String[] entries;
+	private String commandString;
+
+	@Setup
+	public void setUp() {
+		this.commandRunner = BenchmarkCommandModule.createInjector().getInstance(CommandRunner.class);
+		this.entries = WideCommand.entries(WideCommand.commandName(this.optionCount), this.optionCount);
+		this.commandString = String.join(" ", this.entries);
+	}
+
+	@Benchmark
+	public int runEntries() {
+		return this.commandRunner.run(this.entries);
+	}
+
+	@Benchmark
+	public int runCommandString() {
+		return this.commandRunner.run(this.commandString);
+	}
+}
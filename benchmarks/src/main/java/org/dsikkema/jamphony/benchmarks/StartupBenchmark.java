@@ -0,0 +1,41 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.benchmarks.fixture.BenchmarkCommandModule;
+import org.dsikkema.jamphony.benchmarks.fixture.BenchmarkCommandTable;
+import org.dsikkema.jamphony.benchmarks.fixture.WideCommand;
+import org.dsikkema.jamphony.jamphony.Bootstrap;
+import org.dsikkema.jamphony.jamphony.CommandRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time from nothing to the first command having run, in a fresh JVM every
+ * time: class loading, wiring and one run. Does not include starting the
+ * JVM itself, see startup.sh for that.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+	private static final String[] ENTRIES = WideCommand.entries(WideCommand.commandName(1), 1);
+
+	@Benchmark
+	public int guice() {
+		return BenchmarkCommandModule.createInjector().getInstance(CommandRunner.class).run(ENTRIES);
+	}
+
+	@Benchmark
+	public int bootstrap() {
+		return new Bootstrap(new BenchmarkCommandTable()).createRunner().run(ENTRIES);
+	}
+}
@@ -0,0 +1,26 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import org.dsikkema.jamphony.benchmarks.fixture.BenchmarkCommandModule;
+import org.dsikkema.jamphony.benchmarks.fixture.BenchmarkCommandTable;
+import org.dsikkema.jamphony.jamphony.Bootstrap;
+import org.dsikkema.jamphony.jamphony.CommandRunner;
+
+/**
+ * Entry point like an application's, for timing whole processes with
+ * startup.sh: "guice" or "bootstrap", followed by the command line
+ */
+public class StartupMain {
+
+	public static void main(String[] args) {
+		String[] entries = new String[args.length - 1];
+		System.arraycopy(args, 1, entries, 0, entries.length);
+
+		CommandRunner runner;
+		if ("guice".equals(args[0])) {
+			runner = BenchmarkCommandModule.createInjector().getInstance(CommandRunner.class);
+		} else {
+			runner = new Bootstrap(new BenchmarkCommandTable()).createRunner();
+		}
+		System.exit(runner.run(entries));
+	}
+}
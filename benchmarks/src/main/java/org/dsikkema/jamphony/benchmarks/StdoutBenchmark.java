@@ -0,0 +1,83 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.io.BufferedStdout;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing a command's worth of lines, the way an export command would, to
+ * a sink that discards them. Per line.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StdoutBenchmark {
+
+	private static final int LINES = 10_000;
+	private static final String LINE = "1234,someone@example.com,Some One,2017-03-01T12:00:00Z";
+
+	private PrintStream originalOut;
+	private Stdout stdout;
+	private BufferedStdout bufferedStdout;
+
+	@Setup
+	public void setUp() {
+		PrintStream discard = new PrintStream(new DiscardingOutputStream(), true);
+		this.originalOut = System.out;
+		System.setOut(discard);
+
+		this.stdout = new Stdout();
+		this.bufferedStdout = new BufferedStdout(discard, System.err, BufferedStdout.DEFAULT_BUFFER_SIZE, BufferedStdout.DEFAULT_FLUSH_INTERVAL_MILLIS);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(this.originalOut);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void println() {
+		for (int i = 0; i < LINES; i++) {
+			this.stdout.writeLnOut(LINE);
+		}
+		this.stdout.flush();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void buffered() {
+		for (int i = 0; i < LINES; i++) {
+			this.bufferedStdout.writeLnOut(LINE);
+		}
+		this.bufferedStdout.flush();
+	}
+
+	private static class DiscardingOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package org.dsikkema.jamphony.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dsikkema.jamphony.jamphony.io.CommandLineTokenizer;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares CommandLineTokenizer with the regex based splitting that
+ * CommandRunner used before it. The inputs only use escaped spaces, which is
+ * all the regex version understands.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+
+	@Param({"short", "long"})
+	public String commandLine;
+
+	private String input;
+	private CommandLineTokenizer tokenizer;
+
+	@Setup
+	public void setUp() {
+		this.tokenizer = new CommandLineTokenizer();
+		if (this.commandLine.equals("short")) {
+			this.input = "test-command arg1 some\\ value --option1=val --flag1";
+		} else {
+			StringBuilder builder = new StringBuilder("test-command");
+			for (int i = 0; i < 1000; i++) {
+				builder.append(" --option").append(i).append("=value\\ ").append(i);
+			}
+			this.input = builder.toString();
+		}
+	}
+
+	@Benchmark
+	public String[] regex() {
+		return RegexTokenizer.split(this.input);
+	}
+
+	@Benchmark
+	public String[] singlePass() throws InputException {
+		return this.tokenizer.tokenize(this.input);
+	}
+
+	/**
+	 * The offset based API, with a handler that does not need Strings
+	 */
+	@Benchmark
+	public void singlePassOffsets(Blackhole blackhole) throws InputException {
+		this.tokenizer.tokenize(this.input, (buffer, start, end) -> blackhole.consume(end - start));
+	}
+
+	/**
+	 * The splitting CommandRunner did before CommandLineTokenizer existed
+	 */
+	static class RegexTokenizer {
+		static String[] split(String commandString) {
+			String[] argsSplitByWhitespace = commandString.split("(?<!\\\\)\\s+");
+			String[] argsWithEscapersRemoved = new String[argsSplitByWhitespace.length];
+
+			for (int i = 0; i < argsSplitByWhitespace.length; i++) {
+				argsWithEscapersRemoved[i] = argsSplitByWhitespace[i].replaceAll("\\\\(\\s)", "$1");
+			}
+
+			return argsWithEscapersRemoved;
+		}
+	}
+}
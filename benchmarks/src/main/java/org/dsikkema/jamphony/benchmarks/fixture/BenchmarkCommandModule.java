@@ -0,0 +1,34 @@
+package org.dsikkema.jamphony.benchmarks.fixture;
+
+import java.util.HashMap;
+
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandModuleInterface;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class BenchmarkCommandModule implements CommandModuleInterface {
+
+	@Override
+	public HashMap<String, Class<? extends CommandInterface>> getCommandMap() {
+		HashMap<String, Class<? extends CommandInterface>> commandMap = new HashMap<>();
+		commandMap.put(WideCommand.commandName(1), WideCommand.One.class);
+		commandMap.put(WideCommand.commandName(50), WideCommand.Fifty.class);
+		commandMap.put(WideCommand.commandName(500), WideCommand.FiveHundred.class);
+		return commandMap;
+	}
+
+	/**
+	 * Builds the injector the same way an application would
+	 */
+	public static Injector createInjector() {
+		return Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(CommandModuleInterface.class).to(BenchmarkCommandModule.class);
+			}
+		});
+	}
+}
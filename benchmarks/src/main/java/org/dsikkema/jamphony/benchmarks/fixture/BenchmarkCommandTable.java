@@ -0,0 +1,46 @@
+package org.dsikkema.jamphony.benchmarks.fixture;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandTable;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * The same commands as BenchmarkCommandModule, written the way
+ * CommandProcessor would generate them, for the Bootstrap path
+ */
+public class BenchmarkCommandTable implements CommandTable {
+
+	@Override
+	public Map<String, String> getCommandClassNames() {
+		HashMap<String, String> commands = new HashMap<>();
+		commands.put(WideCommand.commandName(1), "org.dsikkema.jamphony.benchmarks.fixture.WideCommand$One");
+		commands.put(WideCommand.commandName(50), "org.dsikkema.jamphony.benchmarks.fixture.WideCommand$Fifty");
+		commands.put(WideCommand.commandName(500), "org.dsikkema.jamphony.benchmarks.fixture.WideCommand$FiveHundred");
+		return commands;
+	}
+
+	@Override
+	public Provider<? extends CommandInterface> getProvider(String commandName, Injector injector) {
+		switch (commandName) {
+			case "wide-1":
+				return WideCommand.One::new;
+			case "wide-50":
+				return WideCommand.Fifty::new;
+			case "wide-500":
+				return WideCommand.FiveHundred::new;
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	public CommandInputDefinition getInputDefinition(Class<? extends CommandInterface> commandClass) {
+		return null;
+	}
+}
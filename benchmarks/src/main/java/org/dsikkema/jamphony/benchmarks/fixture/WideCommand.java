@@ -0,0 +1,77 @@
+package org.dsikkema.jamphony.benchmarks.fixture;
+
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.Type;
+
+/**
+ * A command with one INT argument, a configurable number of options
+ * (alternating INT and STRING) and one flag. It does no work of its own, so
+ * benchmarks running it only measure the framework.
+ *
+ * Input definitions are cached per command class, so every width gets its
+ * own subclass.
+ */
+public abstract class WideCommand implements CommandInterface {
+
+	private final int optionCount;
+
+	protected WideCommand(int optionCount) {
+		this.optionCount = optionCount;
+	}
+
+	@Override
+	public int execute(InputData inputArgs) {
+		return 0;
+	}
+
+	@Override
+	public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+		defineInput(inputDefinition, this.optionCount);
+	}
+
+	public static void defineInput(CommandInputDefinition inputDefinition, int optionCount) {
+		inputDefinition.addArgument("id", Type.INT);
+		for (int i = 0; i < optionCount; i++) {
+			inputDefinition.addOption("option" + i, i % 2 == 0 ? Type.INT : Type.STRING);
+		}
+		inputDefinition.addFlag("verbose");
+	}
+
+	/**
+	 * Entries providing every option that defineInput defines
+	 */
+	public static String[] entries(String commandName, int optionCount) {
+		String[] entries = new String[optionCount + 3];
+		entries[0] = commandName;
+		entries[1] = "42";
+		for (int i = 0; i < optionCount; i++) {
+			entries[i + 2] = "--option" + i + "=" + (i % 2 == 0 ? Integer.toString(i * 7) : "value" + i);
+		}
+		entries[optionCount + 2] = "--verbose";
+		return entries;
+	}
+
+	public static String commandName(int optionCount) {
+		return "wide-" + optionCount;
+	}
+
+	public static class One extends WideCommand {
+		public One() {
+			super(1);
+		}
+	}
+
+	public static class Fifty extends WideCommand {
+		public Fifty() {
+			super(50);
+		}
+	}
+
+	public static class FiveHundred extends WideCommand {
+		public FiveHundred() {
+			super(500);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+#!/bin/sh
+# Wall-clock time of whole processes running one command, JVM start included,
+# for the Guice and the Bootstrap path. Linux only (date +%N).
+#
+#   ./startup.sh [runs] [java]
+
+RUNS=${1:-20}
+JAVA=${2:-java}
+JAR="$(dirname "$0")/target/benchmarks.jar"
+
+for path in guice bootstrap; do
+    total=0
+    i=0
+    while [ $i -lt "$RUNS" ]; do
+        start=$(date +%s%N)
+        "$JAVA" -cp "$JAR" org.dsikkema.jamphony.benchmarks.StartupMain $path wide-1 42 --option0=0 --verbose
+        end=$(date +%s%N)
+        total=$((total + (end - start) / 1000000))
+        i=$((i + 1))
+    done
+    echo "$path: $((total / RUNS)) ms average over $RUNS runs"
+done
@@ -0,0 +1,73 @@
+#!/bin/sh
+# Starts a jamphony application with a class data sharing archive of its
+# classes, so that a short command spends less time loading classes.
+#
+#   JAMPHONY_CP=app.jar:lib/guice.jar JAMPHONY_MAIN=com.example.Main launch.sh [args]
+#
+# Run it once with --train-cds among the global options, before the command
+# name, to create the archive: the application then loads every command (and
+# runs the command given, if any) in a JVM that archives the classes it loaded. Later runs use the archive as
+# long as it is newer than the first class path entry. The class path has to
+# list jars one by one, the archive is only used with the same class path.
+#
+# Needs Java 10 or later for the archive, and creates it in one run from 13 on.
+# If the Java version cannot be told, --train-cds runs without an archive.
+#
+#   JAVA                  java executable, java by default
+#   JAMPHONY_JAVA_OPTS    further options for the JVM
+#   JAMPHONY_CDS_ARCHIVE  the archive, next to the first class path entry by default
+
+JAVA=${JAVA:-java}
+CP=${JAMPHONY_CP:?set JAMPHONY_CP to the class path of the application}
+MAIN=${JAMPHONY_MAIN:?set JAMPHONY_MAIN to the main class of the application}
+ARCHIVE=${JAMPHONY_CDS_ARCHIVE:-${CP%%:*}.jsa}
+
+java_major() {
+    version=$("$JAVA" -version 2>&1 | sed -n '1s/^[^"]*"\([0-9.]*\).*/\1/p')
+    case $version in
+        1.*) version=${version#1.} ;;
+    esac
+    case ${version%%.*} in
+        ''|*[!0-9]*) echo 0 ;;
+        *) echo "${version%%.*}" ;;
+    esac
+}
+
+# Only the global options count, like GlobalOptions.parse: the entries up to
+# the first one that does not start with --
+train_cds() {
+    for entry in "$@"; do
+        case $entry in
+            --train-cds) return 0 ;;
+            --*) ;;
+            *) return 1 ;;
+        esac
+    done
+    return 1
+}
+
+if train_cds "$@"; then
+    major=$(java_major)
+    rm -f "$ARCHIVE"
+    if [ "$major" -eq 0 ]; then
+        echo "Could not tell the Java version, running without a class data sharing archive" >&2
+        exec "$JAVA" $JAMPHONY_JAVA_OPTS -cp "$CP" "$MAIN" "$@"
+    elif [ "$major" -ge 13 ]; then
+        exec "$JAVA" $JAMPHONY_JAVA_OPTS -Xlog:cds=off -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$CP" "$MAIN" "$@"
+    elif [ "$major" -ge 10 ]; then
+        APPCDS=
+        [ "$major" -eq 10 ] && APPCDS=-XX:+UseAppCDS
+        "$JAVA" $JAMPHONY_JAVA_OPTS $APPCDS -Xshare:off -XX:DumpLoadedClassList="$ARCHIVE.classlist" -cp "$CP" "$MAIN" "$@"
+        status=$?
+        "$JAVA" $APPCDS -Xshare:dump -XX:SharedClassListFile="$ARCHIVE.classlist" -XX:SharedArchiveFile="$ARCHIVE" -cp "$CP" > /dev/null || exit 1
+        rm -f "$ARCHIVE.classlist"
+        exit $status
+    fi
+    echo "Class data sharing archives of application classes need Java 10 or later" >&2
+    exit 1
+fi
+
+if [ -f "$ARCHIVE" ] && [ "$ARCHIVE" -nt "${CP%%:*}" ]; then
+    exec "$JAVA" $JAMPHONY_JAVA_OPTS -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto -cp "$CP" "$MAIN" "$@"
+fi
+exec "$JAVA" $JAMPHONY_JAVA_OPTS -cp "$CP" "$MAIN" "$@"
@@ -0,0 +1,152 @@
+package org.dsikkema.jamphony.jamphony;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dsikkema.jamphony.jamphony.io.Stdin;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Runs many command lines inside one JVM, so the cost of starting the JVM
+ * and building the injector is paid once instead of once per command.
+ *
+ * Every line is treated as a command string and handed to
+ * CommandRunner.run(String). Blank lines and lines starting with '#' are
+ * skipped.
+ */
+@Singleton
+public class BatchRunner {
+
+    private final CommandRunner commandRunner;
+    private final Stdout stdout;
+    private final Stdin stdin;
+
+    @Inject
+    public BatchRunner(
+            CommandRunner commandRunner,
+            Stdout stdout,
+            Stdin stdin
+    ) {
+        this.commandRunner = commandRunner;
+        this.stdout = stdout;
+        this.stdin = stdin;
+    }
+
+    /**
+     * Runs every command line read from the reader, returning the exit code
+     * of each command in the order they were run
+     */
+    public List<Integer> run(BufferedReader reader) throws IOException {
+        List<Integer> exitCodes = new ArrayList<>();
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (this.isCommandLine(line)) {
+                exitCodes.add(this.runLine(line));
+            }
+        }
+
+        return exitCodes;
+    }
+
+    /**
+     * Reads the command lines through Stdin's reader, the one commands read
+     * standard input through as well, so neither loses lines to the buffer
+     * of the other
+     */
+    public List<Integer> runStdin() throws IOException {
+        return this.run(this.stdin.getReader());
+    }
+
+    public List<Integer> runFile(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return this.run(reader);
+        }
+    }
+
+    /**
+     * Listens on the loopback interface only, and serves connections one at a
+     * time until the thread is interrupted or the server socket is closed.
+     *
+     * The protocol is line based: the client sends one command line, and the
+     * server answers with one line holding the exit code of that command. The
+     * output of the commands themselves still goes to this process' Stdout.
+     * Blank lines and '#' lines are not run, but still get an answer, 0, so a
+     * client can always wait for one line per line it sent.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            this.serve(serverSocket);
+        }
+    }
+
+    public void serve(ServerSocket serverSocket) throws IOException {
+        while (!serverSocket.isClosed() && !Thread.currentThread().isInterrupted()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+
+            try {
+                this.serveClient(client);
+            } catch (IOException e) {
+                // one misbehaving client should not bring the server down
+                this.stdout.writeLnErr("Batch client disconnected: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serveClient(Socket client) throws IOException {
+        try (
+            Socket socket = client;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))
+        ) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int exitCode = this.isCommandLine(line) ? this.runLine(line) : 0;
+                writer.write(Integer.toString(exitCode));
+                writer.write('\n');
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * A command blowing up must not take the rest of the batch down with it,
+     * so anything CommandRunner rethrows is reported and counted as a failure
+     */
+    int runLine(String line) {
+        try {
+            return this.commandRunner.run(line);
+        } catch (RuntimeException e) {
+            this.stdout.writeLnErr(e.toString());
+            return 1;
+        }
+    }
+
+    private boolean isCommandLine(String line) {
+        String trimmed = line.trim();
+        return !trimmed.isEmpty() && !trimmed.startsWith("#");
+    }
+}
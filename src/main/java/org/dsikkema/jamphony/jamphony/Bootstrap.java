@@ -0,0 +1,98 @@
+package org.dsikkema.jamphony.jamphony;
+
+import org.dsikkema.jamphony.jamphony.completion.CompletionGenerator;
+import org.dsikkema.jamphony.jamphony.completion.CompletionServer;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinitionFactory;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.RecordWriter;
+import org.dsikkema.jamphony.jamphony.io.Stdin;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.metrics.CommandInstrumentation;
+import org.dsikkema.jamphony.jamphony.metrics.CommandMetrics;
+
+/**
+ * Wires CommandRunner by hand instead of through Guice, for applications
+ * where building the injector is a noticeable part of every invocation, and
+ * for GraalVM native images, where Guice's runtime reflection does not work.
+ *
+ * Commands then have to be created without an injector to fall back on:
+ * by a CommandTable, generated from @Command annotations or written by
+ * hand, or by the command module's suppliers.
+ *
+ * CommandRunner runner = new Bootstrap(new GeneratedCommandTable()).createRunner();
+ */
+public class Bootstrap {
+
+    private final CommandModuleInterface commandModule;
+    private Stdout stdout = new Stdout();
+    private Stdin stdin = new Stdin();
+    private CommandInstrumentation instrumentation = new CommandMetrics();
+    private RecordWriter recordWriter;
+    private CommandResultCache resultCache = new CommandResultCache();
+
+    public Bootstrap(CommandModuleInterface commandModule) {
+        this.commandModule = commandModule;
+    }
+
+    public Bootstrap setStdout(Stdout stdout) {
+        this.stdout = stdout;
+        return this;
+    }
+
+    public Bootstrap setStdin(Stdin stdin) {
+        this.stdin = stdin;
+        return this;
+    }
+
+    public Bootstrap setInstrumentation(CommandInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    public Bootstrap setResultCache(CommandResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    public Stdout getStdout() {
+        return this.stdout;
+    }
+
+    /**
+     * For commands that read standard input themselves, so that they read
+     * what the runner gives them in a pipeline
+     */
+    public Stdin getStdin() {
+        return this.stdin;
+    }
+
+    /**
+     * Writes to the Stdout set at the time of the first call
+     */
+    public RecordWriter getRecordWriter() {
+        if (this.recordWriter == null) {
+            this.recordWriter = new RecordWriter(this.stdout);
+        }
+        return this.recordWriter;
+    }
+
+    public CommandRegistry createRegistry() {
+        return new CommandRegistry(this.commandModule, null, new CommandInputDefinitionFactory());
+    }
+
+    public CommandRunner createRunner() {
+        return new CommandRunner(this.createRegistry(), new InputData.Factory(this.stdin), this.stdout, this.instrumentation, this.getRecordWriter(), this.resultCache);
+    }
+
+    public BatchRunner createBatchRunner() {
+        return new BatchRunner(this.createRunner(), this.stdout, this.stdin);
+    }
+
+    public CompletionGenerator createCompletionGenerator() {
+        return new CompletionGenerator(this.createRegistry());
+    }
+
+    public CompletionServer createCompletionServer() {
+        return new CompletionServer(this.createRegistry(), this.stdout);
+    }
+}
@@ -0,0 +1,41 @@
+package org.dsikkema.jamphony.jamphony;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a command whose output only depends on its input, e.g. a lookup
+ * that scripts run over and over with the same arguments. CommandRunner
+ * then keeps its exit code and everything it wrote in CommandResultCache,
+ * and a run with the same input (see InputData.toCanonicalString()) and
+ * output format replays that instead of executing the command again, until
+ * the result expires.
+ *
+ * Output of a cacheable command that does run is written out once it is
+ * done, not while it runs. Commands with a streaming argument read input
+ * from elsewhere too, so they are never cached.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+
+    /**
+     * How long a result is replayed for
+     */
+    long ttl() default 5;
+
+    TimeUnit unit() default TimeUnit.MINUTES;
+
+    /**
+     * Whether a non-zero exit code is kept too. Off by default, as failures
+     * are often temporary.
+     */
+    boolean cacheFailures() default false;
+}
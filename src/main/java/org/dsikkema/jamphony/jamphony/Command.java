@@ -0,0 +1,73 @@
+package org.dsikkema.jamphony.jamphony;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.dsikkema.jamphony.jamphony.io.Type;
+
+/**
+ * Marks a CommandInterface implementation as a command, under the given
+ * name. At compile time, CommandProcessor turns all of them into one
+ * generated CommandTable, so there is no command map to write by hand.
+ *
+ * Commands can declare their input here instead of in
+ * populateInputDefinition, in which case the input definition is built by
+ * generated code and populateInputDefinition is not called:
+ *
+ * <pre>
+ * {@literal @}Command(
+ *     name = "add",
+ *     arguments = {@Command.Argument(name = "a", type = Type.INT), @Command.Argument(name = "b", type = Type.INT)},
+ *     flags = {"verbose"}
+ * )
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Command {
+
+    String name();
+
+    /**
+     * In the order they are given on the command line
+     */
+    Argument[] arguments() default {};
+
+    Option[] options() default {};
+
+    String[] flags() default {};
+
+    /**
+     * Name of the streaming argument after the regular ones, if any. See
+     * CommandInputDefinition.addStreamingArgument
+     */
+    String streamingArgument() default "";
+
+    /**
+     * See CommandInputDefinition.setLazyConversion
+     */
+    boolean lazyConversion() default false;
+
+    /**
+     * See CommandInputDefinition.setArgumentFiles
+     */
+    boolean argumentFiles() default false;
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({})
+    @interface Argument {
+        String name();
+        Type type() default Type.STRING;
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({})
+    @interface Option {
+        String name();
+        Type type() default Type.STRING;
+    }
+}
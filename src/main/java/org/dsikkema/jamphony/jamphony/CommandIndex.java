@@ -0,0 +1,239 @@
+package org.dsikkema.jamphony.jamphony;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A trie over command names, for what a map cannot do: resolving
+ * abbreviations and suggesting names close to a typo. CommandRegistry
+ * builds one along with its providers.
+ *
+ * Names are sorted, and every node of the trie stands for the range of
+ * names that start with the characters on the path to it. Nodes are kept in
+ * flat arrays, with the children of each node next to each other and
+ * sorted by character, so the index is compact and immutable once built.
+ */
+public final class CommandIndex {
+
+    private static final int[] NO_ROW = new int[0];
+
+    private final String[] names;
+
+    /**
+     * Per node: the character leading to it, its depth, the range of names
+     * below it and the range of its children
+     */
+    private final char[] labels;
+    private final int[] depths;
+    private final int[] firstNames;
+    private final int[] lastNames;
+    private final int[] firstChildren;
+    private final int[] lastChildren;
+
+    public CommandIndex(Collection<String> names) {
+        this.names = new TreeSet<>(names).toArray(new String[0]);
+
+        int capacity = 1;
+        for (String name : this.names) {
+            capacity += name.length();
+        }
+        char[] labels = new char[capacity];
+        int[] depths = new int[capacity];
+        int[] firstNames = new int[capacity];
+        int[] lastNames = new int[capacity];
+        int[] firstChildren = new int[capacity];
+        int[] lastChildren = new int[capacity];
+
+        // breadth first, so that the children of a node get consecutive numbers
+        int count = 1;
+        lastNames[0] = this.names.length;
+        for (int node = 0; node < count; node++) {
+            int depth = depths[node];
+            int name = firstNames[node];
+            if (name < lastNames[node] && this.names[name].length() == depth) {
+                name++;
+            }
+            firstChildren[node] = count;
+            while (name < lastNames[node]) {
+                char label = this.names[name].charAt(depth);
+                labels[count] = label;
+                depths[count] = depth + 1;
+                firstNames[count] = name;
+                while (name < lastNames[node] && this.names[name].charAt(depth) == label) {
+                    name++;
+                }
+                lastNames[count] = name;
+                count++;
+            }
+            lastChildren[node] = count;
+        }
+
+        this.labels = Arrays.copyOf(labels, count);
+        this.depths = Arrays.copyOf(depths, count);
+        this.firstNames = Arrays.copyOf(firstNames, count);
+        this.lastNames = Arrays.copyOf(lastNames, count);
+        this.firstChildren = Arrays.copyOf(firstChildren, count);
+        this.lastChildren = Arrays.copyOf(lastChildren, count);
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(Arrays.asList(this.names));
+    }
+
+    /**
+     * The names the input stands for, sorted: the input itself if it is a
+     * name, otherwise every name it abbreviates. Each part of the input
+     * between colons abbreviates the same part of the name, so "c:cl" stands
+     * for "cache:clear", and the last part also covers any further parts.
+     */
+    public List<String> match(String input) {
+        int node = this.find(input);
+        if (node >= 0 && this.isName(node)) {
+            return Collections.singletonList(input);
+        }
+        List<String> matches = new ArrayList<>();
+        this.collect(0, input.split(":", -1), 0, 0, matches);
+        return matches;
+    }
+
+    /**
+     * Names that are at most maxDistance edits away from the input, closest
+     * first. An edit is inserting, deleting or replacing a character, or
+     * swapping two adjacent ones.
+     */
+    public List<String> suggest(String input, int maxDistance) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        int[] firstRow = new int[input.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+        for (int child = this.firstChildren[0]; child < this.lastChildren[0]; child++) {
+            this.search(child, input, maxDistance, (char)0, firstRow, NO_ROW, suggestions);
+        }
+
+        Collections.sort(suggestions);
+        List<String> names = new ArrayList<>(suggestions.size());
+        for (Suggestion suggestion : suggestions) {
+            names.add(suggestion.name);
+        }
+        return names;
+    }
+
+    public int size() {
+        return this.names.length;
+    }
+
+    private boolean isName(int node) {
+        int first = this.firstNames[node];
+        return first < this.lastNames[node] && this.names[first].length() == this.depths[node];
+    }
+
+    private int find(String input) {
+        int node = 0;
+        for (int i = 0; i < input.length() && node >= 0; i++) {
+            node = this.child(node, input.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char label) {
+        int low = this.firstChildren[node];
+        int high = this.lastChildren[node] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char middleLabel = this.labels[middle];
+            if (middleLabel < label) {
+                low = middle + 1;
+            } else if (middleLabel > label) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private void collect(int node, String[] parts, int part, int position, List<String> matches) {
+        String abbreviation = parts[part];
+        if (position < abbreviation.length()) {
+            int child = this.child(node, abbreviation.charAt(position));
+            if (child >= 0) {
+                this.collect(child, parts, part, position + 1, matches);
+            }
+            return;
+        }
+        if (part == parts.length - 1) {
+            matches.addAll(Arrays.asList(this.names).subList(this.firstNames[node], this.lastNames[node]));
+            return;
+        }
+        // the rest of this part of the name, up to the colon
+        for (int child = this.firstChildren[node]; child < this.lastChildren[node]; child++) {
+            if (this.labels[child] == ':') {
+                this.collect(child, parts, part + 1, 0, matches);
+            } else {
+                this.collect(child, parts, part, position, matches);
+            }
+        }
+    }
+
+    /**
+     * One row of the edit distance table per node, computed from the rows of
+     * its parent and grandparent, so names with a common prefix share the
+     * work. Subtrees are skipped once no cell can get back within
+     * maxDistance, which is what makes it cheap.
+     */
+    private void search(int node, String input, int maxDistance, char previousLabel, int[] previousRow, int[] rowBefore, List<Suggestion> suggestions) {
+        char label = this.labels[node];
+        int length = input.length();
+        int[] row = new int[length + 1];
+        row[0] = previousRow[0] + 1;
+        int minimum = row[0];
+        for (int i = 1; i <= length; i++) {
+            char c = input.charAt(i - 1);
+            int distance = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), previousRow[i - 1] + (c == label ? 0 : 1));
+            if (rowBefore.length > 0 && i > 1 && c == previousLabel && input.charAt(i - 2) == label) {
+                distance = Math.min(distance, rowBefore[i - 2] + 1);
+            }
+            row[i] = distance;
+            minimum = Math.min(minimum, distance);
+        }
+
+        if (row[length] <= maxDistance && this.isName(node)) {
+            suggestions.add(new Suggestion(this.names[this.firstNames[node]], row[length]));
+        }
+        // a swap reaches back one row further, so the previous row counts too
+        if (minimum <= maxDistance || min(previousRow) < maxDistance) {
+            for (int child = this.firstChildren[node]; child < this.lastChildren[node]; child++) {
+                this.search(child, input, maxDistance, label, row, previousRow, suggestions);
+            }
+        }
+    }
+
+    private static int min(int[] row) {
+        int minimum = Integer.MAX_VALUE;
+        for (int value : row) {
+            minimum = Math.min(minimum, value);
+        }
+        return minimum;
+    }
+
+    private static class Suggestion implements Comparable<Suggestion> {
+        private final String name;
+        private final int distance;
+
+        private Suggestion(String name, int distance) {
+            this.name = name;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Suggestion other) {
+            int byDistance = Integer.compare(this.distance, other.distance);
+            return byDistance != 0 ? byDistance : this.name.compareTo(other.name);
+        }
+    }
+}
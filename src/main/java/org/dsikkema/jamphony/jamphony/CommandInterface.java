@@ -10,5 +10,6 @@ public interface CommandInterface {
      * Optionally implement this to populate an instance of CommandInputDefinition
      * with the arguments, options, and flags you want your command to receive
      */
-    public void populateInputDefinition(CommandInputDefinition inputDefinition);
+    public default void populateInputDefinition(CommandInputDefinition inputDefinition) {
+    }
 }
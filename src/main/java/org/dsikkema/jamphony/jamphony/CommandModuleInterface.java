@@ -1,10 +1,36 @@
 package org.dsikkema.jamphony.jamphony;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Client application should implement this method to define whatever commands it offers
+ *
+ * Commands can be given as classes, as class names or as suppliers, and an
+ * application can mix them. Classes in getCommandMap() are loaded as soon as
+ * the map is built. Commands given by class name are only loaded when they
+ * are run, which matters for applications with many commands, since one
+ * invocation only ever runs one of them.
  */
 public interface CommandModuleInterface {
-    public HashMap<String, Class<? extends CommandInterface>> getCommandMap();
+    public default HashMap<String, Class<? extends CommandInterface>> getCommandMap() {
+        return new HashMap<>();
+    }
+
+    /**
+     * Fully qualified class names by command name, instantiated by Guice like
+     * the classes in getCommandMap()
+     */
+    public default Map<String, String> getCommandClassNames() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Commands the application creates itself, without Guice
+     */
+    public default Map<String, Supplier<? extends CommandInterface>> getCommandSuppliers() {
+        return Collections.emptyMap();
+    }
 }
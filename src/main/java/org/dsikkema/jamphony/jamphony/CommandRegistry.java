@@ -1,43 +1,296 @@
 package org.dsikkema.jamphony.jamphony;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinitionFactory;
 import org.dsikkema.jamphony.jamphony.io.InputException;
 
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
 @Singleton
 public class CommandRegistry {
     private final CommandModuleInterface commandModule;
+    /**
+     * Null when wired by Bootstrap, in which case the command module has to
+     * be a CommandTable that provides its commands itself
+     */
     private final Injector injector;
-    
+    private final CommandInputDefinitionFactory inputDefinitionFactory;
+
+    /**
+     * A command's input definition only depends on its class, so it is built
+     * once per class, frozen, and reused for every later run
+     */
+    private final ConcurrentMap<Class<? extends CommandInterface>, CommandInputDefinition> inputDefinitions = new ConcurrentHashMap<>();
+
+    private volatile Commands commands;
+
+    private static final int MAX_SUGGESTIONS = 5;
+
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+
     @Inject
     public CommandRegistry(
             CommandModuleInterface commandModule,
-            Injector injector
+            Injector injector,
+            CommandInputDefinitionFactory inputDefinitionFactory
     ) {
         this.injector = injector;
         this.commandModule = commandModule;
+        this.inputDefinitionFactory = inputDefinitionFactory;
     }
-    
+
     /**
      * Uses the instance of CommandModuleInterface implemented and provided by
      * the application to get an actual command class from the command name,
      * and then instantiate it with Guice
      */
     public CommandInterface getCommandInstance(String commandName) throws InputException {
-    	HashMap<String, Class<? extends CommandInterface>> commandMap = this.commandModule.getCommandMap();
-        if (!commandMap.containsKey(commandName)) {
-            throw new InputException("Command '" + commandName + "' not found");
+        long start = System.nanoTime();
+        Commands commands = this.getCommands();
+        Provider<? extends CommandInterface> provider = commands.providers.get(commandName);
+        if (provider == null) {
+            commandName = this.resolveCommandName(commands, commandName);
+            provider = commands.providers.get(commandName);
         }
         try {
-            Class<? extends CommandInterface> classClass = commandMap.get(commandName);
-            return injector.getInstance(classClass);
+            return provider.get();
         } catch (Exception e) {
             String errorMessage = "Could not load command '" + commandName + "'";
             throw new RuntimeException(errorMessage, e);
+        } finally {
+            this.lookupCount.increment();
+            this.lookupNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The full name of the command the given name stands for: the name
+     * itself if there is such a command, otherwise the one command it
+     * abbreviates, see CommandIndex.match(). Names that match nothing get
+     * the closest command names as suggestions in the error.
+     */
+    public String resolveCommandName(String commandName) throws InputException {
+        Commands commands = this.getCommands();
+        if (commands.providers.containsKey(commandName)) {
+            return commandName;
+        }
+        return this.resolveCommandName(commands, commandName);
+    }
+
+    public CommandIndex getCommandIndex() {
+        return this.getCommands().index;
+    }
+
+    private String resolveCommandName(Commands commands, String commandName) throws InputException {
+        List<String> matches = commandName.isEmpty() ? Collections.emptyList() : commands.index.match(commandName);
+        if (matches.size() == 1) {
+            return matches.get(0);
+        }
+        if (matches.size() > 1) {
+            throw new InputException("Command '" + commandName + "' is ambiguous, it could be: " + String.join(", ", matches));
+        }
+
+        String message = "Command '" + commandName + "' not found";
+        List<String> suggestions = commands.index.suggest(commandName, commandName.length() < 4 ? 1 : 2);
+        if (!suggestions.isEmpty()) {
+            message += ", did you mean: " + String.join(", ", suggestions.subList(0, Math.min(suggestions.size(), MAX_SUGGESTIONS))) + "?";
+        }
+        throw new InputException(message);
+    }
+
+    /**
+     * The command map is read once, on first use. Each command is resolved to
+     * its Guice provider the first time it is run, and that provider is kept,
+     * so a lookup is one map probe and a provider call instead of asking the
+     * injector for a binding. Commands registered by class name are only
+     * loaded at that point too. The index of command names is built at the
+     * same time, and both are published together.
+     */
+    private Commands getCommands() {
+        Commands commands = this.commands;
+        if (commands == null) {
+            synchronized (this) {
+                commands = this.commands;
+                if (commands == null) {
+                    Map<String, Provider<? extends CommandInterface>> providers = this.resolveProviders();
+                    commands = new Commands(providers, new CommandIndex(providers.keySet()));
+                    this.commands = commands;
+                }
+            }
+        }
+        return commands;
+    }
+
+    private Map<String, Provider<? extends CommandInterface>> resolveProviders() {
+        Map<String, Provider<? extends CommandInterface>> providers = new HashMap<>();
+        for (Map.Entry<String, Class<? extends CommandInterface>> command : this.commandModule.getCommandMap().entrySet()) {
+            Class<? extends CommandInterface> commandClass = command.getValue();
+            this.register(providers, command.getKey(), this.lazyProvider(command.getKey(), () -> commandClass));
+        }
+        for (Map.Entry<String, String> command : this.commandModule.getCommandClassNames().entrySet()) {
+            String className = command.getValue();
+            this.register(providers, command.getKey(), this.lazyProvider(command.getKey(), () -> this.loadCommandClass(className)));
+        }
+        for (Map.Entry<String, Supplier<? extends CommandInterface>> command : this.commandModule.getCommandSuppliers().entrySet()) {
+            Supplier<? extends CommandInterface> supplier = command.getValue();
+            this.register(providers, command.getKey(), supplier::get);
+        }
+        return Collections.unmodifiableMap(providers);
+    }
+
+    /**
+     * A CommandTable gets to provide the command first, which spares loading
+     * the class by name when the table creates it with `new` anyway
+     */
+    private Provider<? extends CommandInterface> lazyProvider(String commandName, Supplier<Class<? extends CommandInterface>> commandClass) {
+        return new LazyProvider(() -> {
+            Provider<? extends CommandInterface> provider = null;
+            if (this.commandModule instanceof CommandTable) {
+                provider = ((CommandTable)this.commandModule).getProvider(commandName, this.injector);
+            }
+            return provider != null ? provider : this.resolveProvider(commandClass.get());
+        });
+    }
+
+    private void register(Map<String, Provider<? extends CommandInterface>> providers, String commandName, Provider<? extends CommandInterface> provider) {
+        if (providers.put(commandName, provider) != null) {
+            throw new RuntimeException("Command '" + commandName + "' is registered more than once");
+        }
+    }
+
+    private Class<? extends CommandInterface> loadCommandClass(String className) {
+        try {
+            return Class.forName(className, true, this.commandModule.getClass().getClassLoader()).asSubclass(CommandInterface.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new RuntimeException("Command class '" + className + "' could not be loaded", e);
+        }
+    }
+
+    /**
+     * A command that cannot be bound should only fail when it is run, like
+     * it did before providers were resolved up front
+     */
+    private Provider<? extends CommandInterface> resolveProvider(Class<? extends CommandInterface> commandClass) {
+        if (this.injector == null) {
+            return () -> {
+                throw new RuntimeException("Command class '" + commandClass.getName() + "' can only be created by Guice, but there is no injector");
+            };
+        }
+        try {
+            return this.injector.getProvider(commandClass);
+        } catch (RuntimeException e) {
+            return () -> {
+                throw e;
+            };
+        }
+    }
+
+    private static class Commands {
+        private final Map<String, Provider<? extends CommandInterface>> providers;
+        private final CommandIndex index;
+
+        private Commands(Map<String, Provider<? extends CommandInterface>> providers, CommandIndex index) {
+            this.providers = providers;
+            this.index = index;
         }
     }
+
+    /**
+     * Resolves the provider it stands in for on first use. Resolving twice
+     * when two threads get there at once is harmless.
+     */
+    private static class LazyProvider implements Provider<CommandInterface> {
+        private final Supplier<Provider<? extends CommandInterface>> resolver;
+        private volatile Provider<? extends CommandInterface> provider;
+
+        private LazyProvider(Supplier<Provider<? extends CommandInterface>> resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public CommandInterface get() {
+            Provider<? extends CommandInterface> provider = this.provider;
+            if (provider == null) {
+                provider = this.resolver.get();
+                this.provider = provider;
+            }
+            return provider.get();
+        }
+    }
+
+    /**
+     * Applications that add or remove commands at runtime call this, so that
+     * the command map is read again and input definitions are rebuilt
+     */
+    public void refresh() {
+        synchronized (this) {
+            this.commands = null;
+        }
+        this.invalidateInputDefinitions();
+    }
+
+    public long getLookupCount() {
+        return this.lookupCount.sum();
+    }
+
+    /**
+     * Average time getCommandInstance took, including instantiating the
+     * command, in nanoseconds
+     */
+    public double getAverageLookupNanos() {
+        long count = this.lookupCount.sum();
+        return count == 0 ? 0 : (double)this.lookupNanos.sum() / count;
+    }
+
+    /**
+     * Returns the frozen input definition of the command, asking the command
+     * to populate one only the first time its class is seen. Definitions
+     * declared in a command's @Command annotation come from the generated
+     * CommandTable instead.
+     */
+    public CommandInputDefinition getInputDefinition(CommandInterface command) {
+        Class<? extends CommandInterface> commandClass = command.getClass();
+        CommandInputDefinition inputDefinition = this.inputDefinitions.get(commandClass);
+        if (inputDefinition == null) {
+            if (this.commandModule instanceof CommandTable) {
+                inputDefinition = ((CommandTable)this.commandModule).getInputDefinition(commandClass);
+            }
+            if (inputDefinition == null) {
+                inputDefinition = this.inputDefinitionFactory.create();
+                command.populateInputDefinition(inputDefinition);
+            }
+            inputDefinition.freeze();
+
+            CommandInputDefinition existing = this.inputDefinitions.putIfAbsent(commandClass, inputDefinition);
+            if (existing != null) {
+                inputDefinition = existing;
+            }
+        }
+        return inputDefinition;
+    }
+
+    /**
+     * Applications whose commands define their input differently over time
+     * call these so that the next run builds a fresh definition
+     */
+    public void invalidateInputDefinition(Class<? extends CommandInterface> commandClass) {
+        this.inputDefinitions.remove(commandClass);
+    }
+
+    public void invalidateInputDefinitions() {
+        this.inputDefinitions.clear();
+    }
 }
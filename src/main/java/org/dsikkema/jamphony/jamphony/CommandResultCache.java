@@ -0,0 +1,304 @@
+package org.dsikkema.jamphony.jamphony;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.dsikkema.jamphony.jamphony.io.CapturedOutput;
+
+import com.google.inject.Singleton;
+
+/**
+ * Results of @Cacheable commands, by cache key, which CommandRunner builds
+ * from the command name, output format and canonical input.
+ *
+ * Kept in memory, least recently used first out, with at most
+ * getMaxEntries() results and getMaxBytes() bytes of output between them.
+ * Expired results are dropped when they are looked up, or when they are the
+ * least recently used.
+ *
+ * With a directory set, results are also written there, one file each, so
+ * that later processes of the same application can replay them. Results
+ * read from the directory are kept in memory from then on. The directory
+ * is only a cache: a file that cannot be read or written is a miss.
+ */
+@Singleton
+public class CommandResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int FILE_MAGIC = 0x4A524331;
+    private static final String FILE_SUFFIX = ".result";
+
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private volatile Path directory = null;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    public CommandResultCache() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * For tests, with a clock in milliseconds
+     */
+    CommandResultCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * The result kept for the key, or null if there is none or it has expired
+     */
+    public Result get(String key) {
+        Result result = this.getFromMemory(key);
+        if (result == null && this.directory != null) {
+            result = this.readFile(this.directory, key);
+            if (result != null) {
+                this.keep(key, result);
+            }
+        }
+        (result != null ? this.hitCount : this.missCount).increment();
+        return result;
+    }
+
+    public void put(String key, int exitCode, CapturedOutput output, long ttlMillis) {
+        Result result = new Result(exitCode, output.getOut(), output.getErr(), this.clock.getAsLong() + ttlMillis);
+        this.keep(key, result);
+        Path directory = this.directory;
+        if (directory != null) {
+            this.writeFile(directory, key, result);
+        }
+    }
+
+    /**
+     * Forgets every result, in memory and in the directory
+     */
+    public void clear() {
+        synchronized (this) {
+            this.results.clear();
+            this.bytes = 0;
+        }
+        Path directory = this.directory;
+        if (directory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // nothing to replay from a directory that cannot be read either
+        }
+    }
+
+    public synchronized int size() {
+        return this.results.size();
+    }
+
+    public synchronized int getMaxEntries() {
+        return this.maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.evict();
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Where results are shared with other processes, null (the default) to
+     * keep them in memory only. Created if it does not exist.
+     */
+    public void setDirectory(Path directory) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.directory = directory;
+    }
+
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    private synchronized Result getFromMemory(String key) {
+        Result result = this.results.get(key);
+        if (result != null && result.isExpired(this.clock.getAsLong())) {
+            this.results.remove(key);
+            this.bytes -= result.size;
+            return null;
+        }
+        return result;
+    }
+
+    private synchronized void keep(String key, Result result) {
+        Result previous = this.results.put(key, result);
+        if (previous != null) {
+            this.bytes -= previous.size;
+        }
+        this.bytes += result.size;
+        this.evict();
+    }
+
+    private void evict() {
+        Iterator<Result> eldest = this.results.values().iterator();
+        while (eldest.hasNext() && (this.results.size() > this.maxEntries || this.bytes > this.maxBytes)) {
+            this.bytes -= eldest.next().size;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * The key is stored in the file too, since two keys could have the same
+     * file name in theory
+     */
+    private Result readFile(Path directory, String key) {
+        Path file = directory.resolve(fileName(key));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long fileSize = Files.size(file);
+            if (in.readInt() != FILE_MAGIC || !Arrays.equals(readBytes(in, fileSize), key.getBytes(StandardCharsets.UTF_8))) {
+                return null;
+            }
+            long expiresAt = in.readLong();
+            if (expiresAt > this.clock.getAsLong()) {
+                int exitCode = in.readInt();
+                byte[] out = readBytes(in, fileSize);
+                byte[] err = readBytes(in, fileSize);
+                return new Result(exitCode, out, err, expiresAt);
+            }
+        } catch (IOException e) {
+            // not there, or not readable, either way a miss
+            return null;
+        }
+        // expired, and deleted only now that it is closed
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // another process may still have it open, it is a miss anyway
+        }
+        return null;
+    }
+
+    /**
+     * Written to a temporary file first and moved in place, so that another
+     * process never reads half a result
+     */
+    private void writeFile(Path directory, String key, Result result) {
+        Path file = directory.resolve(fileName(key));
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, "result", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(FILE_MAGIC);
+                writeBytes(out, key.getBytes(StandardCharsets.UTF_8));
+                out.writeLong(result.expiresAt);
+                out.writeInt(result.exitCode);
+                writeBytes(out, result.out);
+                writeBytes(out, result.err);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the result is still kept in memory
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in, long fileSize) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > fileSize) {
+            throw new IOException("Corrupt result file");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + FILE_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(FILE_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The exit code and output of one run of a command
+     */
+    public static class Result {
+        private final int exitCode;
+        private final byte[] out;
+        private final byte[] err;
+        private final long expiresAt;
+        private final long size;
+
+        private Result(int exitCode, byte[] out, byte[] err, long expiresAt) {
+            this.exitCode = exitCode;
+            this.out = out;
+            this.err = err;
+            this.expiresAt = expiresAt;
+            this.size = out.length + err.length;
+        }
+
+        public int getExitCode() {
+            return this.exitCode;
+        }
+
+        public CapturedOutput getOutput() {
+            return new CapturedOutput(this.out, this.err);
+        }
+
+        private boolean isExpired(long now) {
+            return this.expiresAt <= now;
+        }
+    }
+}
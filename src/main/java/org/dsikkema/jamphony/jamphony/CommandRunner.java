@@ -1,11 +1,30 @@
 package org.dsikkema.jamphony.jamphony;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.dsikkema.jamphony.jamphony.io.ArgumentFileExpander;
+import org.dsikkema.jamphony.jamphony.io.BrokenPipeException;
+import org.dsikkema.jamphony.jamphony.io.CapturedOutput;
 import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
-import org.dsikkema.jamphony.jamphony.io.CommandInputDefinitionFactory;
+import org.dsikkema.jamphony.jamphony.io.CommandLineTokenizer;
 import org.dsikkema.jamphony.jamphony.io.InputData;
 import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.LinePipe;
+import org.dsikkema.jamphony.jamphony.io.OutputFormat;
+import org.dsikkema.jamphony.jamphony.io.RecordWriter;
+import org.dsikkema.jamphony.jamphony.io.Stdin;
 import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.io.UncheckedInputException;
 import org.dsikkema.jamphony.jamphony.io.InputData.Factory;
+import org.dsikkema.jamphony.jamphony.metrics.CommandInstrumentation;
+import org.dsikkema.jamphony.jamphony.metrics.Phase;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -14,9 +33,13 @@ import com.google.inject.Singleton;
 public class CommandRunner {
     
     private final CommandRegistry commandRegistry;
-	private Factory inputDataFactory;
-	private CommandInputDefinitionFactory inputDefinitionFactory;
-	private Stdout stdout;
+	private final Factory inputDataFactory;
+	private final Stdout stdout;
+	private final CommandInstrumentation instrumentation;
+	private final RecordWriter recordWriter;
+	private final CommandResultCache resultCache;
+	private final CommandLineTokenizer tokenizer = new CommandLineTokenizer();
+	private final ArgumentFileExpander argumentFileExpander = new ArgumentFileExpander(this.tokenizer);
 
     /**
      * constructor deals with dependency initialization, including module map
@@ -25,13 +48,17 @@ public class CommandRunner {
     public CommandRunner(
             CommandRegistry commandRegistry,
             InputData.Factory inputDataBuilder,
-            CommandInputDefinitionFactory inputDefinitionFactory,
-            Stdout output
+            Stdout output,
+            CommandInstrumentation instrumentation,
+            RecordWriter recordWriter,
+            CommandResultCache resultCache
     ) {
         this.commandRegistry = commandRegistry;
 		this.inputDataFactory = inputDataBuilder;
-		this.inputDefinitionFactory = inputDefinitionFactory;
 		this.stdout = output;
+		this.instrumentation = instrumentation;
+		this.recordWriter = recordWriter;
+		this.resultCache = resultCache;
     }
     
     /**
@@ -40,32 +67,96 @@ public class CommandRunner {
      * input definition of the argument which we create in this method.
      * 
      * Output, however, has no special dependency on the command and indeed we
-     * may want to share it with whatever program is calling this runner.
+     * may want to share it with whatever program is calling this runner. It is
+     * flushed once the command is done.
+     *
+     * Global options (see GlobalOptions) may come before the command name.
+     *
+     * The time each phase takes is passed on to the instrumentation.
      */ 
     public int run(String[] entries) {
+        return this.run(entries, Phase.newTimings());
+    }
+
+    private int run(String[] entries, long[] timings) {
         int exitCode = 1;
-        CommandInterface command;
+        CommandInterface command = null;
         String commandName = "";
         CommandInputDefinition inputDefinition;
-        InputData inputData;
+        InputData inputData = null;
+        boolean unbuffered = false;
+        boolean profile = false;
+        Phase phase = Phase.LOOKUP;
+        long start = System.nanoTime();
+        long end;
         
+        this.recordWriter.beginRun();
         try {
-            commandName = this.getCommandName(entries);
+            GlobalOptions globalOptions = GlobalOptions.parse(entries);
+            profile = globalOptions.isProfile();
+            this.recordWriter.setFormat(globalOptions.getFormat());
+            if (globalOptions.getCommandIndex() > 0) {
+                entries = Arrays.copyOfRange(entries, globalOptions.getCommandIndex(), entries.length);
+            }
+            if (globalOptions.isNoBuffer() && !this.stdout.isUnbufferedForThread()) {
+                this.stdout.setUnbufferedForThread(true);
+                unbuffered = true;
+            }
+            if (globalOptions.isTrainCds()) {
+                this.loadCommands();
+                if (entries.length == 0) {
+                    exitCode = 0;
+                    return exitCode;
+                }
+            }
+
+            commandName = this.commandRegistry.resolveCommandName(this.getCommandName(entries));
             command = this.commandRegistry.getCommandInstance(commandName);
-            inputDefinition = this.inputDefinitionFactory.create();
-            command.populateInputDefinition(inputDefinition);
+            end = System.nanoTime();
+            timings[Phase.LOOKUP.ordinal()] = end - start;
+            start = end;
+
+            phase = Phase.DEFINITION;
+            inputDefinition = this.commandRegistry.getInputDefinition(command);
+            end = System.nanoTime();
+            timings[Phase.DEFINITION.ordinal()] = end - start;
+            start = end;
             
             /**
              * Note: input validation occurs inside the input data factory
              */
+            phase = Phase.INPUT;
+            entries = this.argumentFileExpander.expand(entries, inputDefinition);
 			inputData = this.inputDataFactory.create(inputDefinition, entries);
-            exitCode = command.execute(inputData);
+            end = System.nanoTime();
+            timings[Phase.INPUT.ordinal()] = end - start;
+            start = end;
+
+            phase = Phase.EXECUTE;
+            Cacheable cacheable = command.getClass().getAnnotation(Cacheable.class);
+            if (cacheable != null && !inputDefinition.hasStreamingArgument() && !this.isInPipeline()) {
+                exitCode = this.executeCached(command, cacheable, commandName, inputData, globalOptions.getFormat());
+            } else {
+                exitCode = command.execute(inputData);
+            }
+            timings[Phase.EXECUTE.ordinal()] = System.nanoTime() - start;
 		} catch (InputException e) {
 			/**
 			 * InputExceptions are thrown by the console framework itself and
 			 * should always have informative messages
 			 */
 			this.stdout.writeLnErr(e.getMessage());
+			this.instrumentation.inputError(command != null ? commandName : null, phase, e);
+		} catch (UncheckedInputException e) {
+			/**
+			 * Same, for input that turned out to be invalid only once the
+			 * command read it (lazy conversion)
+			 */
+			this.stdout.writeLnErr(e.getMessage());
+			this.instrumentation.inputError(command != null ? commandName : null, phase, e.getCause());
+		} catch (BrokenPipeException e) {
+			// the next command of a pipeline is done, which is no error of this one
+			throw e;
 		}
         catch (Exception e) {
 			String message;
@@ -76,6 +167,24 @@ public class CommandRunner {
 			}
 			this.stdout.writeLnErr(message);
 			throw e;
+		} finally {
+			if (inputData != null) {
+				inputData.close();
+			}
+			try {
+				// writes into a pipe, which may have broken by now
+				this.recordWriter.endRun();
+			} finally {
+				String instrumentedName = command != null ? commandName : null;
+				this.instrumentation.runCompleted(instrumentedName, exitCode, timings);
+				if (profile) {
+					this.writeProfile(instrumentedName, timings);
+				}
+				if (unbuffered) {
+					this.stdout.setUnbufferedForThread(false);
+				}
+				this.stdout.flush();
+			}
 		}
         
         return exitCode;
@@ -86,24 +195,349 @@ public class CommandRunner {
      * split apart by spaces
      */
     public int run(String commandString) {
-    	return this.run(this.splitCommandString(commandString));
+    	String[] entries;
+    	long[] timings = Phase.newTimings();
+    	long start = System.nanoTime();
+    	try {
+    		entries = this.splitCommandString(commandString);
+    	} catch (InputException e) {
+    		this.stdout.writeLnErr(e.getMessage());
+    		this.instrumentation.inputError(null, Phase.TOKENIZE, e);
+    		this.instrumentation.runCompleted(null, 1, timings);
+    		return 1;
+    	}
+    	timings[Phase.TOKENIZE.ordinal()] = System.nanoTime() - start;
+    	return this.run(entries, timings);
+    }
+
+    /**
+     * Whether the current thread runs a command of a pipeline, whose input
+     * is not part of the cache key
+     */
+    private boolean isInPipeline() {
+    	return this.stdout.getPipe() != null || this.inputDataFactory.getStdin().getPipe() != null;
+    }
+
+    /**
+     * Replays the result of an earlier run of a @Cacheable command with the
+     * same input, or runs it and keeps the result. Its output is captured
+     * while it runs, records included, and written out when it is done.
+     */
+    private int executeCached(CommandInterface command, Cacheable cacheable, String commandName, InputData inputData, OutputFormat format) {
+    	String key = commandName + '\n' + format.getName() + '\n' + inputData.toCanonicalString();
+    	CommandResultCache.Result cached = this.resultCache.get(key);
+    	if (cached != null) {
+    		this.stdout.replay(cached.getOutput());
+    		// the replayed output is complete, so finish() must not add to it
+    		this.recordWriter.setFormat(OutputFormat.TEXT);
+    		return cached.getExitCode();
+    	}
+
+    	int exitCode;
+    	CapturedOutput output;
+    	this.stdout.beginCapture();
+    	try {
+    		exitCode = command.execute(inputData);
+    		this.recordWriter.finish();
+    	} finally {
+    		output = this.stdout.endCapture();
+    		this.stdout.replay(output);
+    	}
+    	if (exitCode == 0 || cacheable.cacheFailures()) {
+    		this.resultCache.put(key, exitCode, output, cacheable.unit().toMillis(cacheable.ttl()));
+    	}
+    	return exitCode;
+    }
+
+    /**
+     * Creates every command, its input definition and input data for it, for
+     * the classes to be loaded during a class data sharing training run.
+     * Commands are not executed. Input data for no input mostly fails
+     * validation, which loads the classes involved in that too.
+     */
+    private void loadCommands() {
+    	List<String> commandNames = this.commandRegistry.getCommandIndex().getNames();
+    	int loaded = 0;
+    	for (String commandName : commandNames) {
+    		try {
+    			CommandInputDefinition inputDefinition = this.commandRegistry.getInputDefinition(this.commandRegistry.getCommandInstance(commandName));
+    			try {
+    				this.inputDataFactory.create(inputDefinition, new String[] {commandName}).close();
+    			} catch (InputException e) {
+    				// expected for commands with required arguments
+    			}
+    			loaded++;
+    		} catch (InputException | RuntimeException e) {
+    			// not archived then, the command still loads as usual when run
+    		}
+    	}
+    	this.stdout.writeLnErr("Loaded " + loaded + " of " + commandNames.size() + " commands for class data sharing");
+    }
+
+    private void writeProfile(String commandName, long[] timings) {
+    	this.stdout.writeLnErr("profile: " + Phase.describe(timings));
+    	String report = this.instrumentation.report(commandName);
+    	if (!report.isEmpty()) {
+    		this.stdout.writeLnErr(report.trim());
+    	}
     }
     
-    private String[] splitCommandString(String commandString) {
-    	/**
-    	 * With deep gratitude to the StackOverflow author who provided 
-    	 * this answer, which helped get me to the regexes I needed here
-    	 * 
-    	 * http://stackoverflow.com/a/23445626/1464099
-    	 */
-    	String[] argsSplitByWhitespace = commandString.split("(?<!\\\\)\\s+");
-    	String[] argsWithEscapersRemoved = new String[argsSplitByWhitespace.length];
-    	
-    	for (int i = 0; i < argsSplitByWhitespace.length; i++) {
-			argsWithEscapersRemoved[i] = argsSplitByWhitespace[i].replaceAll("\\\\(\\s)", "$1");
-		}
-    	
-    	return argsWithEscapersRemoved;
+    /**
+     * Runs independent commands concurrently on a pool sized to the machine,
+     * see runAll(List, ExecutorService)
+     */
+    public int[] runAll(List<String[]> commands) throws InterruptedException {
+    	int threads = Math.max(1, Math.min(commands.size(), Runtime.getRuntime().availableProcessors()));
+    	ExecutorService executor = Executors.newFixedThreadPool(threads);
+    	try {
+    		return this.runAll(commands, executor);
+    	} finally {
+    		executor.shutdown();
+    	}
+    }
+
+    /**
+     * Runs independent commands concurrently on the given executor and
+     * returns their exit codes in the order the commands were given.
+     *
+     * Each command's stdout and stderr are captured while it runs and
+     * written out in one piece, in the same order as the commands, as soon
+     * as the command and all commands before it have finished. Output a
+     * command writes from threads it starts itself is not captured.
+     *
+     * The executor is left running, so callers can share one, e.g. one
+     * backed by virtual threads on newer JVMs. When the calling thread is
+     * interrupted while waiting, commands that are not done yet are
+     * cancelled before the InterruptedException is passed on.
+     */
+    public int[] runAll(List<String[]> commands, ExecutorService executor) throws InterruptedException {
+    	List<Future<CommandResult>> futures = new ArrayList<>(commands.size());
+    	for (String[] entries : commands) {
+    		futures.add(executor.submit(() -> this.runCaptured(entries)));
+    	}
+
+    	int[] exitCodes = new int[commands.size()];
+    	for (int i = 0; i < futures.size(); i++) {
+    		CommandResult result;
+    		try {
+    			result = futures.get(i).get();
+    		} catch (InterruptedException e) {
+    			cancel(futures.subList(i, futures.size()));
+    			throw e;
+    		} catch (ExecutionException e) {
+    			throw new RuntimeException("Could not run command " + (i + 1) + " of " + futures.size(), e.getCause());
+    		}
+    		this.stdout.replay(result.output);
+    		exitCodes[i] = result.exitCode;
+    	}
+    	return exitCodes;
+    }
+
+    /**
+     * Commands that have not started are not run at all, running ones are
+     * interrupted
+     */
+    private static void cancel(List<? extends Future<?>> futures) {
+    	for (Future<?> future : futures) {
+    		future.cancel(true);
+    	}
+    }
+
+    private CommandResult runCaptured(String[] entries) {
+    	int exitCode;
+    	CapturedOutput output;
+    	this.stdout.beginCapture();
+    	try {
+    		exitCode = this.run(entries);
+    	} catch (RuntimeException e) {
+    		/**
+    		 * run() already reported the failing command, the exception
+    		 * itself should not take down the other commands
+    		 */
+    		this.stdout.writeLnErr(e.toString());
+    		exitCode = 1;
+    	} finally {
+    		output = this.stdout.endCapture();
+    	}
+    	return new CommandResult(exitCode, output);
+    }
+
+    private static class CommandResult {
+    	private final int exitCode;
+    	private final CapturedOutput output;
+
+    	private CommandResult(int exitCode, CapturedOutput output) {
+    		this.exitCode = exitCode;
+    		this.output = output;
+    	}
+    }
+
+    /**
+     * Runs the commands of a command string like "export --format=ndjson |
+     * filter --active | count" as a pipeline, see runPipeline(List). A lone,
+     * unquoted | separates the commands; quote it ('|') to pass it to a
+     * command instead.
+     */
+    public int[] runPipeline(String commandString) throws InterruptedException {
+    	List<String[]> stages;
+    	try {
+    		stages = this.splitPipeline(commandString);
+    	} catch (InputException e) {
+    		this.stdout.writeLnErr(e.getMessage());
+    		this.instrumentation.inputError(null, Phase.TOKENIZE, e);
+    		return new int[] {1};
+    	}
+    	return this.runPipeline(stages);
+    }
+
+    /**
+     * Runs the commands as a pipeline on a pool with a thread for every
+     * command but the last, see runPipeline(List, ExecutorService)
+     */
+    public int[] runPipeline(List<String[]> stages) throws InterruptedException {
+    	if (stages.size() < 2) {
+    		return this.runPipeline(stages, null);
+    	}
+    	ExecutorService executor = Executors.newFixedThreadPool(stages.size() - 1);
+    	try {
+    		return this.runPipeline(stages, executor);
+    	} finally {
+    		executor.shutdown();
+    	}
+    }
+
+    /**
+     * Runs the commands concurrently, like a shell pipeline but within this
+     * process: the lines each command writes to Stdout are what the next one
+     * reads from Stdin, or from "-" for a streaming argument. They are handed
+     * over as Strings through a LinePipe, so a command waits when the next
+     * one falls more than LinePipe.DEFAULT_CAPACITY lines behind. Records
+     * come through as the lines of their format, e.g. --format=ndjson.
+     *
+     * The last command runs on the current thread and writes to Stdout as
+     * usual, so a capture or pipeline the caller is in gets the output of the
+     * whole pipeline. Standard error of the other commands is written from
+     * their own threads, so like in runAll, a capture does not get it.
+     *
+     * A command that stops reading early ends the ones before it, like
+     * SIGPIPE does in a shell: their next write into the pipe throws a
+     * BrokenPipeException, and those still running are cancelled, in case
+     * they are not writing. Either way they count as having finished
+     * normally, with exit code 0. Returns the exit codes of all commands, in
+     * order, like bash's PIPESTATUS.
+     *
+     * When the current thread is interrupted while waiting for the other
+     * commands, they are cancelled before InterruptedException is thrown.
+     *
+     * Every command but the last needs its own thread of the executor at the
+     * same time, otherwise the pipeline cannot make progress. The executor is
+     * left running.
+     */
+    public int[] runPipeline(List<String[]> stages, ExecutorService executor) throws InterruptedException {
+    	int[] exitCodes = new int[stages.size()];
+    	if (stages.isEmpty()) {
+    		return exitCodes;
+    	}
+
+    	List<Future<Integer>> futures = new ArrayList<>(stages.size() - 1);
+    	LinePipe in = null;
+    	for (int i = 0; i < stages.size() - 1; i++) {
+    		String[] entries = stages.get(i);
+    		LinePipe stageIn = in;
+    		LinePipe stageOut = new LinePipe();
+    		List<Future<Integer>> upstream = new ArrayList<>(futures);
+    		futures.add(executor.submit(() -> this.runStage(entries, stageIn, stageOut, upstream)));
+    		in = stageOut;
+    	}
+    	exitCodes[stages.size() - 1] = this.runStage(stages.get(stages.size() - 1), in, null, futures);
+    	if (Thread.interrupted()) {
+    		cancel(futures);
+    		throw new InterruptedException();
+    	}
+
+    	for (int i = 0; i < futures.size(); i++) {
+    		try {
+    			exitCodes[i] = futures.get(i).get();
+    		} catch (CancellationException e) {
+    			exitCodes[i] = 0;
+    		} catch (InterruptedException e) {
+    			cancel(futures.subList(i, futures.size()));
+    			throw e;
+    		} catch (ExecutionException e) {
+    			throw new RuntimeException("Could not run command " + (i + 1) + " of " + stages.size(), e.getCause());
+    		}
+    	}
+    	return exitCodes;
+    }
+
+    /**
+     * Runs one command of a pipeline, reading from in and writing into out
+     * where given. Both ends are closed when it is done, so the commands
+     * next to it see the end of their input, or get a broken pipe. If it did
+     * not read its input to the end, the commands before it are cancelled.
+     * On the caller's thread, pipes it was using before are put back.
+     */
+    private int runStage(String[] entries, LinePipe in, LinePipe out, List<Future<Integer>> upstream) {
+    	Stdin stdin = this.inputDataFactory.getStdin();
+    	LinePipe enclosingIn = stdin.getPipe();
+    	LinePipe enclosingOut = this.stdout.getPipe();
+    	if (in != null) {
+    		stdin.setPipe(in);
+    	}
+    	if (out != null) {
+    		this.stdout.setPipe(out);
+    	}
+    	try {
+    		return this.run(entries);
+    	} catch (BrokenPipeException e) {
+    		return 0;
+    	} catch (RuntimeException e) {
+    		// run() already reported the failing command, see runCaptured
+    		this.stdout.writeLnErr(e.toString());
+    		return 1;
+    	} finally {
+    		if (out != null) {
+    			this.stdout.setPipe(enclosingOut);
+    			out.closeWriter();
+    		}
+    		if (in != null) {
+    			stdin.setPipe(enclosingIn);
+    			in.closeReader();
+    			if (!in.isEnded()) {
+    				cancel(upstream);
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * The tokenizer passes unquoted entries as a range of the command string
+     * itself, which is how a quoted | is told apart from a separator
+     */
+    private List<String[]> splitPipeline(String commandString) throws InputException {
+    	List<String[]> stages = new ArrayList<>();
+    	List<String> entries = new ArrayList<>();
+    	this.tokenizer.tokenize(commandString, (buffer, start, end) -> {
+    		if (buffer == commandString && end - start == 1 && buffer.charAt(start) == '|') {
+    			stages.add(toStage(entries));
+    			entries.clear();
+    		} else {
+    			entries.add(buffer.subSequence(start, end).toString());
+    		}
+    	});
+    	stages.add(toStage(entries));
+    	return stages;
+    }
+
+    private static String[] toStage(List<String> entries) throws InputException {
+    	if (entries.isEmpty()) {
+    		throw new InputException("No command given");
+    	}
+    	return entries.toArray(new String[entries.size()]);
+    }
+
+    private String[] splitCommandString(String commandString) throws InputException {
+    	return this.tokenizer.tokenize(commandString);
     }
     
     private String getCommandName(String[] entries) throws InputException {
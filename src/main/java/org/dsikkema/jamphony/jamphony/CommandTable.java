@@ -0,0 +1,28 @@
+package org.dsikkema.jamphony.jamphony;
+
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * Command module that knows more about its commands than their classes.
+ * CommandProcessor generates one from the @Command annotations; bind
+ * CommandModuleInterface to it like to a hand-written module.
+ */
+public interface CommandTable extends CommandModuleInterface {
+
+    /**
+     * Provider for the named command, or null if there is no such command.
+     * Commands that can be constructed without injection are created with
+     * plain `new`, others are left to the injector. The injector is null
+     * when the runner was wired by Bootstrap.
+     */
+    Provider<? extends CommandInterface> getProvider(String commandName, Injector injector);
+
+    /**
+     * Input definition declared in the command's annotation, or null if the
+     * command populates its own. A new, unfrozen definition on every call.
+     */
+    CommandInputDefinition getInputDefinition(Class<? extends CommandInterface> commandClass);
+}
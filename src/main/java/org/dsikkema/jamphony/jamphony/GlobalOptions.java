@@ -0,0 +1,131 @@
+package org.dsikkema.jamphony.jamphony;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.OutputFormat;
+
+/**
+ * Options for jamphony itself rather than for the command. They go before
+ * the command name, e.g. "--no-buffer export-users --since=2017", so they can
+ * never clash with a command's own options.
+ *
+ * Public only for getNames(), the rest is for CommandRunner.
+ */
+public final class GlobalOptions {
+
+    private static final String NO_BUFFER = "--no-buffer";
+    private static final String PROFILE = "--profile";
+    private static final String FORMAT = "--format=";
+    private static final String TRAIN_CDS = "--train-cds";
+
+    private final int commandIndex;
+    private final boolean noBuffer;
+    private final boolean profile;
+    private final OutputFormat format;
+    private final boolean trainCds;
+
+    private GlobalOptions(int commandIndex, boolean noBuffer, boolean profile, OutputFormat format, boolean trainCds) {
+        this.commandIndex = commandIndex;
+        this.noBuffer = noBuffer;
+        this.profile = profile;
+        this.format = format;
+        this.trainCds = trainCds;
+    }
+
+    static GlobalOptions parse(String[] entries) throws InputException {
+        int index = 0;
+        boolean noBuffer = false;
+        boolean profile = false;
+        OutputFormat format = OutputFormat.TEXT;
+        boolean trainCds = false;
+
+        for ( ; index < entries.length && entries[index].startsWith("--"); index++) {
+            String entry = entries[index];
+            switch (entry) {
+                case NO_BUFFER:
+                    noBuffer = true;
+                    break;
+                case PROFILE:
+                    profile = true;
+                    break;
+                case TRAIN_CDS:
+                    trainCds = true;
+                    break;
+                default:
+                    if (entry.startsWith(FORMAT)) {
+                        format = parseFormat(entry.substring(FORMAT.length()));
+                        break;
+                    }
+                    throw new InputException("Global option '" + entry + "' is not defined");
+            }
+        }
+
+        return new GlobalOptions(index, noBuffer, profile, format, trainCds);
+    }
+
+    /**
+     * Every global option as it is written on the command line, --format=
+     * once per output format, e.g. for shell completion
+     */
+    public static List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        names.add(NO_BUFFER);
+        names.add(PROFILE);
+        for (OutputFormat format : OutputFormat.values()) {
+            names.add(FORMAT + format.getName());
+        }
+        names.add(TRAIN_CDS);
+        return names;
+    }
+
+    private static OutputFormat parseFormat(String name) throws InputException {
+        OutputFormat format = OutputFormat.fromName(name);
+        if (format == null) {
+            StringBuilder names = new StringBuilder();
+            for (OutputFormat known : OutputFormat.values()) {
+                names.append(names.length() > 0 ? ", " : "").append(known.getName());
+            }
+            throw new InputException("Output format '" + name + "' is not defined, use one of: " + names);
+        }
+        return format;
+    }
+
+    /**
+     * Position of the command name in the entries
+     */
+    int getCommandIndex() {
+        return this.commandIndex;
+    }
+
+    /**
+     * Write every line out right away, even if Stdout is buffered
+     */
+    boolean isNoBuffer() {
+        return this.noBuffer;
+    }
+
+    /**
+     * Print the phase timings of the run, and what the instrumentation has
+     * recorded for the command so far, to stderr when it is done
+     */
+    boolean isProfile() {
+        return this.profile;
+    }
+
+    /**
+     * How RecordWriter writes the command's records, text unless given
+     */
+    OutputFormat getFormat() {
+        return this.format;
+    }
+
+    /**
+     * Load every command before running the one given, if any, so that a JVM
+     * dumping the classes it loaded (see bin/launch.sh) archives all of them
+     */
+    boolean isTrainCds() {
+        return this.trainCds;
+    }
+}
@@ -0,0 +1,17 @@
+package org.dsikkema.jamphony.jamphony.completion;
+
+import java.util.List;
+
+/**
+ * Implemented by commands that can suggest values for their arguments and
+ * options, e.g. names that have to be looked up. Only CompletionServer asks
+ * for them, the generated scripts themselves know nothing about values.
+ */
+public interface CompletingCommand {
+
+    /**
+     * Values for the argument or option with the given name that start with
+     * the prefix
+     */
+    public List<String> completeValue(String entryName, String prefix);
+}
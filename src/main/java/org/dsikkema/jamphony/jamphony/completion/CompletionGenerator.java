@@ -0,0 +1,492 @@
+package org.dsikkema.jamphony.jamphony.completion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandRegistry;
+import org.dsikkema.jamphony.jamphony.GlobalOptions;
+import org.dsikkema.jamphony.jamphony.io.ArgumentDefinition;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.EntryDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.OptionDefinition;
+import org.dsikkema.jamphony.jamphony.io.Type;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Writes tab completion scripts for bash, zsh and fish, so that pressing tab
+ * never has to start a JVM. Every command is created once, when the script
+ * is generated, and everything its input definition says goes into the
+ * script: command names, flags, options, and the type of each argument and
+ * option. String values complete to file names, numbers get no completion
+ * (zsh shows their type).
+ *
+ * Values can come from a running CompletionServer instead: when the
+ * environment variable named by getPortVariable() holds its port, the
+ * scripts ask it first. Without it, completion is entirely static.
+ *
+ * The application decides how the script is installed, typically by
+ * exposing generate() through a command of its own:
+ *
+ * source <(app completion bash)
+ */
+@Singleton
+public class CompletionGenerator {
+
+    private final CommandRegistry commandRegistry;
+
+    @Inject
+    public CompletionGenerator(CommandRegistry commandRegistry) {
+        this.commandRegistry = commandRegistry;
+    }
+
+    /**
+     * The completion script for the program, which is the name the
+     * application is started by
+     */
+    public String generate(Shell shell, String program) {
+        List<CommandCompletion> commands = this.getCommands();
+        switch (shell) {
+            case BASH:
+                return new BashScript(program, commands).toString();
+            case ZSH:
+                return new ZshScript(program, commands).toString();
+            case FISH:
+                return new FishScript(program, commands).toString();
+            default:
+                throw new RuntimeException("Shell '" + shell.getName() + "' is not supported");
+        }
+    }
+
+    /**
+     * The environment variable that makes the scripts of the program ask a
+     * CompletionServer for values, e.g. APP_COMPLETION_PORT
+     */
+    public static String getPortVariable(String program) {
+        return identifier(program).toUpperCase(Locale.ROOT) + "_COMPLETION_PORT";
+    }
+
+    private List<CommandCompletion> getCommands() {
+        List<CommandCompletion> commands = new ArrayList<>();
+        for (String name : this.commandRegistry.getCommandIndex().getNames()) {
+            CommandInputDefinition inputDefinition = null;
+            try {
+                CommandInterface command = this.commandRegistry.getCommandInstance(name);
+                inputDefinition = this.commandRegistry.getInputDefinition(command);
+            } catch (InputException | RuntimeException e) {
+                // a command that cannot be created here still completes by name
+            }
+            commands.add(new CommandCompletion(name, inputDefinition));
+        }
+        return commands;
+    }
+
+    private static String identifier(String program) {
+        return program.replaceAll("[^A-Za-z0-9]", "_");
+    }
+
+    /**
+     * What the scripts need to know about one command
+     */
+    private static class CommandCompletion {
+        private final String name;
+        private final List<EntryDefinition> arguments = new ArrayList<>();
+        private final List<EntryDefinition> options = new ArrayList<>();
+        private final List<String> flags = new ArrayList<>();
+        private final EntryDefinition streamingArgument;
+
+        private CommandCompletion(String name, CommandInputDefinition inputDefinition) {
+            this.name = name;
+            if (inputDefinition == null) {
+                this.streamingArgument = null;
+                return;
+            }
+            for (int slot = 0; slot < inputDefinition.getSlotCount(); slot++) {
+                EntryDefinition definition = inputDefinition.getDefinitionBySlot(slot);
+                if (definition instanceof ArgumentDefinition) {
+                    this.arguments.add(definition);
+                } else if (definition instanceof OptionDefinition) {
+                    this.options.add(definition);
+                }
+            }
+            this.arguments.sort(Comparator.comparingInt(argument -> ((ArgumentDefinition)argument).getIndex()));
+            this.options.sort(Comparator.comparing(EntryDefinition::getName));
+            for (int i = 0; i < inputDefinition.getFlagCount(); i++) {
+                this.flags.add(inputDefinition.getFlagName(i));
+            }
+            Collections.sort(this.flags);
+            String streamingName = inputDefinition.getStreamingArgumentName();
+            this.streamingArgument = streamingName != null ? new EntryDefinition(streamingName, Type.STRING) : null;
+        }
+    }
+
+    /**
+     * The three scripts work the same way: the words before the cursor give
+     * the command and the number of arguments so far, and then the current
+     * word is completed as a global option, command name, flag or option
+     * name, or as the value of an option or argument.
+     */
+    private abstract static class Script {
+        protected final String program;
+        protected final String function;
+        protected final String portVariable;
+        protected final List<CommandCompletion> commands;
+        private final StringBuilder script = new StringBuilder();
+
+        private Script(String program, List<CommandCompletion> commands) {
+            this.program = program;
+            this.function = "_" + identifier(program) + "_complete";
+            this.portVariable = getPortVariable(program);
+            this.commands = commands;
+        }
+
+        protected void line(String line) {
+            this.script.append(line).append('\n');
+        }
+
+        protected String quote(String value) {
+            return "'" + value.replace("'", "'\\''") + "'";
+        }
+
+        protected String quoteAll(List<String> values) {
+            StringBuilder quoted = new StringBuilder();
+            for (String value : values) {
+                quoted.append(quoted.length() > 0 ? " " : "").append(this.quote(value));
+            }
+            return quoted.toString();
+        }
+
+        protected List<String> commandNames() {
+            List<String> names = new ArrayList<>();
+            for (CommandCompletion command : this.commands) {
+                names.add(command.name);
+            }
+            return names;
+        }
+
+        protected List<String> optionWords(CommandCompletion command) {
+            List<String> words = new ArrayList<>();
+            for (EntryDefinition option : command.options) {
+                words.add("--" + option.getName() + "=");
+            }
+            return words;
+        }
+
+        protected List<String> flagWords(CommandCompletion command) {
+            List<String> words = new ArrayList<>();
+            for (String flag : command.flags) {
+                words.add("--" + flag);
+            }
+            return words;
+        }
+
+        @Override
+        public String toString() {
+            return this.script.toString();
+        }
+    }
+
+    private static class BashScript extends Script {
+
+        private BashScript(String program, List<CommandCompletion> commands) {
+            super(program, commands);
+            List<String> words = new ArrayList<>();
+            words.addAll(GlobalOptions.getNames());
+            words.addAll(this.commandNames());
+
+            this.line("# bash completion for " + program + ", generated by jamphony");
+            this.line("");
+            this.line(this.function + "_values() {");
+            this.line("    local fd value");
+            this.line("    { exec {fd}<>\"/dev/tcp/127.0.0.1/$" + this.portVariable + "\"; } 2>/dev/null || return 1");
+            this.line("    printf '%s\\t%s\\t%s\\n' \"$1\" \"$2\" \"$4\" >&$fd");
+            this.line("    while IFS= read -r -t 2 value <&$fd; do");
+            this.line("        COMPREPLY+=(\"$3$value\")");
+            this.line("    done");
+            this.line("    exec {fd}>&-");
+            this.line("}");
+            this.line("");
+            this.line(this.function + "() {");
+            this.line("    local line=${COMP_LINE:0:COMP_POINT} words cur command='' position=0 i");
+            this.line("    local candidates='' name='' type='' prefix=''");
+            this.line("    read -ra words <<< \"$line\"");
+            this.line("    [[ $line == *[[:space:]] ]] && words+=('')");
+            this.line("    cur=${words[${#words[@]}-1]}");
+            this.line("    for ((i = 1; i < ${#words[@]} - 1; i++)); do");
+            this.line("        if [[ -z $command ]]; then");
+            this.line("            [[ ${words[i]} == --* ]] || command=${words[i]}");
+            this.line("        elif [[ ${words[i]} != --* ]]; then");
+            this.line("            position=$((position + 1))");
+            this.line("        fi");
+            this.line("    done");
+            this.line("    [[ $cur == --*=* ]] && prefix=${cur%%=*}=");
+            this.line("");
+            this.line("    if [[ -z $command ]]; then");
+            this.line("        candidates=" + this.quote(String.join(" ", words)));
+            this.line("    else");
+            this.line("        case $command in");
+            for (CommandCompletion command : commands) {
+                this.command(command);
+            }
+            this.line("        esac");
+            this.line("    fi");
+            this.line("");
+            this.line("    COMPREPLY=()");
+            this.line("    if [[ -n $name ]]; then");
+            this.line("        [[ -n ${" + this.portVariable + ":-} ]] && " + this.function + "_values \"$command\" \"$name\" \"$prefix\" \"${cur#\"$prefix\"}\"");
+            this.line("        if [[ ${#COMPREPLY[@]} -eq 0 && $type == String ]]; then");
+            this.line("            compopt -o default 2>/dev/null");
+            this.line("            return 0");
+            this.line("        fi");
+            this.line("    else");
+            this.line("        COMPREPLY=($(compgen -W \"$candidates\" -- \"$cur\"))");
+            this.line("    fi");
+            this.line("    # bash only replaces what comes after the last = or : of the word");
+            this.line("    local breaks=${cur%\"${cur##*[=:]}\"}");
+            this.line("    COMPREPLY=(\"${COMPREPLY[@]#\"$breaks\"}\")");
+            this.line("    [[ ${#COMPREPLY[@]} -eq 1 && ${COMPREPLY[0]} == *= ]] && compopt -o nospace 2>/dev/null");
+            this.line("    return 0");
+            this.line("}");
+            this.line("");
+            this.line("complete -F " + this.function + " " + this.quote(program));
+        }
+
+        private void command(CommandCompletion command) {
+            List<String> words = this.flagWords(command);
+            words.addAll(this.optionWords(command));
+
+            this.line("            " + this.quote(command.name) + ")");
+            this.line("                if [[ -n $prefix ]]; then");
+            this.line("                    case $prefix in");
+            for (EntryDefinition option : command.options) {
+                this.line("                        " + this.quote("--" + option.getName() + "=") + ") " + this.value(option) + " ;;");
+            }
+            this.line("                    esac");
+            this.line("                elif [[ $cur == --* ]]; then");
+            this.line("                    candidates=" + this.quote(String.join(" ", words)));
+            this.line("                else");
+            this.line("                    case $position in");
+            for (int i = 0; i < command.arguments.size(); i++) {
+                this.line("                        " + i + ") " + this.value(command.arguments.get(i)) + " ;;");
+            }
+            if (command.streamingArgument != null) {
+                this.line("                        *) " + this.value(command.streamingArgument) + " ;;");
+            }
+            this.line("                    esac");
+            this.line("                fi");
+            this.line("                ;;");
+        }
+
+        private String value(EntryDefinition definition) {
+            return "name=" + this.quote(definition.getName()) + " type=" + definition.getType().getName();
+        }
+    }
+
+    private static class ZshScript extends Script {
+
+        private ZshScript(String program, List<CommandCompletion> commands) {
+            super(program, commands);
+            List<String> globalOptions = GlobalOptions.getNames();
+
+            this.line("#compdef " + program);
+            this.line("# zsh completion for " + program + ", generated by jamphony");
+            this.line("");
+            this.line(this.function + "_values() {");
+            this.line("    local fd value");
+            this.line("    zmodload zsh/net/tcp 2>/dev/null && ztcp 127.0.0.1 $" + this.portVariable + " 2>/dev/null || return 1");
+            this.line("    fd=$REPLY");
+            this.line("    print -r -u $fd -- \"$1\"$'\\t'\"$2\"$'\\t'\"$3\"");
+            this.line("    while IFS= read -r -t 2 -u $fd value; do");
+            this.line("        reply+=(\"$value\")");
+            this.line("    done");
+            this.line("    ztcp -c $fd");
+            this.line("}");
+            this.line("");
+            this.line(this.function + "() {");
+            this.line("    local cur=${words[CURRENT]} command='' position=0 word name='' type=''");
+            this.line("    local -a reply");
+            this.line("    for word in ${words[2,CURRENT-1]}; do");
+            this.line("        if [[ -z $command ]]; then");
+            this.line("            [[ $word == --* ]] || command=$word");
+            this.line("        elif [[ $word != --* ]]; then");
+            this.line("            position=$((position + 1))");
+            this.line("        fi");
+            this.line("    done");
+            this.line("");
+            this.line("    if [[ -z $command ]]; then");
+            this.line("        compadd -- " + this.quoteAll(globalOptions));
+            this.line("        compadd -- " + this.quoteAll(this.commandNames()));
+            this.line("        return 0");
+            this.line("    fi");
+            this.line("");
+            this.line("    case $command in");
+            for (CommandCompletion command : commands) {
+                this.command(command);
+            }
+            this.line("    esac");
+            this.line("");
+            this.line("    [[ -n $name ]] || return 1");
+            this.line("    if [[ -n ${" + this.portVariable + ":-} ]] && " + this.function + "_values \"$command\" \"$name\" \"$PREFIX\" && (( ${#reply} )); then");
+            this.line("        compadd -- \"${reply[@]}\"");
+            this.line("    elif [[ $type == String ]]; then");
+            this.line("        _files");
+            this.line("    else");
+            this.line("        _message \"$name: $type\"");
+            this.line("    fi");
+            this.line("}");
+            this.line("");
+            this.line("compdef " + this.function + " " + this.quote(program));
+        }
+
+        private void command(CommandCompletion command) {
+            this.line("        (" + this.quote(command.name) + ")");
+            this.line("            if [[ $cur == --*=* ]]; then");
+            this.line("                case ${cur%%=*} in");
+            for (EntryDefinition option : command.options) {
+                this.line("                    (" + this.quote("--" + option.getName()) + ") " + this.value(option) + " ;;");
+            }
+            this.line("                esac");
+            this.line("                compset -P '*='");
+            this.line("            elif [[ $cur == --* ]]; then");
+            if (!command.flags.isEmpty()) {
+                this.line("                compadd -- " + this.quoteAll(this.flagWords(command)));
+            }
+            if (!command.options.isEmpty()) {
+                this.line("                compadd -S '' -- " + this.quoteAll(this.optionWords(command)));
+            }
+            this.line("                return 0");
+            this.line("            else");
+            this.line("                case $position in");
+            for (int i = 0; i < command.arguments.size(); i++) {
+                this.line("                    (" + i + ") " + this.value(command.arguments.get(i)) + " ;;");
+            }
+            if (command.streamingArgument != null) {
+                this.line("                    (*) " + this.value(command.streamingArgument) + " ;;");
+            }
+            this.line("                esac");
+            this.line("            fi");
+            this.line("            ;;");
+        }
+
+        private String value(EntryDefinition definition) {
+            return "name=" + this.quote(definition.getName()) + " type=" + definition.getType().getName();
+        }
+    }
+
+    private static class FishScript extends Script {
+
+        private FishScript(String program, List<CommandCompletion> commands) {
+            super(program, commands);
+            List<String> globalOptions = GlobalOptions.getNames();
+
+            this.line("# fish completion for " + program + ", generated by jamphony");
+            this.line("");
+            this.line("function " + this.function);
+            this.line("    set -l tokens (commandline -opc)");
+            this.line("    set -l cur (commandline -ct)");
+            this.line("    set -l command ''");
+            this.line("    set -l position 0");
+            this.line("    for token in $tokens[2..-1]");
+            this.line("        if test -z \"$command\"");
+            this.line("            string match -q -- '--*' $token; or set command $token");
+            this.line("        else if not string match -q -- '--*' $token");
+            this.line("            set position (math $position + 1)");
+            this.line("        end");
+            this.line("    end");
+            this.line("");
+            this.line("    if test -z \"$command\"");
+            this.line("        printf '%s\\n' " + this.quoteAll(globalOptions));
+            this.line("        printf '%s\\tcommand\\n' " + this.quoteAll(this.commandNames()));
+            this.line("        return");
+            this.line("    end");
+            this.line("");
+            this.line("    set -l name ''");
+            this.line("    set -l type ''");
+            this.line("    set -l prefix ''");
+            this.line("    string match -q -- '--*=*' $cur; and set prefix (string replace -r '=.*' '=' -- $cur)");
+            this.line("    switch $command");
+            for (CommandCompletion command : commands) {
+                this.command(command);
+            }
+            this.line("    end");
+            this.line("");
+            this.line("    test -n \"$name\"; or return");
+            this.line("    set -l value (string sub -s (math (string length -- \"$prefix\") + 1) -- $cur)");
+            this.line("    if set -q " + this.portVariable + "; and command -q nc");
+            this.line("        set -l values (printf '%s\\t%s\\t%s\\n' $command $name \"$value\" | nc 127.0.0.1 $" + this.portVariable + " 2>/dev/null)");
+            this.line("        if test (count $values) -gt 0");
+            this.line("            for value in $values");
+            this.line("                echo $prefix$value");
+            this.line("            end");
+            this.line("            return");
+            this.line("        end");
+            this.line("    end");
+            this.line("    if test \"$type\" = String");
+            this.line("        __fish_complete_path \"$value\" | string replace -r '^' -- \"$prefix\"");
+            this.line("    end");
+            this.line("end");
+            this.line("");
+            this.line("complete -c " + this.quote(program) + " -f -a '(" + this.function + ")'");
+        }
+
+        @Override
+        protected String quote(String value) {
+            return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+        }
+
+        private void command(CommandCompletion command) {
+            this.line("        case " + this.quote(command.name));
+            this.line("            if test -n \"$prefix\"");
+            this.line("                switch $prefix");
+            for (EntryDefinition option : command.options) {
+                this.line("                    case " + this.quote("--" + option.getName() + "="));
+                this.line("                        " + this.value(option));
+            }
+            this.line("                end");
+            this.line("            else if string match -q -- '--*' $cur");
+            if (!command.flags.isEmpty() || !command.options.isEmpty()) {
+                this.line("                printf '%s\\t%s\\n' " + this.described(command));
+            }
+            this.line("                return");
+            this.line("            else");
+            this.line("                switch $position");
+            for (int i = 0; i < command.arguments.size(); i++) {
+                this.line("                    case " + i);
+                this.line("                        " + this.value(command.arguments.get(i)));
+            }
+            if (command.streamingArgument != null) {
+                this.line("                    case '*'");
+                this.line("                        " + this.value(command.streamingArgument));
+            }
+            this.line("                end");
+            this.line("            end");
+        }
+
+        /**
+         * Flags and options with their description, which for options is the
+         * type of their value
+         */
+        private String described(CommandCompletion command) {
+            List<String> words = new ArrayList<>();
+            for (String flag : this.flagWords(command)) {
+                words.add(flag);
+                words.add("flag");
+            }
+            for (EntryDefinition option : command.options) {
+                words.add("--" + option.getName() + "=");
+                words.add(option.getType().getName());
+            }
+            return this.quoteAll(words);
+        }
+
+        private String value(EntryDefinition definition) {
+            return "set name " + this.quote(definition.getName()) + "; set type " + definition.getType().getName();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.dsikkema.jamphony.jamphony.completion;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandRegistry;
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Answers the generated completion scripts' questions about values, for
+ * commands that implement CompletingCommand. Meant to run next to
+ * BatchRunner.serve() in a long-running process, so that completing a value
+ * costs a round trip on the loopback interface instead of a JVM start.
+ *
+ * One question per connection: the client sends one line holding the
+ * command name, the name of the argument or option and what has been typed
+ * of the value so far, separated by tabs. The server answers with one value
+ * per line and closes the connection. Anything it cannot answer gets no
+ * values, so the script falls back to its static completion.
+ */
+@Singleton
+public class CompletionServer {
+
+    private static final int MAX_VALUES = 200;
+
+    private final CommandRegistry commandRegistry;
+    private final Stdout stdout;
+
+    @Inject
+    public CompletionServer(
+            CommandRegistry commandRegistry,
+            Stdout stdout
+    ) {
+        this.commandRegistry = commandRegistry;
+        this.stdout = stdout;
+    }
+
+    /**
+     * Listens on the loopback interface only, until the thread is interrupted
+     * or the server socket is closed
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            this.serve(serverSocket);
+        }
+    }
+
+    public void serve(ServerSocket serverSocket) throws IOException {
+        while (!serverSocket.isClosed() && !Thread.currentThread().isInterrupted()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+
+            try {
+                this.serveClient(client);
+            } catch (IOException e) {
+                this.stdout.writeLnErr("Completion client disconnected: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Values for the argument or option of the command, at most MAX_VALUES
+     * of them. The command name can be abbreviated, like on the command line.
+     */
+    public List<String> complete(String commandName, String entryName, String prefix) {
+        CommandInterface command;
+        try {
+            command = this.commandRegistry.getCommandInstance(commandName);
+        } catch (InputException | RuntimeException e) {
+            return Collections.emptyList();
+        }
+        if (!(command instanceof CompletingCommand)) {
+            return Collections.emptyList();
+        }
+
+        List<String> values = new ArrayList<>();
+        for (String value : ((CompletingCommand)command).completeValue(entryName, prefix)) {
+            if (value.startsWith(prefix) && value.indexOf('\n') < 0) {
+                values.add(value);
+                if (values.size() == MAX_VALUES) {
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    private void serveClient(Socket client) throws IOException {
+        try (
+            Socket socket = client;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))
+        ) {
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+            String[] question = line.split("\t", 3);
+            if (question.length < 2) {
+                return;
+            }
+            String prefix = question.length == 3 ? question[2] : "";
+            for (String value : this.complete(question[0], question[1], prefix)) {
+                writer.write(value);
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.dsikkema.jamphony.jamphony.completion;
+
+/**
+ * The shells CompletionGenerator writes completion scripts for
+ */
+public enum Shell {
+    BASH("bash"),
+    ZSH("zsh"),
+    FISH("fish");
+
+    private final String name;
+
+    private Shell(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Null if there is no shell by that name
+     */
+    public static Shell fromName(String name) {
+        for (Shell shell : values()) {
+            if (shell.name.equals(name)) {
+                return shell;
+            }
+        }
+        return null;
+    }
+}
@@ -1,12 +1,14 @@
 package org.dsikkema.jamphony.jamphony.io;
 
 public class ArgumentDefinition  extends EntryDefinition {
-    private String name;
-    private int index;
-    private Type type;
+    private final int index;
 
     public ArgumentDefinition(String name, int index, Type type) {
-        super(name, type);
+        this(name, index, type, -1, -1);
+    }
+
+    public ArgumentDefinition(String name, int index, Type type, int slot, int column) {
+        super(name, type, slot, column);
     	this.index = index;
     }
     
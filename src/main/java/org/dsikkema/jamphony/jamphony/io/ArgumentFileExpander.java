@@ -0,0 +1,110 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces "@path" entries with the entries in the file at path, so that
+ * commands can be given more input than fits on a command line. Only for
+ * commands that turn this on, see CommandInputDefinition.setArgumentFiles.
+ *
+ * The file is UTF-8 and split the same way as a command string (see
+ * CommandLineTokenizer), line breaks count as whitespace. It is tokenized
+ * straight from its bytes, without decoding it into a String first, from
+ * MAP_THRESHOLD on: those files are memory-mapped. Smaller ones are read
+ * and decoded in one go, which is faster while they are small. Entries from a
+ * file are not expanded again, and "@@x" stands for the entry "@x".
+ *
+ * In commands with a streaming argument, "@path" entries after the regular
+ * arguments belong to the streaming argument and are left alone.
+ */
+public class ArgumentFileExpander {
+
+    /**
+     * Also used for the files of streaming arguments, see ArgumentStream
+     */
+    static final long MAP_THRESHOLD = 1024 * 1024;
+
+    private final CommandLineTokenizer tokenizer;
+    private final long mapThreshold;
+
+    public ArgumentFileExpander(CommandLineTokenizer tokenizer) {
+        this(tokenizer, MAP_THRESHOLD);
+    }
+
+    ArgumentFileExpander(CommandLineTokenizer tokenizer, long mapThreshold) {
+        this.tokenizer = tokenizer;
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * Returns the given array itself when no entry needs expanding
+     */
+    public String[] expand(String[] entries, CommandInputDefinition inputDefinition) throws InputException {
+        int first = 1;
+        while (first < entries.length && !entries[first].startsWith("@")) {
+            first++;
+        }
+        if (first == entries.length || !inputDefinition.isArgumentFiles()) {
+            return entries;
+        }
+
+        int streamingFrom = inputDefinition.hasStreamingArgument() ? inputDefinition.getArgumentCount() + 1 : Integer.MAX_VALUE;
+        List<String> expanded = new ArrayList<>(entries.length + 16);
+        for (int i = 0; i < first; i++) {
+            expanded.add(entries[i]);
+        }
+        for (int i = first; i < entries.length; i++) {
+            String entry = entries[i];
+            if (!entry.startsWith("@") || expanded.size() >= streamingFrom) {
+                expanded.add(entry);
+            } else if (entry.startsWith("@@")) {
+                expanded.add(entry.substring(1));
+            } else {
+                this.read(Paths.get(entry.substring(1)), expanded);
+            }
+        }
+        return expanded.toArray(new String[expanded.size()]);
+    }
+
+    private void read(Path path, List<String> entries) throws InputException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new InputException("Argument file '" + path + "' is larger than 2 GB");
+            }
+            if (size < this.mapThreshold) {
+                ByteBuffer buffer = ByteBuffer.allocate((int)size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+                String input = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+                this.tokenize(path, input, (chars, start, end) -> entries.add(chars.subSequence(start, end).toString()));
+                return;
+            }
+            MappedCharSequence input = new MappedCharSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            this.tokenize(path, input, (chars, start, end) -> entries.add(
+                chars == input ? input.decode(start, end) : MappedCharSequence.decodeBytes(chars, start, end)
+            ));
+        } catch (IOException e) {
+            throw new InputException("Could not read argument file '" + path + "'", e);
+        }
+    }
+
+    /**
+     * Errors in the file's content say which file it is
+     */
+    private void tokenize(Path path, CharSequence input, CommandLineTokenizer.TokenHandler handler) throws InputException {
+        try {
+            this.tokenizer.tokenize(input, handler);
+        } catch (InputException e) {
+            throw new InputException("Argument file '" + path + "': " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The values of a streaming argument, read one at a time while the command
+ * iterates, so that it can process any number of them in constant memory.
+ *
+ * Each source given on the command line is one of:
+ *  - a plain value, which is itself the next value
+ *  - "-", every line of standard input
+ *  - "@path", every line of the file at path, memory-mapped from
+ *    ArgumentFileExpander.MAP_THRESHOLD on like argument files
+ *  - "@@value", the plain value "@value"
+ *
+ * Empty lines are skipped. Files are read as UTF-8, standard input in the
+ * platform encoding. Sources are only opened when the iteration gets to
+ * them, and closed when it moves past them or the stream is closed.
+ *
+ * Can be iterated once.
+ */
+public class ArgumentStream implements Iterator<String>, Closeable {
+
+    private final Iterator<String> sources;
+    private final Stdin stdin;
+
+    private LineSource current;
+    private String next;
+
+    ArgumentStream(List<String> sources, Stdin stdin) {
+        this.sources = sources.iterator();
+        this.stdin = stdin;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next != null) {
+            return true;
+        }
+        try {
+            this.next = this.advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String value = this.next;
+        this.next = null;
+        return value;
+    }
+
+    /**
+     * The same values as a sequential stream; closing it closes this
+     */
+    public Stream<String> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.closeCurrent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String advance() throws IOException {
+        while (true) {
+            if (this.current != null) {
+                String line = this.current.readLine();
+                if (line == null) {
+                    this.closeCurrent();
+                } else if (!line.isEmpty()) {
+                    return line;
+                }
+                continue;
+            }
+            if (!this.sources.hasNext()) {
+                return null;
+            }
+
+            String source = this.sources.next();
+            if (source.equals("-")) {
+                this.current = new ReaderLineSource(this.stdin.getReader(), false);
+            } else if (source.startsWith("@@")) {
+                return source.substring(1);
+            } else if (source.startsWith("@")) {
+                this.current = open(Paths.get(source.substring(1)));
+            } else {
+                return source;
+            }
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        if (this.current != null) {
+            LineSource closing = this.current;
+            this.current = null;
+            closing.close();
+        }
+    }
+
+    private static LineSource open(Path path) throws IOException {
+        if (Files.size(path) >= ArgumentFileExpander.MAP_THRESHOLD) {
+            MappedLineReader reader = new MappedLineReader(path);
+            return new LineSource() {
+                @Override
+                public String readLine() throws IOException {
+                    return reader.readLine();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    reader.close();
+                }
+            };
+        }
+        return new ReaderLineSource(Files.newBufferedReader(path, StandardCharsets.UTF_8), true);
+    }
+
+    private interface LineSource extends Closeable {
+        String readLine() throws IOException;
+    }
+
+    /**
+     * Standard input is not closed when the stream is done with it, it is
+     * not the stream's to close
+     */
+    private static class ReaderLineSource implements LineSource {
+        private final BufferedReader reader;
+        private final boolean owned;
+
+        private ReaderLineSource(BufferedReader reader, boolean owned) {
+            this.reader = reader;
+            this.owned = owned;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            return this.reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.owned) {
+                this.reader.close();
+            }
+        }
+    }
+}
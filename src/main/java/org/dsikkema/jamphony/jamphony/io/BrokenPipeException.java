@@ -0,0 +1,14 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+/**
+ * Thrown to a command writing into a LinePipe whose reader has gone, or
+ * waiting on a pipe of a pipeline that was cancelled. Like SIGPIPE in a
+ * shell, it ends the command, and CommandRunner.runPipeline counts that as
+ * the command having finished normally.
+ */
+public class BrokenPipeException extends RuntimeException {
+
+	public BrokenPipeException(String message) {
+		super(message);
+	}
+}
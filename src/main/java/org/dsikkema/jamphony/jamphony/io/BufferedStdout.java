@@ -0,0 +1,153 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Stdout that collects standard output in a large buffer instead of
+ * printing and flushing line by line, for commands that write a lot of it.
+ *
+ * The buffer is passed on when it is full, when a line is written and the
+ * last flush is longer ago than the flush interval, and whenever flush() is
+ * called, which CommandRunner does at the end of every command. Standard
+ * error is not buffered, but pending standard output is written before it
+ * so the two stay in order on a terminal.
+ *
+ * Applications get it by installing BufferedStdoutModule.
+ */
+@Singleton
+public class BufferedStdout extends Stdout {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final OutputStream sink;
+    private final WritableByteChannel sinkChannel;
+    private final Writer out;
+    private final PrintStream err;
+    private final int bufferSize;
+    private final long flushIntervalNanos;
+    private final String lineSeparator = System.lineSeparator();
+
+    private int pending = 0;
+    private long lastFlush = System.nanoTime();
+    private volatile boolean buffered = true;
+
+    @Inject
+    public BufferedStdout() {
+        this(System.out, System.err, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * The buffer size is in characters
+     */
+    public BufferedStdout(OutputStream out, PrintStream err, int bufferSize, long flushIntervalMillis) {
+        this.sink = out;
+        this.sinkChannel = channelOf(out);
+        this.out = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), bufferSize);
+        this.err = err;
+        this.bufferSize = bufferSize;
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000L;
+    }
+
+    @Override
+    protected synchronized void writeOut(String line) {
+        try {
+            this.out.write(line);
+            this.out.write(this.lineSeparator);
+            this.pending += line.length() + this.lineSeparator.length();
+            if (!this.buffered || this.pending >= this.bufferSize || this.isUnbufferedForThread() || System.nanoTime() - this.lastFlush >= this.flushIntervalNanos) {
+                this.flushOut();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected synchronized void writeErr(String line) {
+        this.flushOutUnchecked();
+        this.err.println(line);
+    }
+
+    /**
+     * Bytes are not buffered, they go out right after what is pending
+     */
+    @Override
+    protected synchronized void writeOutBytes(ByteBuffer bytes) {
+        try {
+            this.flushOut();
+            writeFully(this.sinkChannel, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected synchronized void transferOut(FileChannel file, long position, long count) throws IOException {
+        this.flushOut();
+        transfer(file, position, count, this.sinkChannel);
+    }
+
+    @Override
+    public synchronized void flush() {
+        this.flushOutUnchecked();
+        this.err.flush();
+    }
+
+    @Override
+    protected synchronized void replayOut(CapturedOutput capturedOutput) {
+        this.flushOutUnchecked();
+        capturedOutput.writeTo(this.sink, this.err);
+    }
+
+    @Override
+    public synchronized void setBuffered(boolean buffered) {
+        this.buffered = buffered;
+        if (!buffered) {
+            this.flushOutUnchecked();
+        }
+    }
+
+    @Override
+    public boolean isBuffered() {
+        return this.buffered;
+    }
+
+    /**
+     * Output still pending from before goes out first
+     */
+    @Override
+    public synchronized void setUnbufferedForThread(boolean unbuffered) {
+        super.setUnbufferedForThread(unbuffered);
+        if (unbuffered) {
+            this.flushOutUnchecked();
+        }
+    }
+
+    private void flushOut() throws IOException {
+        this.out.flush();
+        this.pending = 0;
+        this.lastFlush = System.nanoTime();
+    }
+
+    private void flushOutUnchecked() {
+        try {
+            this.flushOut();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * Install next to the application's own module to have every command write
+ * through BufferedStdout, without changing the commands
+ */
+public class BufferedStdoutModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        bind(Stdout.class).to(BufferedStdout.class);
+    }
+}
@@ -0,0 +1,127 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * What one thread wrote to Stdout between Stdout.beginCapture() and
+ * Stdout.endCapture(), kept as bytes per stream in the platform encoding,
+ * the same System.out would have written
+ */
+public class CapturedOutput {
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+	private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+	/**
+	 * The capture that was going on when this one began, which endCapture
+	 * goes back to
+	 */
+	private final CapturedOutput enclosing;
+
+	/**
+	 * Empty output
+	 */
+	public CapturedOutput() {
+		this((CapturedOutput)null);
+	}
+
+	/**
+	 * Output captured earlier and kept elsewhere, e.g. in a cache
+	 */
+	public CapturedOutput(byte[] out, byte[] err) {
+		this();
+		this.out.write(out, 0, out.length);
+		this.err.write(err, 0, err.length);
+	}
+
+	CapturedOutput(CapturedOutput enclosing) {
+		this.enclosing = enclosing;
+	}
+
+	CapturedOutput getEnclosing() {
+		return this.enclosing;
+	}
+
+	/**
+	 * Adds what the other capture holds, for replaying it into this one
+	 */
+	void append(CapturedOutput other) {
+		try {
+			other.out.writeTo(this.out);
+			other.err.writeTo(this.err);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	void writeLnOut(String line) {
+		writeLn(this.out, line);
+	}
+
+	void writeLnErr(String line) {
+		writeLn(this.err, line);
+	}
+
+	void write(ByteBuffer bytes) {
+		if (bytes.hasArray()) {
+			this.out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			bytes.position(bytes.limit());
+			return;
+		}
+		byte[] chunk = new byte[Math.min(bytes.remaining(), 8192)];
+		while (bytes.hasRemaining()) {
+			int length = Math.min(chunk.length, bytes.remaining());
+			bytes.get(chunk, 0, length);
+			this.out.write(chunk, 0, length);
+		}
+	}
+
+	OutputStream getOutStream() {
+		return this.out;
+	}
+
+	public byte[] getOut() {
+		return this.out.toByteArray();
+	}
+
+	public byte[] getErr() {
+		return this.err.toByteArray();
+	}
+
+	public String getOutString() {
+		return new String(this.out.toByteArray(), Charset.defaultCharset());
+	}
+
+	public String getErrString() {
+		return new String(this.err.toByteArray(), Charset.defaultCharset());
+	}
+
+	/**
+	 * Writes everything captured to the given streams in one go each, so
+	 * that it is not interleaved with other output
+	 */
+	public void writeTo(OutputStream outStream, OutputStream errStream) {
+		try {
+			synchronized (outStream) {
+				this.out.writeTo(outStream);
+				outStream.flush();
+			}
+			synchronized (errStream) {
+				this.err.writeTo(errStream);
+				errStream.flush();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeLn(ByteArrayOutputStream stream, String line) {
+		byte[] bytes = (line + System.lineSeparator()).getBytes(Charset.defaultCharset());
+		stream.write(bytes, 0, bytes.length);
+	}
+}
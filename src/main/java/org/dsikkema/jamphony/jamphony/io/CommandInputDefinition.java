@@ -1,61 +1,319 @@
 package org.dsikkema.jamphony.jamphony.io;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Represents the input required by the command, not actual input data itself
+ *
+ * Every argument and option is given a slot when it is added: slots are
+ * handed out in the order entries are added, starting at 0, so a command
+ * that always defines its input the same way always gets the same slots.
+ * InputData offers index-based getters for them next to the name-based ones.
+ *
+ * Commands fill it in through the add* methods. After that it can be frozen,
+ * which turns it into a read-only, array-backed form that is cheap to look
+ * things up in and safe to reuse for every run of the command. A frozen
+ * definition can be shared between threads as it is, however it is handed
+ * over, see Frozen.
+ *
+ * Flags are numbered in the order they are added, like slots, so InputData
+ * can keep the flags it was given in an array.
  */
 public class CommandInputDefinition {
     private final List< ArgumentDefinition> arguments = new ArrayList<>();
 	private final Map<String, OptionDefinition> options = new HashMap<>();
     private final List<String> flags = new ArrayList<>();
+    private final Map<String, ArgumentDefinition> argumentsByName = new HashMap<>();
+    private final List<EntryDefinition> slots = new ArrayList<>();
+    private final int[] columnCounts = new int[Type.values().length];
 
     private int argumentCount = 0;
-    
+    private boolean lazyConversion = false;
+    private boolean argumentFiles = false;
+    private String streamingArgumentName = null;
+
+    /**
+     * Null until frozen, every getter goes through it from then on
+     */
+    private volatile Frozen frozen = null;
+
 	public int getArgumentCount() {
-		return argumentCount;
+		Frozen frozen = this.frozen;
+		return frozen != null ? frozen.arguments.length : this.argumentCount;
 	}
-	
+
 	public ArgumentDefinition getArgumentDefinitionByIndex(int index) throws InputException {
-		if (index >= this.argumentCount || index < 0) {
-			throw new InputException("Argument at index " + index + " does not exist");
+		if (index >= this.getArgumentCount() || index < 0) {
+			throw new InputValidationException(ValidationError.undefinedArgument(index));
+		}
+		Frozen frozen = this.frozen;
+		if (frozen != null) {
+			return frozen.arguments[index];
 		}
 		return this.arguments.get(index);
 	}
-	
+
 	public OptionDefinition getOptionDefinitionByName(String optionName) throws InputException {
-		if (!this.options.containsKey(optionName)) {
-			throw new InputException("Option '" + optionName + "' is not defined");
+		OptionDefinition definition = this.findOptionDefinition(optionName);
+		if (definition == null) {
+			throw new InputValidationException(ValidationError.undefinedOption(optionName, ValidationError.NO_POSITION));
+		}
+
+		return definition;
+	}
+
+	/**
+	 * Unlike the getters above, these return null for undefined entries
+	 */
+	public ArgumentDefinition findArgumentDefinition(String argumentName) {
+		Frozen frozen = this.frozen;
+		if (frozen != null) {
+			int position = Arrays.binarySearch(frozen.argumentNames, argumentName);
+			return position >= 0 ? frozen.argumentsByName[position] : null;
+		}
+		return this.argumentsByName.get(argumentName);
+	}
+
+	public OptionDefinition findOptionDefinition(String optionName) {
+		Frozen frozen = this.frozen;
+		if (frozen != null) {
+			int position = Arrays.binarySearch(frozen.optionNames, optionName);
+			return position >= 0 ? frozen.options[position] : null;
 		}
-		
 		return this.options.get(optionName);
 	}
-	
+
+	public EntryDefinition getDefinitionBySlot(int slot) {
+		Frozen frozen = this.frozen;
+		if (frozen != null) {
+			return frozen.slots[slot];
+		}
+		return this.slots.get(slot);
+	}
+
+	/**
+	 * The definitions by slot, for InputData to keep. The frozen array itself
+	 * once frozen, so it must not be modified.
+	 */
+	EntryDefinition[] getSlotDefinitions() {
+		Frozen frozen = this.frozen;
+		return frozen != null ? frozen.slots : this.slots.toArray(new EntryDefinition[this.slots.size()]);
+	}
+
+	public int getSlotCount() {
+		Frozen frozen = this.frozen;
+		return frozen != null ? frozen.slots.length : this.slots.size();
+	}
+
+	/**
+	 * Number of arguments and options of the given type, which is how big
+	 * InputData's column for that type needs to be
+	 */
+	public int getColumnCount(Type type) {
+		Frozen frozen = this.frozen;
+		return (frozen != null ? frozen.columnCounts : this.columnCounts)[type.ordinal()];
+	}
+
 	public boolean isFlagDefined(String name) {
-		return this.flags.contains(name);
+		return this.findFlagIndex(name) >= 0;
 	}
-	
+
 	/**
-     * Called by commands to define their input
-     */
-    public void addArgument(String argumentName, Type type) {
-        this.arguments.add(new ArgumentDefinition(argumentName, this.argumentCount, type));
+	 * The number of the flag, in the order flags were added, or -1 if it is
+	 * not defined
+	 */
+	public int findFlagIndex(String name) {
+		Frozen frozen = this.frozen;
+		if (frozen != null) {
+			int position = Arrays.binarySearch(frozen.sortedFlagNames, name);
+			return position >= 0 ? frozen.sortedFlagIndexes[position] : -1;
+		}
+		return this.flags.indexOf(name);
+	}
+
+	public int getFlagCount() {
+		Frozen frozen = this.frozen;
+		return frozen != null ? frozen.flagNames.length : this.flags.size();
+	}
+
+	public String getFlagName(int index) {
+		Frozen frozen = this.frozen;
+		return frozen != null ? frozen.flagNames[index] : this.flags.get(index);
+	}
+
+	/**
+	 * Called by commands to define their input. Return the slot of the new entry.
+	 * A name can only be used once per kind of entry.
+	 */
+    public int addArgument(String argumentName, Type type) {
+    	this.assertNotFrozen();
+    	if (this.argumentsByName.containsKey(argumentName)) {
+    		throw new IllegalStateException("Argument '" + argumentName + "' is already defined");
+    	}
+    	ArgumentDefinition definition = new ArgumentDefinition(argumentName, this.argumentCount, type, this.slots.size(), this.nextColumn(type));
+        this.arguments.add(definition);
+        this.argumentsByName.put(argumentName, definition);
+        this.slots.add(definition);
         this.argumentCount++;
+        return definition.getSlot();
     }
-    
-    public void addOption(String optionName, Type type) {
-        this.options.put(optionName, new OptionDefinition(optionName, type));
+
+    public int addOption(String optionName, Type type) {
+    	this.assertNotFrozen();
+    	if (this.options.containsKey(optionName)) {
+    		throw new IllegalStateException("Option '" + optionName + "' is already defined");
+    	}
+    	OptionDefinition definition = new OptionDefinition(optionName, type, this.slots.size(), this.nextColumn(type));
+        this.options.put(optionName, definition);
+        this.slots.add(definition);
+        return definition.getSlot();
     }
-    
+
     public void addFlag(String flagName) {
+    	this.assertNotFrozen();
         this.flags.add(flagName);
     }
-}
 
+    /**
+     * Defines a string argument that takes any number of values after the
+     * regular arguments. The values are not stored, the command reads them one
+     * by one through InputData.getStreamingArgument(), and besides plain values
+     * they can come from standard input ("-") or files ("@path"), see
+     * ArgumentStream. Gets no slot, a command has at most one of these.
+     */
+    public void addStreamingArgument(String argumentName) {
+    	this.assertNotFrozen();
+    	if (this.streamingArgumentName != null) {
+    		throw new IllegalStateException("Streaming argument '" + this.streamingArgumentName + "' is already defined");
+    	}
+    	this.streamingArgumentName = argumentName;
+    }
+
+    /**
+     * Null if the command has no streaming argument
+     */
+    public String getStreamingArgumentName() {
+    	Frozen frozen = this.frozen;
+    	return frozen != null ? frozen.streamingArgumentName : this.streamingArgumentName;
+    }
+
+    public boolean hasStreamingArgument() {
+    	return this.getStreamingArgumentName() != null;
+    }
 
+    /**
+     * With lazy conversion, InputData only checks that given entries are
+     * defined, and converts each value the first time the command reads it.
+     * Worth it for commands with many options that they mostly pass through
+     * without reading. Such commands can call InputData.validateAll() to get
+     * eager strictness back.
+     */
+    public void setLazyConversion(boolean lazyConversion) {
+    	this.assertNotFrozen();
+    	this.lazyConversion = lazyConversion;
+    }
 
+    public boolean isLazyConversion() {
+    	Frozen frozen = this.frozen;
+    	return frozen != null ? frozen.lazyConversion : this.lazyConversion;
+    }
 
+    /**
+     * With argument files, "@path" entries on the command line are replaced
+     * by the entries in that file, see ArgumentFileExpander. Off by default,
+     * so that values that start with "@" reach the command as they are.
+     */
+    public void setArgumentFiles(boolean argumentFiles) {
+    	this.assertNotFrozen();
+    	this.argumentFiles = argumentFiles;
+    }
+
+    public boolean isArgumentFiles() {
+    	Frozen frozen = this.frozen;
+    	return frozen != null ? frozen.argumentFiles : this.argumentFiles;
+    }
 
+    /**
+     * Builds the array-backed lookup structures and makes the definition
+     * read-only from then on. Calling it more than once is harmless.
+     */
+    public synchronized CommandInputDefinition freeze() {
+    	if (this.frozen == null) {
+    		this.frozen = new Frozen(this);
+    	}
+    	return this;
+    }
+
+    public boolean isFrozen() {
+    	return this.frozen != null;
+    }
+
+    private int nextColumn(Type type) {
+    	return this.columnCounts[type.ordinal()]++;
+    }
+
+    private void assertNotFrozen() {
+    	if (this.frozen != null) {
+    		throw new IllegalStateException("Input definition is frozen and can no longer be changed");
+    	}
+    }
+
+    /**
+     * The frozen form. Names are sorted so that lookups are a binary search,
+     * with the definitions of arguments and options in the same order as
+     * their names and sortedFlagIndexes holding the number of each flag.
+     * All fields are final, so it is safely published however it is passed
+     * on, and definitions themselves are immutable too.
+     */
+    private static final class Frozen {
+    	private final ArgumentDefinition[] arguments;
+    	private final String[] argumentNames;
+    	private final ArgumentDefinition[] argumentsByName;
+    	private final String[] optionNames;
+    	private final OptionDefinition[] options;
+    	private final String[] flagNames;
+    	private final String[] sortedFlagNames;
+    	private final int[] sortedFlagIndexes;
+    	private final EntryDefinition[] slots;
+    	private final int[] columnCounts;
+    	private final boolean lazyConversion;
+    	private final boolean argumentFiles;
+    	private final String streamingArgumentName;
+
+    	private Frozen(CommandInputDefinition definition) {
+    		this.arguments = definition.arguments.toArray(new ArgumentDefinition[definition.arguments.size()]);
+
+    		this.argumentNames = definition.argumentsByName.keySet().toArray(new String[definition.argumentsByName.size()]);
+    		Arrays.sort(this.argumentNames);
+    		this.argumentsByName = new ArgumentDefinition[this.argumentNames.length];
+    		for (int i = 0; i < this.argumentNames.length; i++) {
+    			this.argumentsByName[i] = definition.argumentsByName.get(this.argumentNames[i]);
+    		}
+
+    		this.optionNames = definition.options.keySet().toArray(new String[definition.options.size()]);
+    		Arrays.sort(this.optionNames);
+    		this.options = new OptionDefinition[this.optionNames.length];
+    		for (int i = 0; i < this.optionNames.length; i++) {
+    			this.options[i] = definition.options.get(this.optionNames[i]);
+    		}
+
+    		this.flagNames = definition.flags.toArray(new String[definition.flags.size()]);
+    		this.sortedFlagNames = this.flagNames.clone();
+    		Arrays.sort(this.sortedFlagNames);
+    		this.sortedFlagIndexes = new int[this.flagNames.length];
+    		for (int i = 0; i < this.sortedFlagNames.length; i++) {
+    			this.sortedFlagIndexes[i] = definition.flags.indexOf(this.sortedFlagNames[i]);
+    		}
+
+    		this.slots = definition.slots.toArray(new EntryDefinition[definition.slots.size()]);
+    		this.columnCounts = definition.columnCounts.clone();
+    		this.lazyConversion = definition.lazyConversion;
+    		this.argumentFiles = definition.argumentFiles;
+    		this.streamingArgumentName = definition.streamingArgumentName;
+    	}
+    }
+}
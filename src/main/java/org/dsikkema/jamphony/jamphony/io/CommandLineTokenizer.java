@@ -0,0 +1,148 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a command string into entries in a single pass, the way a POSIX
+ * shell would:
+ *
+ * - unquoted whitespace separates entries
+ * - a backslash escapes a following whitespace, quote or backslash
+ * - everything between single quotes is taken literally
+ * - between double quotes, only \" and \\ are escapes
+ *
+ * Quoted and unquoted parts next to each other form one entry, so
+ * --name="some value" gives the entry --name=some value.
+ *
+ * A backslash in front of any other character is kept as it is, so that
+ * things like Windows paths survive unquoted.
+ */
+public class CommandLineTokenizer {
+
+	/**
+	 * Receives each entry as a range of a character buffer instead of a
+	 * String. For entries without quotes or escapes the buffer is the input
+	 * itself, so nothing is copied unless the handler decides to. Otherwise
+	 * it is a scratch buffer that is only valid until the handler returns.
+	 */
+	public interface TokenHandler {
+		void token(CharSequence buffer, int start, int end) throws InputException;
+	}
+
+	public String[] tokenize(CharSequence input) throws InputException {
+		List<String> tokens = new ArrayList<>();
+		this.tokenize(input, (buffer, start, end) -> tokens.add(buffer.subSequence(start, end).toString()));
+		return tokens.toArray(new String[tokens.size()]);
+	}
+
+	public void tokenize(CharSequence input, TokenHandler handler) throws InputException {
+		int length = input.length();
+		StringBuilder scratch = null;
+		boolean inToken = false;
+		boolean copying = false;
+		int start = 0;
+		int i = 0;
+
+		while (i < length) {
+			char c = input.charAt(i);
+
+			if (isWhitespace(c)) {
+				if (inToken) {
+					this.emit(handler, input, start, i, copying ? scratch : null);
+					inToken = false;
+				}
+				i++;
+				continue;
+			}
+
+			if (!inToken) {
+				inToken = true;
+				copying = false;
+				start = i;
+			}
+
+			if (c == '\\' && i + 1 < length && isEscapable(input.charAt(i + 1))) {
+				if (!copying) {
+					scratch = startCopy(scratch, input, start, i);
+					copying = true;
+				}
+				scratch.append(input.charAt(i + 1));
+				i += 2;
+			} else if (c == '\'' || c == '"') {
+				if (!copying) {
+					scratch = startCopy(scratch, input, start, i);
+					copying = true;
+				}
+				i = c == '\'' ? this.readSingleQuoted(input, i + 1, scratch) : this.readDoubleQuoted(input, i + 1, scratch);
+			} else {
+				if (copying) {
+					scratch.append(c);
+				}
+				i++;
+			}
+		}
+
+		if (inToken) {
+			this.emit(handler, input, start, length, copying ? scratch : null);
+		}
+	}
+
+	/**
+	 * Both read methods return the index right after the closing quote
+	 */
+	private int readSingleQuoted(CharSequence input, int from, StringBuilder scratch) throws InputException {
+		for (int i = from; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == '\'') {
+				return i + 1;
+			}
+			scratch.append(c);
+		}
+		throw new InputException("Unterminated quote in command string");
+	}
+
+	private int readDoubleQuoted(CharSequence input, int from, StringBuilder scratch) throws InputException {
+		int length = input.length();
+		for (int i = from; i < length; i++) {
+			char c = input.charAt(i);
+			if (c == '"') {
+				return i + 1;
+			}
+			if (c == '\\' && i + 1 < length && (input.charAt(i + 1) == '"' || input.charAt(i + 1) == '\\')) {
+				i++;
+				c = input.charAt(i);
+			}
+			scratch.append(c);
+		}
+		throw new InputException("Unterminated quote in command string");
+	}
+
+	private void emit(TokenHandler handler, CharSequence input, int start, int end, StringBuilder scratch) throws InputException {
+		if (scratch == null) {
+			handler.token(input, start, end);
+		} else {
+			handler.token(scratch, 0, scratch.length());
+		}
+	}
+
+	private static StringBuilder startCopy(StringBuilder scratch, CharSequence input, int start, int end) {
+		if (scratch == null) {
+			scratch = new StringBuilder(Math.max(16, (end - start) * 2));
+		}
+		scratch.setLength(0);
+		scratch.append(input, start, end);
+		return scratch;
+	}
+
+	/**
+	 * Same set of characters as \s in java.util.regex
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+	}
+
+	private static boolean isEscapable(char c) {
+		return isWhitespace(c) || c == '\\' || c == '\'' || c == '"';
+	}
+}
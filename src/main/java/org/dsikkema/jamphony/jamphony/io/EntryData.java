@@ -3,58 +3,71 @@ package org.dsikkema.jamphony.jamphony.io;
 /**
  * "Entry" means an argument, option, or flag. This serves as a generic way to hold entries and their values, and
  * encapsulate retrieving them by type
+ *
+ * Numeric values are parsed exactly once, when the entry is created, and kept unboxed in the field for their type.
  */
 public class EntryData {
-	
+
 	private final EntryDefinition definition;
-	private final Object val;
+	private final String stringValue;
+	private final int intValue;
+	private final long longValue;
+	private final double doubleValue;
 
 	public EntryData(EntryDefinition definition, String val) throws InputException {
-		switch (definition.getType()) { 
-			case INT:
-				if (!this.isInt(val)) {
-					throw new InputException(String.format(
-		    			"Entry '%s' with value '%s' does not match expected type '%s'",
-		    			definition.getName(),
-		    			val,
-		    			definition.getType().getName()
-					));
-				}
-				this.val = Integer.valueOf(val);
-				break;
-			case STRING:
-				this.val = val;
-				break;
-				
-			default:
-				throw new RuntimeException("Unhandled argument type"); // just to make this compile. Should never be hit
+		int[] intValue = new int[1];
+		long[] longValue = new long[1];
+		double[] doubleValue = new double[1];
+		ValidationError error = NumberParser.convert(definition, val, ValidationError.NO_POSITION, 0, intValue, longValue, doubleValue);
+		if (error != null) {
+			throw new InputValidationException(error);
 		}
-		
+
 		this.definition = definition;
+		this.stringValue = val;
+		this.intValue = intValue[0];
+		this.longValue = longValue[0];
+		this.doubleValue = doubleValue[0];
+	}
+
+	/**
+	 * For values that have already been validated and converted, e.g. by InputData
+	 */
+	EntryData(EntryDefinition definition, String stringValue, int intValue, long longValue, double doubleValue) {
+		this.definition = definition;
+		this.stringValue = stringValue;
+		this.intValue = intValue;
+		this.longValue = longValue;
+		this.doubleValue = doubleValue;
 	}
-	
-	public String getStringValue() {
-		if (this.definition.getType() != Type.STRING) {
-			throw new RuntimeException("Argument '" + definition.getName() + "' is not of type " + Type.STRING.getName());
-		}
 
-		return (String)this.val;
+	public EntryDefinition getDefinition() {
+		return this.definition;
+	}
+
+	public String getStringValue() {
+		this.assertType(Type.STRING);
+		return this.stringValue;
 	}
-	
+
 	public int getIntValue() {
-		if (this.definition.getType() != Type.INT) {
-			throw new RuntimeException("Argument '" + definition.getName() + "' is not of type " + Type.INT.getName());
-		}
+		this.assertType(Type.INT);
+		return this.intValue;
+	}
+
+	public long getLongValue() {
+		this.assertType(Type.LONG);
+		return this.longValue;
+	}
 
-		return (int)this.val;
-	}
-	
-    private boolean isInt(String in) {
-        try {
-            Integer.parseInt(in);
-        } catch (NumberFormatException e) {
-            return false;
-        }
-        return true;
-    }
+	public double getDoubleValue() {
+		this.assertType(Type.DOUBLE);
+		return this.doubleValue;
+	}
+
+	private void assertType(Type type) {
+		if (this.definition.getType() != type) {
+			throw new RuntimeException("Argument '" + definition.getName() + "' is not of type " + type.getName());
+		}
+	}
 }
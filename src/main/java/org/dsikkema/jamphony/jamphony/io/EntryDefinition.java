@@ -1,12 +1,27 @@
 package org.dsikkema.jamphony.jamphony.io;
 
 public class EntryDefinition {
-    private String name;
-    private Type type;
+    private final String name;
+    private final Type type;
+
+    /**
+     * Where the entry's value lives in InputData: slot is the entry's
+     * position among all arguments and options of its input definition,
+     * column is its position among the entries of the same type. Both are -1
+     * for definitions that are not part of a CommandInputDefinition.
+     */
+    private final int slot;
+    private final int column;
 
     public EntryDefinition(String name, Type type) {
+        this(name, type, -1, -1);
+    }
+
+    public EntryDefinition(String name, Type type, int slot, int column) {
         this.name = name;
         this.type = type;
+        this.slot = slot;
+        this.column = column;
     }
     
     public String getName() {
@@ -16,4 +31,12 @@ public class EntryDefinition {
     public Type getType() {
         return type;
     }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getColumn() {
+        return column;
+    }
 }
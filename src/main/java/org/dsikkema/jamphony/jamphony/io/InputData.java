@@ -1,111 +1,283 @@
 package org.dsikkema.jamphony.jamphony.io;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.dsikkema.jamphony.jamphony.io.ValidationError.Code;
+
+import com.google.inject.Inject;
+
 /**
  * Represents the values the user provided as console arguments, serves
  * as source of data for commands.
  * 
- * Object is immutable, and can only be created with builder.
+ * Object is immutable, and can only be created with builder. All state is
+ * in final fields set by the constructor, so it can be handed to other
+ * threads without copying. The exceptions are lazy conversion, which
+ * converts under a lock, and the streaming argument, which is read by one
+ * consumer.
+ *
+ * Values are stored by the slots and columns their input definition assigned
+ * (see CommandInputDefinition): the raw value of each argument and option in
+ * an array indexed by slot, and converted numbers unboxed in one primitive
+ * array per type. getInt(slot) and friends read those arrays directly, the
+ * name-based getters look up the slot first.
+ *
+ * If the input definition asks for lazy conversion, values are only checked
+ * against their definition when given, and converted on first access.
+ *
+ * Values of a streaming argument are only recorded as where to read them
+ * from, and read when the command iterates over getStreamingArgument().
+ * Closing the input data closes whatever that iteration still has open,
+ * CommandRunner does so after the command has run.
  */
-public class InputData {
+public class InputData implements AutoCloseable {
     
-    private final Map<String, EntryData> argumentValues = new HashMap<>();
-    private final Map<String, EntryData> optionValues = new HashMap<>();
-    private final Set<String> flagsProvided = new HashSet<>();
+    private final EntryDefinition[] slotDefinitions;
+    private final String[] rawValues;
+    private final int[] intValues;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    
+    /**
+     * Only used in lazy mode (see CommandInputDefinition.setLazyConversion),
+     * where it records which slots have been converted so far
+     */
+    private final boolean[] converted;
+    /**
+     * By flag number, see CommandInputDefinition.findFlagIndex
+     */
+    private final boolean[] flagsProvided;
+    
+    /**
+     * Null if the command has no streaming argument
+     */
+    private final List<String> streamingSources;
+    private final Stdin stdin;
+    private ArgumentStream streamingArgument;
+    
+    /**
+     * EntryData handed out by slot, created on first request. Not guarded:
+     * EntryData is immutable with final fields, so a thread that misses
+     * another thread's entry only creates an equal one.
+     */
+    private EntryData[] entryData;
     
-    private String commandName = "";
+    private final String commandName;
 
-	private CommandInputDefinition inputDefinition;
+	private final CommandInputDefinition inputDefinition;
     
     private InputData(
 		CommandInputDefinition inputDefinition,
-		String[] args
+		String[] args,
+		Stdin stdin
 	) throws InputException {
     	this.inputDefinition = inputDefinition;
+    	this.stdin = stdin;
+    	this.streamingSources = inputDefinition.hasStreamingArgument() ? new ArrayList<>() : null;
+    	this.slotDefinitions = inputDefinition.getSlotDefinitions();
+    	this.rawValues = new String[this.slotDefinitions.length];
+    	this.intValues = new int[inputDefinition.getColumnCount(Type.INT)];
+    	this.longValues = new long[inputDefinition.getColumnCount(Type.LONG)];
+    	this.doubleValues = new double[inputDefinition.getColumnCount(Type.DOUBLE)];
+    	this.converted = inputDefinition.isLazyConversion() ? new boolean[this.slotDefinitions.length] : null;
+    	this.flagsProvided = new boolean[inputDefinition.getFlagCount()];
+    	this.commandName = args.length > 0 ? args[0] : "";
     	this.initialize(args);
     }
 
     /**
      * An "entry" is either an argument, option, or flag. For option, it means the whole key-value pair
+     *
+     * Parsing goes on after an invalid entry, so that every error in the input
+     * is reported at once.
      */
     private void initialize(String[] entries) throws InputException {
     	if (entries.length == 0) {
-    		throw new InputException("Command name not given");
+    		throw new InputValidationException(new ValidationError(
+    			Code.COMMAND_NAME_MISSING, null, ValidationError.NO_POSITION, "Command name not given"
+    		));
     	}
         
         // process command name, options, args, and flags
+        List<ValidationError> errors = null;
+        ValidationError error;
         int equalSignIndex;
         String entry;
+        String name;
         int index = 1;
-        this.commandName = entries[0];
+        int argumentCount = this.inputDefinition.getArgumentCount();
         
-        for ( ; index < this.inputDefinition.getArgumentCount() + 1 && index < entries.length; index++) {
-        	entry = entries[index];
-            if (!this.isArgument(entry)) {
-            	throw new InputException("Too few arguments given");
-            }
-            this.addArgument(index - 1, entry);
+        for ( ; index < argumentCount + 1 && index < entries.length && this.isArgument(entries[index]); index++) {
+        	error = this.store(this.inputDefinition.getArgumentDefinitionByIndex(index - 1), entries[index], index);
+        	errors = collect(errors, error);
         }
         
-        if (index != this.inputDefinition.getArgumentCount() + 1) {
+        if (index != argumentCount + 1) {
         	// means that there are fewer entries than there are arguments required
-        	throw new InputException("Too few arguments given");
-        } else if (index < entries.length && this.isArgument(entries[index])) {
-        	throw new InputException("Too many arguments given");
+        	errors = collect(errors, new ValidationError(Code.TOO_FEW_ARGUMENTS, null, index, "Too few arguments given"));
+        } else if (this.streamingSources == null && index < entries.length && this.isArgument(entries[index])) {
+        	errors = collect(errors, new ValidationError(Code.TOO_MANY_ARGUMENTS, entries[index], index, "Too many arguments given"));
+        	while (index < entries.length && this.isArgument(entries[index])) {
+        		index++;
+        	}
         }
         
-        
         for ( ; index < entries.length; index++) {
         	entry = entries[index];
         	if (this.isOption(entry)) {
-                // Add option
                 equalSignIndex = entry.indexOf("=");
-                this.addOption(
-                    entry.substring(2, equalSignIndex), // option name
-                    entry.substring(equalSignIndex + 1) // option value
-                );
+                name = entry.substring(2, equalSignIndex);
+                OptionDefinition definition = this.inputDefinition.findOptionDefinition(name);
+                if (definition == null) {
+                	error = ValidationError.undefinedOption(name, index);
+                } else {
+                	error = this.store(definition, entry.substring(equalSignIndex + 1), index);
+                }
             } else if (this.isFlag(entry)) {
-                // Add flag
-                this.addFlag(entry.substring(2));
+                name = entry.substring(2);
+                error = this.provideFlag(name, index);
+            } else if (this.streamingSources != null && (this.isArgument(entry) || entry.equals("-"))) {
+            	error = this.addStreamingSource(entry, index);
+            } else if (this.isArgument(entry)) {
+            	error = new ValidationError(Code.MISPLACED_ARGUMENT, entry, index, "Argument '" + entry + "' is not given at the beginning of the input");
             } else {
-            	// must be an argument
-            	throw new InputException("Argument '" + entry + "' is not given at the beginning of the input");
+            	error = new ValidationError(Code.UNRECOGNIZED_ENTRY, entry, index, "Entry '" + entry + "' is not an argument, option or flag");
             }
+            errors = collect(errors, error);
+        }
+        
+        if (errors != null) {
+        	throw new InputValidationException(errors);
         }
     }
     
-    public void addArgument(int index, String value) throws InputException {
-    	ArgumentDefinition definition = this.inputDefinition.getArgumentDefinitionByIndex(index);
-    	this.argumentValues.put(definition.getName(), new EntryData(definition, value));
+    private static List<ValidationError> collect(List<ValidationError> errors, ValidationError error) {
+    	if (error == null) {
+    		return errors;
+    	}
+    	if (errors == null) {
+    		errors = new ArrayList<>(2);
+    	}
+    	errors.add(error);
+    	return errors;
     }
     
-    public void addOption(String name, String value) throws InputException {
-    	OptionDefinition definition = this.inputDefinition.getOptionDefinitionByName(name);
-    	this.optionValues.put(name, new EntryData(definition, value));
+    /**
+     * Files are only checked for being readable here, they are opened when the
+     * command gets to them
+     */
+    private ValidationError addStreamingSource(String source, int position) {
+    	if (source.startsWith("@") && !source.startsWith("@@") && !Files.isReadable(Paths.get(source.substring(1)))) {
+    		return new ValidationError(Code.UNREADABLE_FILE, source, position, "File '" + source.substring(1) + "' does not exist or is not readable");
+    	}
+    	this.streamingSources.add(source);
+    	return null;
     }
     
-    public void addFlag(String name) throws InputException {
-    	if (this.inputDefinition.isFlagDefined(name)) {
-    		this.flagsProvided.add(name);
-    	} else {
-    		throw new InputException("Flag '" + name + "' is not defined");
+    /**
+     * Eagerly, the value is validated and converted right away, and the raw
+     * value is only recorded once it is known to be valid. In lazy mode only
+     * the raw value is recorded, see ensureConverted.
+     */
+    private ValidationError store(EntryDefinition definition, String value, int position) {
+    	if (this.converted == null) {
+    		ValidationError error = this.convert(definition, value, position);
+    		if (error != null) {
+    			return error;
+    		}
     	}
+    	this.rawValues[definition.getSlot()] = value;
+    	return null;
+    }
+    
+    /**
+     * Validates the value and writes it into the column of its type
+     */
+    private ValidationError convert(EntryDefinition definition, String value, int position) {
+    	return NumberParser.convert(definition, value, position, definition.getColumn(), this.intValues, this.longValues, this.doubleValues);
+    }
+    
+    /**
+     * Converts every provided value that has not been converted yet, so that
+     * commands using lazy conversion can still reject all invalid input up
+     * front. Does nothing in eager mode, where this already happened.
+     */
+    public void validateAll() throws InputException {
+    	if (this.converted == null) {
+    		return;
+    	}
+    	List<ValidationError> errors = null;
+    	synchronized (this.converted) {
+    		for (int slot = 0; slot < this.rawValues.length; slot++) {
+    			errors = collect(errors, this.convertIfNeeded(slot));
+    		}
+    	}
+    	if (errors != null) {
+    		throw new InputValidationException(errors);
+    	}
+    }
+    
+    /**
+     * In lazy mode, converts the value in the slot the first time it is
+     * asked for. Getters cannot throw InputException, so an invalid value
+     * surfaces as UncheckedInputException, which CommandRunner reports like
+     * any other input error.
+     *
+     * Converting happens under a lock, which every reader takes too, so that
+     * a value converted by one thread is seen by the others.
+     */
+    private void ensureConverted(int slot) {
+    	if (this.converted == null) {
+    		return;
+    	}
+    	ValidationError error;
+    	synchronized (this.converted) {
+    		error = this.convertIfNeeded(slot);
+    	}
+    	if (error != null) {
+    		throw new UncheckedInputException(new InputValidationException(error));
+    	}
+    }
+    
+    /**
+     * Only called with the lock on converted held
+     */
+    private ValidationError convertIfNeeded(int slot) {
+    	if (this.converted[slot] || this.rawValues[slot] == null) {
+    		return null;
+    	}
+    	ValidationError error = this.convert(this.slotDefinitions[slot], this.rawValues[slot], ValidationError.NO_POSITION);
+    	if (error == null) {
+    		this.converted[slot] = true;
+    	}
+    	return error;
+    }
+    
+    private ValidationError provideFlag(String name, int position) {
+    	int index = this.inputDefinition.findFlagIndex(name);
+    	if (index < 0) {
+    		return ValidationError.undefinedFlag(name, position);
+    	}
+    	this.flagsProvided[index] = true;
+    	return null;
     }
     
     private boolean isOption(String entry) {
-        return entry.substring(0, 2).equals("--")
+        return entry.startsWith("--")
                 && entry.indexOf("=") > 2; // equal sign must be present and option name must not be empty
     }
     
     
     private boolean isFlag(String entry) {
-        return entry.substring(0, 2).equals("--")
+        return entry.startsWith("--")
                 && !entry.contains("=")
                 && entry.length() > 2; // don't allow "--" flag
     }
@@ -124,47 +296,209 @@ public class InputData {
         return commandName;
     }
 
+    /**
+     * The values of the command's streaming argument, read lazily. Every call
+     * returns the same stream, which can be iterated once.
+     */
+    public synchronized ArgumentStream getStreamingArgument() {
+    	if (this.streamingSources == null) {
+    		throw new RuntimeException("Command '" + this.commandName + "' has no streaming argument");
+    	}
+    	if (this.streamingArgument == null) {
+    		this.streamingArgument = new ArgumentStream(this.streamingSources, this.stdin);
+    	}
+    	return this.streamingArgument;
+    }
+
+    @Override
+    public synchronized void close() {
+    	if (this.streamingArgument != null) {
+    		this.streamingArgument.close();
+    	}
+    }
+
     /**
      * TODO: remove these three methods because the unnecessarily expose internals.
      * They're needed to do state-based unit testing, but we should use reflection
      * in the test to expose the variables
+     *
+     * The maps are built on every call, as values are not stored by name, and
+     * cannot be modified.
      */
     public Map<String, EntryData> getArguments() {
-        return argumentValues;
+        return this.collectEntryData(ArgumentDefinition.class);
     }
 
     public Map<String, EntryData> getOptions() {
-        return optionValues;
+        return this.collectEntryData(OptionDefinition.class);
     }
     
     public Set<String> getFlags() {
-        return flagsProvided;
+        Set<String> flags = new HashSet<>();
+        for (int index = 0; index < this.flagsProvided.length; index++) {
+            if (this.flagsProvided[index]) {
+                flags.add(this.inputDefinition.getFlagName(index));
+            }
+        }
+        return Collections.unmodifiableSet(flags);
+    }
+    
+    /**
+     * The input as one string that only depends on what was given, not on
+     * how: every argument and option given, in slot order, then the flags
+     * given, in the order they were defined. Numbers are written as
+     * converted, so "--limit=010" and "--limit=10" give the same string,
+     * except with lazy conversion, which is left alone. Values are
+     * length-prefixed, so no value can pass for another entry.
+     */
+    public String toCanonicalString() {
+    	StringBuilder canonical = new StringBuilder();
+    	boolean converted = !this.inputDefinition.isLazyConversion();
+    	for (int slot = 0; slot < this.rawValues.length; slot++) {
+    		if (this.rawValues[slot] == null) {
+    			continue;
+    		}
+    		EntryDefinition definition = this.slotDefinitions[slot];
+    		String value = this.rawValues[slot];
+    		if (converted && definition.getType() == Type.INT) {
+    			value = Integer.toString(this.intValues[definition.getColumn()]);
+    		} else if (converted && definition.getType() == Type.LONG) {
+    			value = Long.toString(this.longValues[definition.getColumn()]);
+    		} else if (converted && definition.getType() == Type.DOUBLE) {
+    			value = Double.toString(this.doubleValues[definition.getColumn()]);
+    		}
+    		canonical.append(definition.getName()).append('=').append(value.length()).append(':').append(value).append('\n');
+    	}
+    	for (int index = 0; index < this.flagsProvided.length; index++) {
+    		if (this.flagsProvided[index]) {
+    			canonical.append("--").append(this.inputDefinition.getFlagName(index)).append('\n');
+    		}
+    	}
+    	return canonical.toString();
     }
     
     /**
      * Data getters
      */
     public EntryData getOption(String optionName) {
-        return this.optionValues.get(optionName);
+        return this.getEntryData(this.inputDefinition.findOptionDefinition(optionName));
     }
     
     public boolean isOptionProvided(String optionName) {
-        return this.optionValues.containsKey(optionName);
+    	OptionDefinition definition = this.inputDefinition.findOptionDefinition(optionName);
+        return definition != null && this.rawValues[definition.getSlot()] != null;
     }
     
     public boolean isFlagSet(String flagName) {
-        return this.flagsProvided.contains(flagName);
+        int index = this.inputDefinition.findFlagIndex(flagName);
+        return index >= 0 && this.flagsProvided[index];
     }
     
     public EntryData getArgument(String name) {
-    	return this.argumentValues.get(name);
+    	return this.getEntryData(this.inputDefinition.findArgumentDefinition(name));
+    }
+    
+    /**
+     * Index-based getters, taking the slot the input definition returned when
+     * the entry was added. Asking for a slot that was not provided, or with a
+     * getter of the wrong type, is a programming error.
+     */
+    public boolean isProvided(int slot) {
+    	return this.rawValues[slot] != null;
+    }
+    
+    public int getInt(int slot) {
+    	EntryDefinition definition = this.getProvidedDefinition(slot, Type.INT);
+    	this.ensureConverted(slot);
+    	return this.intValues[definition.getColumn()];
+    }
+    
+    public long getLong(int slot) {
+    	EntryDefinition definition = this.getProvidedDefinition(slot, Type.LONG);
+    	this.ensureConverted(slot);
+    	return this.longValues[definition.getColumn()];
+    }
+    
+    public double getDouble(int slot) {
+    	EntryDefinition definition = this.getProvidedDefinition(slot, Type.DOUBLE);
+    	this.ensureConverted(slot);
+    	return this.doubleValues[definition.getColumn()];
+    }
+    
+    public String getString(int slot) {
+    	this.getProvidedDefinition(slot, Type.STRING);
+    	return this.rawValues[slot];
+    }
+    
+    private EntryDefinition getProvidedDefinition(int slot, Type type) {
+    	EntryDefinition definition = this.slotDefinitions[slot];
+    	if (definition.getType() != type) {
+    		throw new RuntimeException("Argument '" + definition.getName() + "' is not of type " + type.getName());
+    	}
+    	if (this.rawValues[slot] == null) {
+    		throw new RuntimeException("Argument '" + definition.getName() + "' was not provided");
+    	}
+    	return definition;
+    }
+    
+    private Map<String, EntryData> collectEntryData(Class<? extends EntryDefinition> definitionClass) {
+    	Map<String, EntryData> entries = new HashMap<>();
+    	for (int slot = 0; slot < this.rawValues.length; slot++) {
+    		EntryDefinition definition = this.slotDefinitions[slot];
+    		if (definitionClass.isInstance(definition) && this.rawValues[slot] != null) {
+    			entries.put(definition.getName(), this.getEntryData(definition));
+    		}
+    	}
+    	return Collections.unmodifiableMap(entries);
+    }
+    
+    private EntryData getEntryData(EntryDefinition definition) {
+    	if (definition == null || this.rawValues[definition.getSlot()] == null) {
+    		return null;
+    	}
+    	int slot = definition.getSlot();
+    	EntryData[] entries = this.entryData;
+    	if (entries == null) {
+    		entries = new EntryData[this.rawValues.length];
+    		this.entryData = entries;
+    	}
+    	EntryData entry = entries[slot];
+    	if (entry == null) {
+    		this.ensureConverted(slot);
+    		int column = definition.getColumn();
+    		Type type = definition.getType();
+    		entry = new EntryData(
+    			definition,
+    			this.rawValues[slot],
+    			type == Type.INT ? this.intValues[column] : 0,
+    			type == Type.LONG ? this.longValues[column] : 0,
+    			type == Type.DOUBLE ? this.doubleValues[column] : 0
+    		);
+    		entries[slot] = entry;
+    	}
+    	return entry;
     }
     
     public static class Factory {
     	
+    	private final Stdin stdin;
+    	
+    	public Factory() {
+    		this(new Stdin());
+    	}
+    	
+    	@Inject
+    	public Factory(Stdin stdin) {
+    		this.stdin = stdin;
+    	}
+    	
+    	public Stdin getStdin() {
+    		return this.stdin;
+    	}
+    	
     	public InputData create(CommandInputDefinition inputDefinition, String[] args) throws InputException
     	{
-    		InputData inputData = new InputData(inputDefinition, args);    		
+    		InputData inputData = new InputData(inputDefinition, args, this.stdin);    		
     		return inputData;
     	}
     }
@@ -0,0 +1,43 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when input does not match the input definition. Carries every
+ * error found, and its message is theirs, one per line.
+ *
+ * Invalid input is an expected outcome, not a bug, so no stack trace is
+ * captured: that is most of the cost of creating an exception.
+ */
+public class InputValidationException extends InputException {
+
+	private final List<ValidationError> errors;
+
+	public InputValidationException(ValidationError error) {
+		this(Collections.singletonList(error));
+	}
+
+	public InputValidationException(List<ValidationError> errors) {
+		super(joinMessages(errors), null, false, false);
+		this.errors = Collections.unmodifiableList(errors);
+	}
+
+	public List<ValidationError> getErrors() {
+		return this.errors;
+	}
+
+	private static String joinMessages(List<ValidationError> errors) {
+		if (errors.size() == 1) {
+			return errors.get(0).getMessage();
+		}
+		StringBuilder message = new StringBuilder();
+		for (ValidationError error : errors) {
+			if (message.length() > 0) {
+				message.append('\n');
+			}
+			message.append(error.getMessage());
+		}
+		return message.toString();
+	}
+}
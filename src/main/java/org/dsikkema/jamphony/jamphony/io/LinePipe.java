@@ -0,0 +1,392 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the lines one command writes to the next command in a pipeline,
+ * see CommandRunner.runPipeline. Lines are passed on as the Strings they
+ * were written as, nothing is encoded or decoded in between. Bytes written
+ * to Stdout are the exception: they are split into lines at '\n' and
+ * decoded in the platform encoding, like Stdin would have done.
+ *
+ * It is a bounded queue, so the writing command waits while it is full and
+ * cannot get ahead of the reading one by more than the capacity. Once the
+ * reading command is done, writing fails with a BrokenPipeException, so
+ * the writing command ends too instead of producing lines nobody reads.
+ *
+ * Lines go through the queue in chunks, so that a pipeline of fast commands
+ * does not spend its time handing over single lines. A chunk is handed over
+ * when it is full, or right away while the reader is waiting for lines, so
+ * a slow writer's lines still arrive as they are written.
+ *
+ * Meant for one writing and one reading thread.
+ */
+public class LinePipe {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MAX_CHUNK_SIZE = 64;
+
+    /**
+     * Marks the end of the lines, compared by identity
+     */
+    private static final List<String> END = new ArrayList<>();
+
+    private final BlockingQueue<List<String>> chunks;
+    private final int chunkSize;
+    private volatile boolean readerClosed = false;
+
+    /**
+     * The chunk being written and whether the reader waits for it, both
+     * guarded by the lock
+     */
+    private final Object lock = new Object();
+    private List<String> chunk;
+    private boolean readerWaiting = false;
+
+    /**
+     * Reading side: the chunk being read, and whether END was taken
+     */
+    private List<String> readChunk = Collections.emptyList();
+    private int readPosition = 0;
+    private boolean ended = false;
+
+    /**
+     * Reading side: the reader over the lines, created on first use
+     */
+    private PipeReader reader;
+
+    /**
+     * Writing side: bytes of a line written as bytes, up to its '\n'
+     */
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+    public LinePipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Capacity in lines, rounded to a whole number of chunks
+     */
+    public LinePipe(int capacity) {
+        this.chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, capacity / 4));
+        this.chunks = new ArrayBlockingQueue<>(Math.max(1, capacity / this.chunkSize));
+        this.chunk = new ArrayList<>(this.chunkSize);
+    }
+
+    /**
+     * Waits while the pipe is full. Throws BrokenPipeException once the
+     * reader is done.
+     */
+    public void writeLine(String line) {
+        this.flushPartialLine();
+        this.add(line);
+    }
+
+    /**
+     * Adds the bytes to the line being written, passing on every line they
+     * complete
+     */
+    public void writeBytes(ByteBuffer bytes) {
+        while (bytes.hasRemaining()) {
+            byte b = bytes.get();
+            if (b == '\n') {
+                this.add(this.decodePartialLine());
+            } else {
+                this.partialLine.write(b);
+            }
+        }
+    }
+
+    /**
+     * No more lines: the reader gets the ones written so far, then the end.
+     * Does nothing once the reader is done.
+     */
+    public void closeWriter() {
+        if (this.readerClosed) {
+            return;
+        }
+        this.flushPartialLine();
+        List<String> last;
+        synchronized (this.lock) {
+            last = this.takeChunk();
+        }
+        try {
+            if (!last.isEmpty()) {
+                this.put(last);
+            }
+            this.put(END);
+        } catch (BrokenPipeException e) {
+            // the reader went in the meantime, nothing left to tell it
+        }
+    }
+
+    /**
+     * The next line, waiting for it, or null once the writer has closed
+     */
+    public String readLine() {
+        if (this.readPosition == this.readChunk.size()) {
+            if (this.ended) {
+                return null;
+            }
+            List<String> next = this.nextChunk();
+            if (next == END) {
+                this.ended = true;
+                this.readChunk = Collections.emptyList();
+                this.readPosition = 0;
+                return null;
+            }
+            this.readChunk = next;
+            this.readPosition = 0;
+        }
+        return this.readChunk.get(this.readPosition++);
+    }
+
+    /**
+     * The reader is done, even if there are lines left. The writer no longer
+     * waits for room from then on, its next write fails instead.
+     */
+    public void closeReader() {
+        this.readerClosed = true;
+        this.chunks.clear();
+    }
+
+    /**
+     * Whether the reader got to the end of the lines, rather than stopping
+     * before the writer was done
+     */
+    public boolean isEnded() {
+        return this.ended;
+    }
+
+    /**
+     * A reader over the lines, as text with '\n' after each line. The same
+     * reader on every call, since it holds the rest of the line being read.
+     * Closing it closes the reading side of the pipe.
+     */
+    public BufferedReader getReader() {
+        if (this.reader == null) {
+            this.reader = new PipeReader();
+        }
+        return this.reader;
+    }
+
+    /**
+     * The lines as bytes in the platform encoding, for commands that read
+     * standard input as a stream
+     */
+    public InputStream newInputStream() {
+        return new PipeInputStream();
+    }
+
+    private void add(String line) {
+        if (this.readerClosed) {
+            throw new BrokenPipeException("The reading command is done");
+        }
+        List<String> full = null;
+        synchronized (this.lock) {
+            this.chunk.add(line);
+            if (this.readerWaiting || this.chunk.size() >= this.chunkSize) {
+                full = this.takeChunk();
+            }
+        }
+        if (full != null) {
+            this.put(full);
+        }
+    }
+
+    /**
+     * Called with the lock held
+     */
+    private List<String> takeChunk() {
+        List<String> taken = this.chunk;
+        this.chunk = new ArrayList<>(this.chunkSize);
+        this.readerWaiting = false;
+        return taken;
+    }
+
+    private void put(List<String> lines) {
+        try {
+            while (!this.chunks.offer(lines, 50, TimeUnit.MILLISECONDS)) {
+                // check now and then whether the reader has gone
+                if (this.readerClosed) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrokenPipeException("Interrupted while writing to pipe");
+        }
+        if (this.readerClosed) {
+            this.chunks.clear();
+            throw new BrokenPipeException("The reading command is done");
+        }
+    }
+
+    /**
+     * A chunk from the queue, or else the one being written if it has any
+     * lines. Otherwise the writer is told to hand over its next line right
+     * away, and the reader waits for it.
+     */
+    private List<String> nextChunk() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new BrokenPipeException("Interrupted while reading from pipe");
+        }
+        List<String> next = this.chunks.poll();
+        if (next != null) {
+            return next;
+        }
+        synchronized (this.lock) {
+            if (!this.chunk.isEmpty()) {
+                return this.takeChunk();
+            }
+            this.readerWaiting = true;
+        }
+        try {
+            return this.chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BrokenPipeException("Interrupted while reading from pipe");
+        }
+    }
+
+    private void flushPartialLine() {
+        if (this.partialLine.size() > 0) {
+            this.add(this.decodePartialLine());
+        }
+    }
+
+    private String decodePartialLine() {
+        byte[] bytes = this.partialLine.toByteArray();
+        this.partialLine.reset();
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, length, Charset.defaultCharset());
+    }
+
+    /**
+     * Takes lines straight from the pipe for readLine, and serves the
+     * character-based methods from the current line
+     */
+    private class PipeReader extends BufferedReader {
+        private String line = null;
+        private int position = 0;
+
+        private PipeReader() {
+            super(new StringReader(""), 1);
+        }
+
+        @Override
+        public String readLine() {
+            if (this.line != null) {
+                String rest = this.line.substring(Math.min(this.position, this.line.length()));
+                this.line = null;
+                return rest;
+            }
+            return LinePipe.this.readLine();
+        }
+
+        @Override
+        public int read() {
+            if (!this.fill()) {
+                return -1;
+            }
+            return this.position < this.line.length() ? this.line.charAt(this.position++) : this.endOfLine();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.fill()) {
+                return -1;
+            }
+            int count = Math.min(length, this.line.length() - this.position);
+            this.line.getChars(this.position, this.position + count, buffer, offset);
+            this.position += count;
+            if (count < length) {
+                buffer[offset + count++] = (char)this.endOfLine();
+            }
+            return count;
+        }
+
+        @Override
+        public boolean ready() {
+            return this.line != null || LinePipe.this.readPosition < LinePipe.this.readChunk.size() || !LinePipe.this.chunks.isEmpty();
+        }
+
+        @Override
+        public void close() {
+            LinePipe.this.closeReader();
+        }
+
+        private boolean fill() {
+            if (this.line == null) {
+                this.line = LinePipe.this.readLine();
+                this.position = 0;
+            }
+            return this.line != null;
+        }
+
+        private int endOfLine() {
+            this.line = null;
+            return '\n';
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+        private byte[] line = null;
+        private int position = 0;
+
+        @Override
+        public int read() {
+            if (!this.fill()) {
+                return -1;
+            }
+            return this.line[this.position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.fill()) {
+                return -1;
+            }
+            int count = Math.min(length, this.line.length - this.position);
+            System.arraycopy(this.line, this.position, buffer, offset, count);
+            this.position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            LinePipe.this.closeReader();
+        }
+
+        private boolean fill() {
+            if (this.line == null || this.position == this.line.length) {
+                String text = LinePipe.this.readLine();
+                if (text == null) {
+                    this.line = null;
+                    return false;
+                }
+                this.line = (text + '\n').getBytes(Charset.defaultCharset());
+                this.position = 0;
+            }
+            return true;
+        }
+    }
+}
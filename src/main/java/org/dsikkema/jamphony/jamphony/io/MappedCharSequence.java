@@ -0,0 +1,99 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bytes of a buffer seen as characters one to one, so CommandLineTokenizer
+ * can run over a mapped file without it being decoded first.
+ *
+ * That is only correct for single-byte characters, but it is enough to find
+ * where tokens begin and end in UTF-8: every byte of a multi-byte character
+ * is 0x80 or higher, so none of them is taken for whitespace, a quote or a
+ * backslash. Tokens are decoded as UTF-8 once they are cut out, see
+ * decode().
+ */
+class MappedCharSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    MappedCharSequence(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    private MappedCharSequence(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char)(this.buffer.get(this.offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new MappedCharSequence(this.buffer, this.offset + start, end - start);
+    }
+
+    /**
+     * The range as UTF-8 text. Tokens that the tokenizer had to copy (quoted
+     * or escaped) come as a builder of byte-valued chars, which is handled by
+     * decodeBytes.
+     */
+    String decode(int start, int end) {
+        if (isAscii(this, start, end)) {
+            return asciiString(this, start, end);
+        }
+        byte[] bytes = new byte[end - start];
+        ByteBuffer range = this.buffer.duplicate();
+        range.position(this.offset + start);
+        range.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String decodeBytes(CharSequence chars, int start, int end) {
+        if (isAscii(chars, start, end)) {
+            return chars.subSequence(start, end).toString();
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = (byte)chars.charAt(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * ASCII is the same in UTF-8 and as byte-valued chars, so most tokens
+     * need no decoding at all
+     */
+    private static boolean isAscii(CharSequence chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (chars.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String asciiString(CharSequence chars, int start, int end) {
+        char[] copy = new char[end - start];
+        for (int i = start; i < end; i++) {
+            copy[i - start] = chars.charAt(i);
+        }
+        return new String(copy);
+    }
+
+    @Override
+    public String toString() {
+        return this.decode(0, this.length);
+    }
+}
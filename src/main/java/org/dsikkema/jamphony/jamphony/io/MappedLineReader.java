@@ -0,0 +1,98 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file line by line through a memory-mapped window, so that
+ * files of any size are read without copying them onto the heap first. Only
+ * one line at a time is turned into a String.
+ *
+ * The window moves along the file; a line may not be longer than the window.
+ * Lines end at '\n', a '\r' before it is dropped.
+ */
+class MappedLineReader implements Closeable {
+
+    static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int window;
+
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long position = 0;
+    private byte[] scratch = new byte[256];
+
+    MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW);
+    }
+
+    MappedLineReader(Path path, int window) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.window = window;
+    }
+
+    /**
+     * Next line without its line terminator, or null at the end of the file
+     */
+    String readLine() throws IOException {
+        if (this.position >= this.size) {
+            return null;
+        }
+
+        while (true) {
+            if (this.buffer == null || this.position >= this.bufferStart + this.buffer.limit()) {
+                this.map(this.position);
+            }
+            int start = (int)(this.position - this.bufferStart);
+            int limit = this.buffer.limit();
+            int end = start;
+            while (end < limit && this.buffer.get(end) != '\n') {
+                end++;
+            }
+
+            if (end < limit || this.bufferStart + limit == this.size) {
+                this.position = this.bufferStart + end + 1;
+                return this.decode(start, end);
+            }
+            if (start == 0) {
+                throw new IOException("Line longer than " + this.window + " bytes");
+            }
+            // the line goes past the window, move the window to its start
+            this.map(this.position);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        this.bufferStart = start;
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(this.window, this.size - start));
+    }
+
+    private String decode(int start, int end) {
+        if (end > start && this.buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int length = end - start;
+        if (length > this.scratch.length) {
+            this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+        }
+        ByteBuffer line = this.buffer.duplicate();
+        line.position(start);
+        line.get(this.scratch, 0, length);
+        return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.buffer = null;
+        this.channel.close();
+    }
+}
@@ -0,0 +1,234 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+/**
+ * Parses numeric entry values in a single pass without throwing, so that
+ * invalid input costs no more than valid input.
+ *
+ * Whole numbers are decimal ASCII digits with an optional leading + or -,
+ * the same format Integer.parseInt and Long.parseLong accept.
+ */
+final class NumberParser {
+
+	/**
+	 * Returned by parseInt and parseLong when the value is not a number of
+	 * the requested width. It is outside the int range, so it can never be
+	 * mistaken for a parsed int. For longs it collides with Long.MIN_VALUE,
+	 * so callers getting it back from parseLong check isLongMinValue, which
+	 * only costs anything on that rare path.
+	 */
+	static final long INVALID = Long.MIN_VALUE;
+
+	private NumberParser() {
+	}
+
+	/**
+	 * Validates the value of an entry and writes it, converted to the entry's
+	 * type, into the given column of the array for that type. Strings need no
+	 * converting. The one place values are converted, for EntryData and
+	 * InputData alike.
+	 */
+	static ValidationError convert(EntryDefinition definition, String value, int position, int column, int[] intValues, long[] longValues, double[] doubleValues) {
+		switch (definition.getType()) {
+			case INT:
+				long parsedInt = parseInt(value);
+				if (parsedInt == INVALID) {
+					return ValidationError.typeMismatch(definition, value, position);
+				}
+				intValues[column] = (int)parsedInt;
+				break;
+			case LONG:
+				long parsedLong = parseLong(value);
+				if (parsedLong == INVALID && !isLongMinValue(value)) {
+					return ValidationError.typeMismatch(definition, value, position);
+				}
+				longValues[column] = parsedLong;
+				break;
+			case DOUBLE:
+				double parsedDouble = parseDouble(value);
+				if (Double.isNaN(parsedDouble)) {
+					return ValidationError.typeMismatch(definition, value, position);
+				}
+				doubleValues[column] = parsedDouble;
+				break;
+			case STRING:
+				break;
+			default:
+				throw new RuntimeException("Unhandled argument type"); // should never be hit
+		}
+		return null;
+	}
+
+	static long parseInt(String value) {
+		return parse(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	static long parseLong(String value) {
+		return parse(value, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returned by parseDouble for a value that is not a double. NaN is not
+	 * accepted as input, so it can never be a parsed value; check it with
+	 * Double.isNaN.
+	 */
+	static final double INVALID_DOUBLE = Double.NaN;
+
+	/**
+	 * Largest mantissa that is still exact as a double, 2^53
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * Same grammar as a Java decimal floating point literal without suffix:
+	 * optional sign, digits with an optional fraction (or only a fraction),
+	 * and an optional exponent. NaN, Infinity and hex notation are rejected.
+	 *
+	 * The value is computed while the grammar is checked. When the digits fit
+	 * in 53 bits and the exponent is at most 22 either way, that is one exact
+	 * multiplication or division, which IEEE rounds correctly. Only other
+	 * values go through Double.parseDouble.
+	 */
+	static double parseDouble(String value) {
+		int length = value.length();
+		int i = 0;
+		boolean negative = false;
+		if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+			negative = value.charAt(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		boolean exact = true;
+		int digits = 0;
+		int fractionDigits = 0;
+		while (i < length && isDigit(value.charAt(i))) {
+			mantissa = accumulate(mantissa, value.charAt(i));
+			i++;
+			digits++;
+		}
+		if (i < length && value.charAt(i) == '.') {
+			i++;
+			while (i < length && isDigit(value.charAt(i))) {
+				mantissa = accumulate(mantissa, value.charAt(i));
+				i++;
+				digits++;
+				fractionDigits++;
+			}
+		}
+		if (digits == 0) {
+			return INVALID_DOUBLE;
+		}
+		if (mantissa < 0) {
+			exact = false;
+		}
+
+		int exponent = 0;
+		if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+				negativeExponent = value.charAt(i) == '-';
+				i++;
+			}
+			int exponentDigits = 0;
+			while (i < length && isDigit(value.charAt(i))) {
+				if (exponent < 100000) {
+					exponent = exponent * 10 + (value.charAt(i) - '0');
+				}
+				i++;
+				exponentDigits++;
+			}
+			if (exponentDigits == 0) {
+				return INVALID_DOUBLE;
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+		if (i != length) {
+			return INVALID_DOUBLE;
+		}
+
+		int scale = exponent - fractionDigits;
+		if (exact && mantissa <= MAX_EXACT_MANTISSA && scale >= -22 && scale <= 22) {
+			double result = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+			return negative ? -result : result;
+		}
+		return Double.parseDouble(value);
+	}
+
+	/**
+	 * Negative once the mantissa no longer fits, which parseDouble takes as
+	 * the sign to leave the value to Double.parseDouble
+	 */
+	private static long accumulate(long mantissa, char digit) {
+		if (mantissa < 0 || mantissa > MAX_EXACT_MANTISSA) {
+			return -1;
+		}
+		return mantissa * 10 + (digit - '0');
+	}
+
+	/**
+	 * Accumulates negatively, like Long.parseLong, so that the most negative
+	 * value of the range can be represented without overflowing
+	 */
+	private static long parse(String value, long min, long max) {
+		int length = value.length();
+		if (length == 0) {
+			return INVALID;
+		}
+
+		int i = 0;
+		boolean negative = false;
+		long limit = -max;
+		char first = value.charAt(0);
+		if (first == '-' || first == '+') {
+			if (length == 1) {
+				return INVALID;
+			}
+			negative = first == '-';
+			if (negative) {
+				limit = min;
+			}
+			i++;
+		}
+
+		long multiplicationLimit = limit / 10;
+		long result = 0;
+		for ( ; i < length; i++) {
+			char c = value.charAt(i);
+			if (!isDigit(c) || result < multiplicationLimit) {
+				return INVALID;
+			}
+			int digit = c - '0';
+			result *= 10;
+			if (result < limit + digit) {
+				return INVALID;
+			}
+			result -= digit;
+		}
+
+		return negative ? result : -result;
+	}
+
+	static boolean isLongMinValue(String value) {
+		if (value.isEmpty() || value.charAt(0) != '-') {
+			return false;
+		}
+		int i = 1;
+		while (i < value.length() - 1 && value.charAt(i) == '0') {
+			i++;
+		}
+		return value.regionMatches(i, "9223372036854775808", 0, value.length() - i)
+				&& value.length() - i == 19;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -7,4 +7,8 @@ public class OptionDefinition extends EntryDefinition {
 		// TODO Auto-generated constructor stub
 	}
 
+	public OptionDefinition(String name, Type type, int slot, int column) {
+		super(name, type, slot, column);
+	}
+
 }
@@ -0,0 +1,43 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+/**
+ * How RecordWriter writes records, chosen per run with the global option
+ * --format=
+ */
+public enum OutputFormat {
+    /**
+     * One line per record of name=value pairs, values quoted where the
+     * command line tokenizer would need them to be
+     */
+    TEXT("text"),
+    /**
+     * One JSON object per line
+     */
+    NDJSON("ndjson"),
+    /**
+     * One JSON array holding all records of the run
+     */
+    JSON("json");
+
+    private final String name;
+
+    OutputFormat(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Null for unknown names
+     */
+    public static OutputFormat fromName(String name) {
+        for (OutputFormat format : values()) {
+            if (format.name.equals(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
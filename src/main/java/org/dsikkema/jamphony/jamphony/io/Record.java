@@ -0,0 +1,352 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The record being written by the current thread, see RecordWriter. Fields
+ * are encoded as UTF-8 into a byte buffer right away, in the run's format,
+ * so writing a record allocates nothing for string and integer fields.
+ *
+ * One instance per thread is reused for every record, so it should not be
+ * kept after end().
+ */
+public class Record {
+
+    /**
+     * Buffered records are passed on to Stdout once they take up this much
+     */
+    static final int FLUSH_THRESHOLD = 32 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Stdout stdout;
+
+    /**
+     * The record state of the run this one is nested in, which endRun goes
+     * back to, see RecordWriter.beginRun
+     */
+    private final Record enclosing;
+
+    private byte[] buffer = new byte[1024];
+    private int length = 0;
+    private int recordStart = 0;
+    private boolean open = false;
+    private int fieldCount = 0;
+    private long recordCount = 0;
+    private OutputFormat format = OutputFormat.TEXT;
+    private boolean running = false;
+
+    Record(Stdout stdout) {
+        this(stdout, null);
+    }
+
+    Record(Stdout stdout, Record enclosing) {
+        this.stdout = stdout;
+        this.enclosing = enclosing;
+    }
+
+    public Record field(String name, String value) {
+        if (value == null) {
+            return this.nullField(name);
+        }
+        this.startField(name);
+        if (this.format == OutputFormat.TEXT) {
+            this.appendText(value);
+        } else {
+            this.appendJsonString(value);
+        }
+        return this;
+    }
+
+    public Record field(String name, long value) {
+        this.startField(name);
+        this.appendLong(value);
+        return this;
+    }
+
+    /**
+     * NaN and infinity are not numbers in JSON, they are written as null
+     */
+    public Record field(String name, double value) {
+        this.startField(name);
+        if (this.format != OutputFormat.TEXT && (Double.isNaN(value) || Double.isInfinite(value))) {
+            this.appendAscii("null");
+        } else {
+            this.appendAscii(Double.toString(value));
+        }
+        return this;
+    }
+
+    public Record field(String name, boolean value) {
+        this.startField(name);
+        this.appendAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * An empty value in text
+     */
+    public Record nullField(String name) {
+        this.startField(name);
+        if (this.format != OutputFormat.TEXT) {
+            this.appendAscii("null");
+        }
+        return this;
+    }
+
+    public void end() {
+        this.assertOpen();
+        if (this.format == OutputFormat.TEXT) {
+            this.append(LINE_SEPARATOR);
+        } else {
+            this.append('}');
+            if (this.format == OutputFormat.NDJSON) {
+                this.append('\n');
+            }
+        }
+        this.open = false;
+        this.recordCount++;
+        if (this.length >= FLUSH_THRESHOLD) {
+            this.flush();
+        }
+    }
+
+    void begin() {
+        if (this.open) {
+            throw new IllegalStateException("The previous record was not ended");
+        }
+        this.open = true;
+        this.fieldCount = 0;
+        this.recordStart = this.length;
+        if (this.format == OutputFormat.JSON) {
+            this.appendAscii(this.recordCount == 0 ? "[" : ",\n");
+        }
+        if (this.format != OutputFormat.TEXT) {
+            this.append('{');
+        }
+    }
+
+    /**
+     * Writes out the records ended so far. A record that is still open stays
+     * in the buffer, moved to its start.
+     */
+    void flush() {
+        int complete = this.open ? this.recordStart : this.length;
+        if (complete > 0) {
+            this.stdout.write(ByteBuffer.wrap(this.buffer, 0, complete));
+            System.arraycopy(this.buffer, complete, this.buffer, 0, this.length - complete);
+            this.length -= complete;
+            this.recordStart = 0;
+        }
+    }
+
+    /**
+     * A record the command did not end, because it failed halfway, is
+     * dropped. JSON without any records is an empty array.
+     */
+    void finish() {
+        if (this.open) {
+            this.length = this.recordStart;
+            this.open = false;
+        }
+        if (this.format == OutputFormat.JSON) {
+            this.appendAscii(this.recordCount == 0 ? "[]\n" : "]\n");
+        }
+        this.flush();
+        this.recordCount = 0;
+        this.format = OutputFormat.TEXT;
+    }
+
+    OutputFormat getFormat() {
+        return this.format;
+    }
+
+    Record getEnclosing() {
+        return this.enclosing;
+    }
+
+    boolean isRunning() {
+        return this.running;
+    }
+
+    void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    void setFormat(OutputFormat format) {
+        this.format = format;
+    }
+
+    private void startField(String name) {
+        this.assertOpen();
+        if (this.format == OutputFormat.TEXT) {
+            if (this.fieldCount > 0) {
+                this.append(' ');
+            }
+            this.appendText(name);
+            this.append('=');
+        } else {
+            if (this.fieldCount > 0) {
+                this.append(',');
+            }
+            this.appendJsonString(name);
+            this.append(':');
+        }
+        this.fieldCount++;
+    }
+
+    private void assertOpen() {
+        if (!this.open) {
+            throw new IllegalStateException("No record was begun");
+        }
+    }
+
+    /**
+     * Quoted like CommandLineTokenizer reads double quotes, if needed.
+     * Control characters are escaped as in JSON, so that every record stays
+     * on one line.
+     */
+    private void appendText(String value) {
+        if (!needsQuotes(value)) {
+            this.appendUtf8(value);
+            return;
+        }
+        this.append('"');
+        this.appendUtf8(value);
+        this.append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c <= ' ' || c == '"' || c == '\'' || c == '\\' || c == '=') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendJsonString(String value) {
+        this.append('"');
+        this.appendUtf8(value);
+        this.append('"');
+    }
+
+    /**
+     * Escapes quotes, backslashes and control characters
+     */
+    private void appendUtf8(String value) {
+        int length = value.length();
+        this.ensureCapacity(length);
+        byte[] buffer = this.buffer;
+        int position = this.length;
+        int i = 0;
+        // plain ASCII, by far the most common, is copied without checks per character
+        for ( ; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c >= 0x80 || c == '"' || c == '\\') {
+                break;
+            }
+            buffer[position++] = (byte)c;
+        }
+        this.length = position;
+        for ( ; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                this.append('\\');
+                this.append(c);
+            } else if (c < 0x20) {
+                this.appendControl(c);
+            } else if (c < 0x80) {
+                this.append(c);
+            } else if (c < 0x800) {
+                this.append((char)(0xC0 | (c >> 6)));
+                this.append((char)(0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                this.append((char)(0xF0 | (codePoint >> 18)));
+                this.append((char)(0x80 | ((codePoint >> 12) & 0x3F)));
+                this.append((char)(0x80 | ((codePoint >> 6) & 0x3F)));
+                this.append((char)(0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                this.append('?');
+            } else {
+                this.append((char)(0xE0 | (c >> 12)));
+                this.append((char)(0x80 | ((c >> 6) & 0x3F)));
+                this.append((char)(0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void appendControl(char c) {
+        switch (c) {
+            case '\n':
+                this.appendAscii("\\n");
+                break;
+            case '\r':
+                this.appendAscii("\\r");
+                break;
+            case '\t':
+                this.appendAscii("\\t");
+                break;
+            default:
+                this.appendAscii("\\u00");
+                this.append((char)HEX[c >> 4]);
+                this.append((char)HEX[c & 0xF]);
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            this.appendAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            this.append('-');
+            value = -value;
+        }
+        this.ensureCapacity(19);
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = this.length + digits - 1; i >= this.length; i--) {
+            this.buffer[i] = (byte)('0' + value % 10);
+            value /= 10;
+        }
+        this.length += digits;
+    }
+
+    private void appendAscii(String value) {
+        this.ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            this.buffer[this.length++] = (byte)value.charAt(i);
+        }
+    }
+
+    private void append(byte[] bytes) {
+        this.ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+
+    private void append(char b) {
+        if (this.length == this.buffer.length) {
+            this.ensureCapacity(1);
+        }
+        this.buffer[this.length++] = (byte)b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.length + extra > this.buffer.length) {
+            byte[] grown = new byte[Math.max(this.buffer.length * 2, this.length + extra)];
+            System.arraycopy(this.buffer, 0, grown, 0, this.length);
+            this.buffer = grown;
+        }
+    }
+}
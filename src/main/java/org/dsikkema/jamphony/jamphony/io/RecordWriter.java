@@ -0,0 +1,93 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Structured output for commands whose output is read by programs: instead
+ * of formatting lines, a command writes records of named fields, and the
+ * global option --format=text|ndjson|json decides how they come out.
+ *
+ * records.begin().field("id", 12).field("email", email).end();
+ *
+ * Records are encoded straight into a per-thread byte buffer and passed on
+ * to Stdout as bytes in blocks of about 32 KB, so any number of them is
+ * written in constant memory. CommandRunner calls beginRun() and sets the
+ * format before the command runs, and calls endRun() after it; all of it is
+ * per thread, so records have to be written on the thread that runs the
+ * command.
+ *
+ * Buffered records are not ordered with lines written to Stdout directly.
+ * Commands that write both call flush() before switching to lines.
+ */
+@Singleton
+public class RecordWriter {
+
+    private final Stdout stdout;
+    private final ThreadLocal<Record> records;
+
+    @Inject
+    public RecordWriter(Stdout stdout) {
+        this.stdout = stdout;
+        this.records = ThreadLocal.withInitial(() -> new Record(stdout));
+    }
+
+    /**
+     * Starts the output of a run on this thread, in the text format. Runs
+     * nest: when a command runs another one, the records the outer command
+     * ended so far are written out first, and the inner run gets a record
+     * state of its own, so that its format and the JSON array it may open
+     * do not touch those of the outer run.
+     */
+    public void beginRun() {
+        Record record = this.records.get();
+        if (record.isRunning()) {
+            record.flush();
+            record = new Record(this.stdout, record);
+            this.records.set(record);
+        }
+        record.setRunning(true);
+    }
+
+    /**
+     * Finishes the output of the run and goes back to the run it was nested
+     * in, if any
+     */
+    public void endRun() {
+        Record record = this.records.get();
+        try {
+            record.finish();
+        } finally {
+            record.setRunning(false);
+            if (record.getEnclosing() != null) {
+                this.records.set(record.getEnclosing());
+            }
+        }
+    }
+
+    public Record begin() {
+        Record record = this.records.get();
+        record.begin();
+        return record;
+    }
+
+    public void flush() {
+        this.records.get().flush();
+    }
+
+    public OutputFormat getFormat() {
+        return this.records.get().getFormat();
+    }
+
+    public void setFormat(OutputFormat format) {
+        this.records.get().setFormat(format);
+    }
+
+    /**
+     * Completes the output of the command that ran on this thread and goes
+     * back to the text format. Finishing again writes nothing more.
+     */
+    public void finish() {
+        this.records.get().finish();
+    }
+}
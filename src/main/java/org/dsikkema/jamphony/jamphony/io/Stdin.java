@@ -0,0 +1,74 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import com.google.inject.Singleton;
+
+/**
+ * Counterpart of Stdout, so that what commands read from standard input can
+ * be replaced in tests and by applications.
+ *
+ * Like Stdout, a thread can read from a LinePipe instead, see
+ * CommandRunner.runPipeline.
+ */
+@Singleton
+public class Stdin {
+
+    private final ThreadLocal<LinePipe> pipe = new ThreadLocal<>();
+
+    /**
+     * The reader of standard input and the stream it reads from. A reader
+     * reads ahead, so every reader of the same stream has to be this one or
+     * lines would get lost in the buffer of another.
+     */
+    private InputStream readerSource;
+    private BufferedReader reader;
+
+    public InputStream getInputStream() {
+        LinePipe linePipe = this.pipe.get();
+        if (linePipe != null) {
+            return linePipe.newInputStream();
+        }
+        return System.in;
+    }
+
+    /**
+     * Reads standard input as text in the platform encoding, or the lines of
+     * the pipe as they are. The same reader on every call, so reading goes
+     * on where the last reader left off; it should not be closed. Reading
+     * from getInputStream() as well skips whatever the reader has buffered.
+     */
+    public BufferedReader getReader() {
+        LinePipe linePipe = this.pipe.get();
+        if (linePipe != null) {
+            return linePipe.getReader();
+        }
+        InputStream in = this.getInputStream();
+        synchronized (this) {
+            if (this.reader == null || this.readerSource != in) {
+                this.reader = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()));
+                this.readerSource = in;
+            }
+            return this.reader;
+        }
+    }
+
+    /**
+     * From now on, the current thread reads the lines of the pipe as
+     * standard input, until it is set to null again
+     */
+    public void setPipe(LinePipe linePipe) {
+        if (linePipe != null) {
+            this.pipe.set(linePipe);
+        } else {
+            this.pipe.remove();
+        }
+    }
+
+    public LinePipe getPipe() {
+        return this.pipe.get();
+    }
+}
@@ -1,20 +1,302 @@
 package org.dsikkema.jamphony.jamphony.io;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
 import com.google.inject.Singleton;
 
 /**
- * Makes testing easier, so we can verify string output of the 
+ * Makes testing easier, so we can verify string output of the
  * application. Makes dependencies clearer, showing which classes
- * talk to stdout. Allows room in the future for hooking into the 
+ * talk to stdout. Allows room in the future for hooking into the
  * output with replacement implementations/plugins/events.
+ *
+ * Output can be captured per thread, which is how CommandRunner keeps the
+ * output of commands running in parallel apart.
+ *
+ * Subclasses change where output goes by overriding writeOut/writeErr, see
+ * BufferedStdout.
+ *
+ * Commands that write binary or very large output can write bytes instead
+ * of lines (write, transferFrom, getOutChannel). Those go to the standard
+ * output file descriptor through a FileChannel, without Strings or a
+ * PrintStream in between, and a file is handed to the OS to copy where it
+ * supports that. Text written before is flushed first, so both stay in
+ * order.
+ *
+ * A thread can also write into a LinePipe instead, which is how
+ * CommandRunner.runPipeline hands output to the next command. A capture
+ * begun on top of that still takes the output first.
  */
 @Singleton
 public class Stdout {
+
+    /**
+     * System.out as it was when this class was loaded. Bytes only go to the
+     * file descriptor directly while System.out is still that stream, not
+     * when e.g. a test has replaced it.
+     */
+    private static final PrintStream STANDARD_OUT = System.out;
+
+    private final ThreadLocal<CapturedOutput> capture = new ThreadLocal<>();
+    private final ThreadLocal<LinePipe> pipe = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> unbuffered = new ThreadLocal<>();
+
     public void writeLnOut(String line) {
-        System.out.println(line);
+        CapturedOutput capturedOutput = this.capture.get();
+        if (capturedOutput != null) {
+            capturedOutput.writeLnOut(line);
+            return;
+        }
+        LinePipe linePipe = this.pipe.get();
+        if (linePipe != null) {
+            linePipe.writeLine(line);
+            return;
+        }
+        this.writeOut(line);
     }
-    
+
     public void writeLnErr(String line) {
+        CapturedOutput capturedOutput = this.capture.get();
+        if (capturedOutput != null) {
+            capturedOutput.writeLnErr(line);
+            return;
+        }
+        this.writeErr(line);
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer as they are, without a line
+     * separator
+     */
+    public void write(ByteBuffer bytes) {
+        CapturedOutput capturedOutput = this.capture.get();
+        if (capturedOutput != null) {
+            capturedOutput.write(bytes);
+            return;
+        }
+        LinePipe linePipe = this.pipe.get();
+        if (linePipe != null) {
+            linePipe.writeBytes(bytes);
+            return;
+        }
+        this.writeOutBytes(bytes);
+    }
+
+    /**
+     * Writes count bytes of the file, starting at position, or up to its end
+     * if that comes first
+     */
+    public void transferFrom(FileChannel file, long position, long count) {
+        try {
+            CapturedOutput capturedOutput = this.capture.get();
+            if (capturedOutput != null) {
+                transfer(file, position, count, Channels.newChannel(capturedOutput.getOutStream()));
+                return;
+            }
+            if (this.pipe.get() != null) {
+                transfer(file, position, count, this.getOutChannel());
+                return;
+            }
+            this.transferOut(file, position, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A channel view of write(ByteBuffer), for code that writes to channels
+     * or, through Channels.newOutputStream, to streams. Closing it does
+     * nothing.
+     */
+    public WritableByteChannel getOutChannel() {
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer bytes) {
+                int count = bytes.remaining();
+                Stdout.this.write(bytes);
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    protected void writeOut(String line) {
+        System.out.println(line);
+    }
+
+    protected void writeErr(String line) {
         System.err.println(line);
     }
+
+    protected synchronized void writeOutBytes(ByteBuffer bytes) {
+        System.out.flush();
+        try {
+            writeFully(channelOf(System.out), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected synchronized void transferOut(FileChannel file, long position, long count) throws IOException {
+        System.out.flush();
+        transfer(file, position, count, channelOf(System.out));
+    }
+
+    /**
+     * The channel that writes to the given stream most directly. For
+     * standard output that is one over file descriptor 1, shared and never
+     * closed, as it is not ours to close.
+     */
+    protected static WritableByteChannel channelOf(OutputStream out) {
+        if (out == STANDARD_OUT) {
+            return StandardOutChannel.CHANNEL;
+        }
+        if (out instanceof FileOutputStream) {
+            return ((FileOutputStream)out).getChannel();
+        }
+        return Channels.newChannel(out);
+    }
+
+    protected static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * transferTo may copy less than asked for, so it is repeated until it
+     * is done or the file ends
+     */
+    protected static void transfer(FileChannel file, long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + Math.min(count, file.size() - position);
+        while (position < end) {
+            long transferred = file.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    private static class StandardOutChannel {
+        private static final FileChannel CHANNEL = new FileOutputStream(FileDescriptor.out).getChannel();
+    }
+
+    /**
+     * Makes sure everything written so far has been passed on. CommandRunner
+     * calls this when a command is done.
+     */
+    public void flush() {
+        System.out.flush();
+        System.err.flush();
+    }
+
+    /**
+     * Implementations that hold output back should pass every line on right
+     * away while this is off. Does nothing here, System.out already does.
+     */
+    public void setBuffered(boolean buffered) {
+    }
+
+    public boolean isBuffered() {
+        return false;
+    }
+
+    /**
+     * Like setBuffered(false), but only for what the current thread writes,
+     * until it is set back. CommandRunner uses this for --no-buffer, so that
+     * other commands running at the same time keep their buffering.
+     */
+    public void setUnbufferedForThread(boolean unbuffered) {
+        if (unbuffered) {
+            this.unbuffered.set(Boolean.TRUE);
+        } else {
+            this.unbuffered.remove();
+        }
+    }
+
+    public boolean isUnbufferedForThread() {
+        return this.unbuffered.get() != null;
+    }
+
+    /**
+     * From now until endCapture, everything the current thread writes is
+     * kept instead of written out. Output of other threads, including ones
+     * the current thread starts, is not affected.
+     *
+     * Captures nest: endCapture goes back to the capture that was going on
+     * when this one began, if any.
+     */
+    public void beginCapture() {
+        this.capture.set(new CapturedOutput(this.capture.get()));
+    }
+
+    public CapturedOutput endCapture() {
+        CapturedOutput capturedOutput = this.capture.get();
+        if (capturedOutput == null) {
+            return new CapturedOutput();
+        }
+        if (capturedOutput.getEnclosing() != null) {
+            this.capture.set(capturedOutput.getEnclosing());
+        } else {
+            this.capture.remove();
+        }
+        return capturedOutput;
+    }
+
+    /**
+     * From now on, standard output of the current thread goes into the pipe,
+     * one line at a time, until it is set to null again. Standard error is
+     * not affected. Closing the pipe is up to the caller.
+     */
+    public void setPipe(LinePipe linePipe) {
+        if (linePipe != null) {
+            this.pipe.set(linePipe);
+        } else {
+            this.pipe.remove();
+        }
+    }
+
+    public LinePipe getPipe() {
+        return this.pipe.get();
+    }
+
+    /**
+     * Writes out what was captured earlier, e.g. on another thread. While the
+     * current thread is capturing itself, it goes into that capture instead,
+     * and while it writes into a pipe, standard output goes there.
+     */
+    public void replay(CapturedOutput capturedOutput) {
+        CapturedOutput current = this.capture.get();
+        LinePipe linePipe = this.pipe.get();
+        if (current != null) {
+            current.append(capturedOutput);
+        } else if (linePipe != null) {
+            linePipe.writeBytes(ByteBuffer.wrap(capturedOutput.getOut()));
+            this.replayOut(new CapturedOutput(new byte[0], capturedOutput.getErr()));
+        } else {
+            this.replayOut(capturedOutput);
+        }
+    }
+
+    protected void replayOut(CapturedOutput capturedOutput) {
+        capturedOutput.writeTo(System.out, System.err);
+    }
 }
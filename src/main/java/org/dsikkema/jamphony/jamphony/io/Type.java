@@ -2,6 +2,8 @@ package org.dsikkema.jamphony.jamphony.io;
 
 public enum Type {
     INT("Int"),
+    LONG("Long"),
+    DOUBLE("Double"),
     STRING("String");
     
     private final String name;
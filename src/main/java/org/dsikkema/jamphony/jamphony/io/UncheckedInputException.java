@@ -0,0 +1,18 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+/**
+ * Wraps an InputException where a checked exception cannot be thrown, e.g.
+ * from the getters of InputData when a lazily converted value turns out to
+ * be invalid
+ */
+public class UncheckedInputException extends RuntimeException {
+
+	public UncheckedInputException(InputException cause) {
+		super(cause.getMessage(), cause);
+	}
+
+	@Override
+	public synchronized InputException getCause() {
+		return (InputException)super.getCause();
+	}
+}
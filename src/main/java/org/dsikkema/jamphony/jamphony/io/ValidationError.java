@@ -0,0 +1,86 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+/**
+ * One thing wrong with the input: what kind of problem, which entry, and
+ * where it was. Batch validators can use the code and position, people get
+ * the message.
+ */
+public class ValidationError {
+
+    public enum Code {
+        COMMAND_NAME_MISSING,
+        TOO_FEW_ARGUMENTS,
+        TOO_MANY_ARGUMENTS,
+        MISPLACED_ARGUMENT,
+        UNDEFINED_ARGUMENT,
+        UNDEFINED_OPTION,
+        UNDEFINED_FLAG,
+        UNRECOGNIZED_ENTRY,
+        TYPE_MISMATCH,
+        UNREADABLE_FILE
+    }
+
+    /**
+     * Position for errors that are not about one particular entry, or that
+     * were found outside of parsing the command line
+     */
+    public static final int NO_POSITION = -1;
+
+    private final Code code;
+    private final String entry;
+    private final int position;
+    private final String message;
+
+    public ValidationError(Code code, String entry, int position, String message) {
+        this.code = code;
+        this.entry = entry;
+        this.position = position;
+        this.message = message;
+    }
+
+    public Code getCode() {
+        return this.code;
+    }
+
+    /**
+     * The offending entry as given, or the name of the argument, option or
+     * flag it is about. Null if the error is not about one entry.
+     */
+    public String getEntry() {
+        return this.entry;
+    }
+
+    /**
+     * Index of the entry in the command line, the command name being 0
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    @Override
+    public String toString() {
+        return this.code + " at " + this.position + ": " + this.message;
+    }
+
+    static ValidationError typeMismatch(EntryDefinition definition, String value, int position) {
+        return new ValidationError(Code.TYPE_MISMATCH, definition.getName(), position,
+                "Entry '" + definition.getName() + "' with value '" + value
+                + "' does not match expected type '" + definition.getType().getName() + "'");
+    }
+
+    static ValidationError undefinedOption(String optionName, int position) {
+        return new ValidationError(Code.UNDEFINED_OPTION, optionName, position, "Option '" + optionName + "' is not defined");
+    }
+
+    static ValidationError undefinedFlag(String flagName, int position) {
+        return new ValidationError(Code.UNDEFINED_FLAG, flagName, position, "Flag '" + flagName + "' is not defined");
+    }
+
+    static ValidationError undefinedArgument(int index) {
+        return new ValidationError(Code.UNDEFINED_ARGUMENT, null, NO_POSITION, "Argument at index " + index + " does not exist");
+    }
+}
@@ -0,0 +1,37 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+import org.dsikkema.jamphony.jamphony.io.InputException;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Told by CommandRunner how long each phase of every run took and which
+ * input errors occurred. Bind another implementation to send these
+ * somewhere else, or NoCommandInstrumentation to turn it off.
+ *
+ * Called on the thread that ran the command, possibly from many threads at
+ * once, so implementations must be thread-safe and cheap.
+ */
+@ImplementedBy(CommandMetrics.class)
+public interface CommandInstrumentation {
+
+    /**
+     * Called once per run, after the command is done or failed. The command
+     * name is null if no command was found. Timings are indexed by
+     * Phase.ordinal(), with -1 for phases that were not reached.
+     */
+    void runCompleted(String commandName, int exitCode, long[] phaseNanos);
+
+    /**
+     * Called for every InputException that ends a run, before runCompleted
+     */
+    void inputError(String commandName, Phase phase, InputException e);
+
+    /**
+     * Human readable summary of what was recorded for the command, printed
+     * by --profile. Empty if the implementation does not keep any.
+     */
+    default String report(String commandName) {
+        return "";
+    }
+}
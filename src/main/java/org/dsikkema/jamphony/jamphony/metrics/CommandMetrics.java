@@ -0,0 +1,217 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.InputValidationException;
+import org.dsikkema.jamphony.jamphony.io.ValidationError;
+
+import com.google.inject.Singleton;
+
+/**
+ * Default instrumentation: keeps a latency histogram per command and phase
+ * and counts input errors per command and reason, in memory.
+ *
+ * Every error of an InputValidationException is counted, with the name of
+ * its code as the reason, e.g. "UNDEFINED_OPTION". Other input errors have
+ * their message as the reason, with the quoted parts and numbers taken out,
+ * e.g. "Command '*' not found", so that the number of distinct reasons stays
+ * small.
+ *
+ * Call registerMBean() once to make the numbers available over JMX.
+ */
+@Singleton
+public class CommandMetrics implements CommandInstrumentation, CommandMetricsMBean {
+
+    public static final String OBJECT_NAME = "org.dsikkema.jamphony:type=CommandMetrics";
+
+    /**
+     * Runs that ended before a command was found are recorded under this name
+     */
+    public static final String UNKNOWN_COMMAND = "(unknown)";
+
+    private static final String TOTAL = "total";
+    private static final Pattern QUOTED = Pattern.compile("'[^']*'");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private final ConcurrentMap<String, CommandStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void runCompleted(String commandName, int exitCode, long[] phaseNanos) {
+        CommandStats commandStats = this.getStats(commandName);
+        long total = 0;
+        for (Phase phase : Phase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            if (nanos >= 0) {
+                commandStats.phases[phase.ordinal()].record(nanos);
+                total += nanos;
+            }
+        }
+        commandStats.total.record(total);
+    }
+
+    @Override
+    public void inputError(String commandName, Phase phase, InputException e) {
+        CommandStats commandStats = this.getStats(commandName);
+        commandStats.inputErrors.increment();
+        if (e instanceof InputValidationException) {
+            for (ValidationError error : ((InputValidationException)e).getErrors()) {
+                commandStats.countReason(error.getCode().name());
+            }
+        } else {
+            commandStats.countReason(reasonOf(e.getMessage()));
+        }
+    }
+
+    @Override
+    public String report(String commandName) {
+        CommandStats commandStats = this.stats.get(nameOf(commandName));
+        if (commandStats == null) {
+            return "";
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%s: %d runs, %d input errors%n",
+                nameOf(commandName), commandStats.total.getCount(), commandStats.inputErrors.sum()));
+        report.append(String.format("  %-10s %10s %10s %10s %10s %10s%n", "phase (us)", "mean", "p50", "p90", "p99", "max"));
+        for (Phase phase : Phase.values()) {
+            appendRow(report, phase.getLabel(), commandStats.phases[phase.ordinal()]);
+        }
+        appendRow(report, TOTAL, commandStats.total);
+
+        for (Map.Entry<String, LongAdder> reason : new TreeMap<>(commandStats.inputErrorsByReason).entrySet()) {
+            report.append(String.format("  %6d x %s%n", reason.getValue().sum(), reason.getKey()));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (String commandName : this.getCommandNames()) {
+            report.append(this.report(commandName));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String[] getCommandNames() {
+        return this.stats.keySet().stream().sorted().toArray(String[]::new);
+    }
+
+    @Override
+    public long getRunCount(String commandName) {
+        CommandStats commandStats = this.stats.get(nameOf(commandName));
+        return commandStats == null ? 0 : commandStats.total.getCount();
+    }
+
+    @Override
+    public long getInputErrorCount(String commandName) {
+        CommandStats commandStats = this.stats.get(nameOf(commandName));
+        return commandStats == null ? 0 : commandStats.inputErrors.sum();
+    }
+
+    public long getInputErrorCount(String commandName, String reason) {
+        CommandStats commandStats = this.stats.get(nameOf(commandName));
+        LongAdder count = commandStats == null ? null : commandStats.inputErrorsByReason.get(reason);
+        return count == null ? 0 : count.sum();
+    }
+
+    @Override
+    public double getPercentileMicros(String commandName, String phase, double percentile) {
+        LatencyHistogram histogram = this.getHistogram(commandName, phase);
+        return histogram == null ? 0 : histogram.getPercentile(percentile) / 1000.0;
+    }
+
+    public LatencyHistogram getHistogram(String commandName, String phase) {
+        CommandStats commandStats = this.stats.get(nameOf(commandName));
+        if (commandStats == null) {
+            return null;
+        }
+        if (TOTAL.equals(phase)) {
+            return commandStats.total;
+        }
+        for (Phase candidate : Phase.values()) {
+            if (candidate.getLabel().equals(phase)) {
+                return commandStats.phases[candidate.ordinal()];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        this.stats.clear();
+    }
+
+    /**
+     * Registers with the platform MBean server under OBJECT_NAME, unless
+     * something already is
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            throw new RuntimeException("Could not register command metrics MBean", e);
+        }
+    }
+
+    static String reasonOf(String message) {
+        if (message == null) {
+            return "";
+        }
+        return NUMBER.matcher(QUOTED.matcher(message).replaceAll("'*'")).replaceAll("N");
+    }
+
+    private CommandStats getStats(String commandName) {
+        return this.stats.computeIfAbsent(nameOf(commandName), name -> new CommandStats());
+    }
+
+    private static String nameOf(String commandName) {
+        return commandName == null ? UNKNOWN_COMMAND : commandName;
+    }
+
+    private static void appendRow(StringBuilder report, String label, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        report.append(String.format("  %-10s %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                label,
+                histogram.getMean() / 1000.0,
+                histogram.getPercentile(50) / 1000.0,
+                histogram.getPercentile(90) / 1000.0,
+                histogram.getPercentile(99) / 1000.0,
+                histogram.getMax() / 1000.0));
+    }
+
+    private static class CommandStats {
+        private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LongAdder inputErrors = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> inputErrorsByReason = new ConcurrentHashMap<>();
+
+        private CommandStats() {
+            for (int i = 0; i < this.phases.length; i++) {
+                this.phases[i] = new LatencyHistogram();
+            }
+        }
+
+        private void countReason(String reason) {
+            this.inputErrorsByReason.computeIfAbsent(reason, key -> new LongAdder()).increment();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+/**
+ * What CommandMetrics shows over JMX, e.g. in jconsole
+ */
+public interface CommandMetricsMBean {
+
+    String[] getCommandNames();
+
+    /**
+     * Same as --profile prints, for every command
+     */
+    String getReport();
+
+    long getRunCount(String commandName);
+
+    long getInputErrorCount(String commandName);
+
+    /**
+     * Phase is a Phase label ("lookup", "execute", ...) or "total"
+     */
+    double getPercentileMicros(String commandName, String phase, double percentile);
+
+    void reset();
+}
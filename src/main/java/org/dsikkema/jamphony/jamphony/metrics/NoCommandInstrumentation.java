@@ -0,0 +1,17 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+import org.dsikkema.jamphony.jamphony.io.InputException;
+
+/**
+ * Records nothing
+ */
+public class NoCommandInstrumentation implements CommandInstrumentation {
+
+    @Override
+    public void runCompleted(String commandName, int exitCode, long[] phaseNanos) {
+    }
+
+    @Override
+    public void inputError(String commandName, Phase phase, InputException e) {
+    }
+}
@@ -0,0 +1,59 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+import java.util.Arrays;
+
+/**
+ * The steps CommandRunner takes to run a command, in order
+ */
+public enum Phase {
+    /** Splitting a command string into entries, only for CommandRunner.run(String) */
+    TOKENIZE("tokenize"),
+    /** Finding the command and having Guice instantiate it */
+    LOOKUP("lookup"),
+    /** Getting the command's input definition, populated on first use */
+    DEFINITION("definition"),
+    /** Building and validating InputData */
+    INPUT("input"),
+    EXECUTE("execute");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+
+    /**
+     * Array to record the nanoseconds spent in each phase of one run,
+     * indexed by ordinal. Phases that were not reached stay at -1.
+     */
+    public static long[] newTimings() {
+        long[] timings = new long[values().length];
+        Arrays.fill(timings, -1);
+        return timings;
+    }
+
+    /**
+     * One line describing the timings of a single run, e.g. for --profile
+     */
+    public static String describe(long[] timings) {
+        StringBuilder builder = new StringBuilder();
+        long total = 0;
+        for (Phase phase : values()) {
+            long nanos = timings[phase.ordinal()];
+            if (nanos < 0) {
+                continue;
+            }
+            total += nanos;
+            builder.append(phase.label).append(' ').append(formatMicros(nanos)).append(", ");
+        }
+        return builder.append("total ").append(formatMicros(total)).toString();
+    }
+
+    static String formatMicros(long nanos) {
+        return String.format("%.1fus", nanos / 1000.0);
+    }
+}
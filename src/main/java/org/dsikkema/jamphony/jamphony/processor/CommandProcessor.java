@@ -0,0 +1,222 @@
+package org.dsikkema.jamphony.jamphony.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import org.dsikkema.jamphony.jamphony.Command;
+
+/**
+ * Generates a CommandTable from every class annotated with @Command, so
+ * applications do not have to maintain a command map by hand and the
+ * registry does not have to go through Guice for simple commands.
+ *
+ * The table is called GeneratedCommandTable and goes in the package of the
+ * first command by name, unless the jamphony.commandTable option names a
+ * class: javac -Ajamphony.commandTable=com.example.Commands
+ */
+public class CommandProcessor extends AbstractProcessor {
+
+    public static final String TABLE_OPTION = "jamphony.commandTable";
+    public static final String DEFAULT_TABLE_NAME = "GeneratedCommandTable";
+
+    private static final String COMMAND_INTERFACE = "org.dsikkema.jamphony.jamphony.CommandInterface";
+    private static final String[] INJECT_ANNOTATIONS = {"javax.inject.Inject", "com.google.inject.Inject"};
+    private static final String[] SCOPE_ANNOTATIONS = {"javax.inject.Singleton", "com.google.inject.Singleton"};
+
+    private final Map<String, CommandEntry> commands = new TreeMap<>();
+    private boolean generated = false;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(Command.class.getName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(TABLE_OPTION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(Command.class);
+        if (elements.isEmpty()) {
+            return false;
+        }
+        if (this.generated) {
+            this.error(elements.iterator().next(), "@Command classes generated by other annotation processors are not supported");
+            return true;
+        }
+
+        for (Element element : elements) {
+            this.addCommand(element);
+        }
+        if (!this.commands.isEmpty()) {
+            this.writeTable();
+        }
+        this.generated = true;
+        return true;
+    }
+
+    private void addCommand(Element element) {
+        Command annotation = element.getAnnotation(Command.class);
+        if (element.getKind() != ElementKind.CLASS) {
+            this.error(element, "@Command can only be put on classes");
+            return;
+        }
+        TypeElement type = (TypeElement)element;
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            this.error(element, "Command classes must be public and not abstract");
+            return;
+        }
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            this.error(element, "Nested command classes must be static");
+            return;
+        }
+        TypeMirror commandInterface = this.processingEnv.getElementUtils().getTypeElement(COMMAND_INTERFACE).asType();
+        if (!this.processingEnv.getTypeUtils().isAssignable(type.asType(), commandInterface)) {
+            this.error(element, "Command classes must implement CommandInterface");
+            return;
+        }
+
+        String name = annotation.name();
+        if (name.isEmpty() || name.startsWith("-") || !name.equals(name.trim()) || name.matches(".*\\s.*")) {
+            this.error(element, "Command name '" + name + "' is not valid");
+            return;
+        }
+        CommandEntry existing = this.commands.get(name);
+        if (existing != null) {
+            this.error(element, "Command name '" + name + "' is already used by " + existing.className);
+            return;
+        }
+
+        this.commands.put(name, new CommandEntry(
+                type.getQualifiedName().toString(),
+                this.processingEnv.getElementUtils().getBinaryName(type).toString(),
+                this.isConstructible(type),
+                annotation
+        ));
+    }
+
+    /**
+     * Whether `new` does everything the injector would: a public no-argument
+     * constructor, no @Inject constructor the injector would pick instead,
+     * and no injected members or scope anywhere in the class hierarchy.
+     * Constructors of superclasses are not the injector's choice, so only
+     * their other members count.
+     */
+    private boolean isConstructible(TypeElement type) {
+        boolean hasNoArgumentConstructor = false;
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.CONSTRUCTOR) {
+                continue;
+            }
+            if (this.hasAnnotation(member, INJECT_ANNOTATIONS)) {
+                return false;
+            }
+            if (((ExecutableElement)member).getParameters().isEmpty() && member.getModifiers().contains(Modifier.PUBLIC)) {
+                hasNoArgumentConstructor = true;
+            }
+        }
+        if (!hasNoArgumentConstructor || this.hasAnnotation(type, SCOPE_ANNOTATIONS)) {
+            return false;
+        }
+
+        for (TypeElement current = type; current != null; current = this.superclassOf(current)) {
+            for (Element member : current.getEnclosedElements()) {
+                if (member.getKind() != ElementKind.CONSTRUCTOR && this.hasAnnotation(member, INJECT_ANNOTATIONS)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement)this.processingEnv.getTypeUtils().asElement(superclass);
+    }
+
+    private boolean hasAnnotation(Element element, String[] annotationNames) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            String annotationName = ((TypeElement)mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+            for (String candidate : annotationNames) {
+                if (candidate.equals(annotationName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void writeTable() {
+        String tableName = this.processingEnv.getOptions().get(TABLE_OPTION);
+        if (tableName == null || tableName.isEmpty()) {
+            String firstClass = this.commands.values().iterator().next().className;
+            String packageName = this.processingEnv.getElementUtils()
+                    .getPackageOf(this.processingEnv.getElementUtils().getTypeElement(firstClass))
+                    .getQualifiedName().toString();
+            tableName = packageName.isEmpty() ? DEFAULT_TABLE_NAME : packageName + "." + DEFAULT_TABLE_NAME;
+        }
+
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(tableName).openWriter()) {
+            writer.write(new CommandTableWriter(tableName, this.commands.values()).write());
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + tableName + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * What the table needs to know about one command
+     */
+    static class CommandEntry {
+        final String className;
+        final String binaryName;
+        final boolean constructible;
+        final Command annotation;
+
+        CommandEntry(String className, String binaryName, boolean constructible, Command annotation) {
+            this.className = className;
+            this.binaryName = binaryName;
+            this.constructible = constructible;
+            this.annotation = annotation;
+        }
+
+        boolean declaresInput() {
+            return this.annotation.arguments().length > 0
+                    || this.annotation.options().length > 0
+                    || this.annotation.flags().length > 0
+                    || !this.annotation.streamingArgument().isEmpty()
+                    || this.annotation.lazyConversion()
+                    || this.annotation.argumentFiles();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.dsikkema.jamphony.jamphony.processor;
+
+import java.util.Collection;
+
+import org.dsikkema.jamphony.jamphony.Command;
+import org.dsikkema.jamphony.jamphony.processor.CommandProcessor.CommandEntry;
+
+/**
+ * Writes the source of a generated CommandTable. Kept apart from the
+ * processor so the processor only deals with reading annotations.
+ */
+class CommandTableWriter {
+
+    private final String packageName;
+    private final String simpleName;
+    private final Collection<CommandEntry> commands;
+    private final StringBuilder source = new StringBuilder();
+
+    CommandTableWriter(String tableName, Collection<CommandEntry> commands) {
+        int lastDot = tableName.lastIndexOf('.');
+        this.packageName = lastDot < 0 ? "" : tableName.substring(0, lastDot);
+        this.simpleName = tableName.substring(lastDot + 1);
+        this.commands = commands;
+    }
+
+    String write() {
+        if (!this.packageName.isEmpty()) {
+            this.line(0, "package " + this.packageName + ";");
+            this.line(0, "");
+        }
+        this.line(0, "import java.util.HashMap;");
+        this.line(0, "import java.util.Map;");
+        this.line(0, "");
+        this.line(0, "import org.dsikkema.jamphony.jamphony.CommandInterface;");
+        this.line(0, "import org.dsikkema.jamphony.jamphony.CommandTable;");
+        this.line(0, "import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;");
+        this.line(0, "import org.dsikkema.jamphony.jamphony.io.Type;");
+        this.line(0, "");
+        this.line(0, "import com.google.inject.Injector;");
+        this.line(0, "import com.google.inject.Provider;");
+        this.line(0, "");
+        this.line(0, "/**");
+        this.line(0, " * Generated by " + CommandProcessor.class.getName() + " from the @Command classes, do not edit");
+        this.line(0, " */");
+        this.line(0, "public final class " + this.simpleName + " implements CommandTable {");
+        this.line(0, "");
+
+        // by name, so that only the command that is run gets loaded
+        this.line(1, "@Override");
+        this.line(1, "public Map<String, String> getCommandClassNames() {");
+        this.line(2, "HashMap<String, String> commands = new HashMap<>();");
+        for (CommandEntry command : this.commands) {
+            this.line(2, "commands.put(" + literal(command.annotation.name()) + ", " + literal(command.binaryName) + ");");
+        }
+        this.line(2, "return commands;");
+        this.line(1, "}");
+        this.line(0, "");
+
+        this.line(1, "@Override");
+        this.line(1, "public Provider<? extends CommandInterface> getProvider(String commandName, Injector injector) {");
+        this.line(2, "switch (commandName) {");
+        for (CommandEntry command : this.commands) {
+            this.line(3, "case " + literal(command.annotation.name()) + ":");
+            if (command.constructible) {
+                this.line(4, "return () -> new " + command.className + "();");
+            } else {
+                this.line(4, "return injector == null ? null : injector.getProvider(" + command.className + ".class);");
+            }
+        }
+        this.line(3, "default:");
+        this.line(4, "return null;");
+        this.line(2, "}");
+        this.line(1, "}");
+        this.line(0, "");
+
+        this.line(1, "@Override");
+        this.line(1, "public CommandInputDefinition getInputDefinition(Class<? extends CommandInterface> commandClass) {");
+        this.line(2, "CommandInputDefinition definition = new CommandInputDefinition();");
+        this.line(2, "switch (commandClass.getName()) {");
+        for (CommandEntry command : this.commands) {
+            if (!command.declaresInput()) {
+                continue;
+            }
+            this.line(3, "case " + literal(command.binaryName) + ":");
+            for (Command.Argument argument : command.annotation.arguments()) {
+                this.line(4, "definition.addArgument(" + literal(argument.name()) + ", Type." + argument.type().name() + ");");
+            }
+            for (Command.Option option : command.annotation.options()) {
+                this.line(4, "definition.addOption(" + literal(option.name()) + ", Type." + option.type().name() + ");");
+            }
+            for (String flag : command.annotation.flags()) {
+                this.line(4, "definition.addFlag(" + literal(flag) + ");");
+            }
+            if (!command.annotation.streamingArgument().isEmpty()) {
+                this.line(4, "definition.addStreamingArgument(" + literal(command.annotation.streamingArgument()) + ");");
+            }
+            if (command.annotation.lazyConversion()) {
+                this.line(4, "definition.setLazyConversion(true);");
+            }
+            if (command.annotation.argumentFiles()) {
+                this.line(4, "definition.setArgumentFiles(true);");
+            }
+            this.line(4, "return definition;");
+        }
+        this.line(3, "default:");
+        this.line(4, "return null;");
+        this.line(2, "}");
+        this.line(1, "}");
+        this.line(0, "}");
+
+        return this.source.toString();
+    }
+
+    private void line(int indent, String text) {
+        for (int i = 0; i < indent; i++) {
+            this.source.append("    ");
+        }
+        this.source.append(text).append('\n');
+    }
+
+    static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        literal.append(String.format("\\u%04x", (int)c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
@@ -0,0 +1,114 @@
+package org.dsikkema.jamphony.jamphony;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import org.dsikkema.jamphony.jamphony.io.Stdin;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+
+public class BatchRunnerTest {
+
+	@Mock CommandRunner commandRunnerMock;
+	@Mock Stdout stdoutMock;
+	@Mock Stdin stdinMock;
+
+	@InjectMocks BatchRunner batchRunner;
+
+	@Before
+	public void setUp() {
+		MockitoAnnotations.initMocks(this);
+	}
+
+	@Test
+	public void testRunsEachLineAndCollectsExitCodes() throws IOException {
+		String batch = "first-command arg\n"
+				+ "\n"
+				+ "# a comment\n"
+				+ "second-command --flag\n";
+
+		when(this.commandRunnerMock.run("first-command arg")).thenReturn(0);
+		when(this.commandRunnerMock.run("second-command --flag")).thenReturn(3);
+
+		assertEquals(
+			Arrays.asList(0, 3),
+			this.batchRunner.run(new BufferedReader(new StringReader(batch)))
+		);
+		verify(this.commandRunnerMock, times(2)).run(anyString());
+	}
+
+	@Test
+	public void testRunStdinReadsThroughStdin() throws IOException {
+		when(this.stdinMock.getReader()).thenReturn(new BufferedReader(new StringReader("from-stdin\n")));
+		when(this.commandRunnerMock.run("from-stdin")).thenReturn(2);
+
+		assertEquals(Arrays.asList(2), this.batchRunner.runStdin());
+	}
+
+	/**
+	 * A command throwing should fail only its own line
+	 */
+	@Test
+	public void testExceptionDoesNotAbortBatch() throws IOException {
+		String batch = "throwing-command\nfine-command\n";
+
+		when(this.commandRunnerMock.run("throwing-command")).thenThrow(new RuntimeException("boom"));
+		when(this.commandRunnerMock.run("fine-command")).thenReturn(0);
+
+		assertEquals(
+			Arrays.asList(1, 0),
+			this.batchRunner.run(new BufferedReader(new StringReader(batch)))
+		);
+		verify(this.stdoutMock, times(1)).writeLnErr("java.lang.RuntimeException: boom");
+	}
+
+	@Test
+	public void testServeAnswersWithExitCodePerLine() throws Exception {
+		when(this.commandRunnerMock.run("some-command")).thenReturn(0);
+		when(this.commandRunnerMock.run("other-command")).thenReturn(2);
+
+		ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread server = new Thread(() -> {
+			try {
+				this.batchRunner.serve(serverSocket);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		server.start();
+
+		try (
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+		) {
+			writer.write("some-command\n\n# comment\nother-command\n");
+			writer.flush();
+
+			assertEquals("0", reader.readLine());
+			assertEquals("0", reader.readLine());
+			assertEquals("0", reader.readLine());
+			assertEquals("2", reader.readLine());
+		} finally {
+			serverSocket.close();
+			server.join(5000);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package org.dsikkema.jamphony.jamphony;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.metrics.NoCommandInstrumentation;
+import org.dsikkema.jamphony.jamphony.processor.GeneratedCommandTable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Uses the table generated from the processor test's commands
+ */
+public class BootstrapTest {
+
+	@Rule
+	public ExpectedException expectedException = ExpectedException.none();
+
+	@Test
+	public void testRunWithoutInjector() {
+		Stdout stdoutMock = mock(Stdout.class);
+		CommandRunner runner = new Bootstrap(new GeneratedCommandTable())
+				.setStdout(stdoutMock)
+				.setInstrumentation(new NoCommandInstrumentation())
+				.createRunner();
+
+		assertEquals(5, runner.run("add 2 3"));
+		assertEquals(1, runner.run("subtract 2 3"));
+		verify(stdoutMock).writeLnErr("Command 'subtract' not found");
+	}
+
+	/**
+	 * Commands that need injection cannot be created without an injector
+	 */
+	@Test
+	public void testCommandNeedingInjection() {
+		CommandRunner runner = new Bootstrap(new GeneratedCommandTable()).setStdout(mock(Stdout.class)).createRunner();
+
+		this.expectedException.expect(RuntimeException.class);
+		this.expectedException.expectMessage("Could not load command 'greet'");
+		runner.run("greet world");
+	}
+}
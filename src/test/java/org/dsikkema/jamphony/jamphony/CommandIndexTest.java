@@ -0,0 +1,99 @@
+package org.dsikkema.jamphony.jamphony;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class CommandIndexTest {
+
+	private final CommandIndex index = new CommandIndex(Arrays.asList(
+		"cache:clear", "cache:warmup", "cache", "config:dump", "list", "lint", "user:create", "user:delete"
+	));
+
+	@Test
+	@Parameters({
+		"cache, cache",
+		"list, list",
+		"lis, list",
+		"c:cl, cache:clear",
+		"ca:w, cache:warmup",
+		"co, config:dump",
+		"u:c, user:create",
+		"user:d, user:delete",
+		"us:de, user:delete",
+	})
+	public void testUniqueMatch(String input, String name) {
+		assertEquals(Collections.singletonList(name), this.index.match(input));
+	}
+
+	@Test
+	public void testAmbiguousMatch() {
+		assertEquals(Arrays.asList("cache", "cache:clear", "cache:warmup"), this.index.match("ca"));
+		assertEquals(Arrays.asList("lint", "list"), this.index.match("li"));
+		assertEquals(Arrays.asList("user:create", "user:delete"), this.index.match("u"));
+	}
+
+	@Test
+	@Parameters({"x", "cache:x", "c:c:c", "list:", "userr"})
+	public void testNoMatch(String input) {
+		assertEquals(Collections.emptyList(), this.index.match(input));
+	}
+
+	@Test
+	public void testSuggestionsAreClosestFirst() {
+		assertEquals(Arrays.asList("list", "lint"), this.index.suggest("lsit", 2));
+		assertEquals(Arrays.asList("list"), this.index.suggest("lsit", 1));
+		assertEquals(Arrays.asList("cache:clear"), this.index.suggest("cahce:clear", 1));
+		assertEquals(Arrays.asList("user:create"), this.index.suggest("user:crete", 2));
+	}
+
+	@Test
+	public void testSuggestionsMatchPlainEditDistance() {
+		List<String> names = this.index.getNames();
+		for (String input : Arrays.asList("lst", "lisst", "cache:clera", "ucer:delete", "confg:dmp", "z", "")) {
+			for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+				List<String> suggestions = this.index.suggest(input, maxDistance);
+				for (String name : names) {
+					assertEquals(input + " -> " + name, distance(input, name) <= maxDistance, suggestions.contains(name));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyIndex() {
+		CommandIndex empty = new CommandIndex(Collections.emptyList());
+		assertEquals(0, empty.size());
+		assertEquals(Collections.emptyList(), empty.match("a"));
+		assertEquals(Collections.emptyList(), empty.suggest("a", 2));
+	}
+
+	/**
+	 * Optimal string alignment distance, the slow way
+	 */
+	private static int distance(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					d[i][j] = i + j;
+					continue;
+				}
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
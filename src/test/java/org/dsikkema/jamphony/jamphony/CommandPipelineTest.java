@@ -0,0 +1,309 @@
+package org.dsikkema.jamphony.jamphony;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.dsikkema.jamphony.jamphony.io.CapturedOutput;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.LinePipe;
+import org.dsikkema.jamphony.jamphony.io.Stdin;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.io.Type;
+import org.dsikkema.jamphony.jamphony.metrics.NoCommandInstrumentation;
+
+public class CommandPipelineTest {
+
+	private final Stdout stdout = new Stdout();
+	private final Stdin stdin = new Stdin();
+	private CommandRunner runner;
+
+	@Before
+	public void setUp() {
+		this.runner = new Bootstrap(new PipelineModule(this.stdout, this.stdin))
+				.setStdout(this.stdout)
+				.setStdin(this.stdin)
+				.setInstrumentation(new NoCommandInstrumentation())
+				.createRunner();
+	}
+
+	/**
+	 * Far more lines than fit in a pipe at once go through every stage
+	 */
+	@Test(timeout = 10000)
+	public void testLinesFlowThroughStages() throws InterruptedException {
+		int count = LinePipe.DEFAULT_CAPACITY * 20;
+
+		this.stdout.beginCapture();
+		int[] exitCodes = this.runner.runPipeline("numbers " + count + " | evens - | count -");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertEquals("", output.getErrString());
+		assertArrayEquals(new int[] {0, 0, 0}, exitCodes);
+		assertEquals((count / 2) + System.lineSeparator(), output.getOutString());
+	}
+
+	/**
+	 * A command that stops reading early does not leave the ones before it
+	 * waiting
+	 */
+	@Test(timeout = 10000)
+	public void testStageStopsReadingEarly() throws InterruptedException {
+		this.stdout.beginCapture();
+		int[] exitCodes = this.runner.runPipeline("numbers 1000000 | first -");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertArrayEquals(new int[] {0, 0}, exitCodes);
+		assertEquals("1" + System.lineSeparator(), output.getOutString());
+	}
+
+	/**
+	 * A command that never stops writing ends once the next one is done
+	 * reading, without counting as a failure
+	 */
+	@Test(timeout = 10000)
+	public void testInfiniteStageEndsWithBrokenPipe() throws InterruptedException {
+		this.stdout.beginCapture();
+		int[] exitCodes = this.runner.runPipeline("forever | first -");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertArrayEquals(new int[] {0, 0}, exitCodes);
+		assertEquals("y" + System.lineSeparator(), output.getOutString());
+		assertEquals("", output.getErrString());
+	}
+
+	/**
+	 * The other commands are cancelled when the caller is interrupted
+	 */
+	@Test(timeout = 10000)
+	public void testInterruptCancelsStages() throws InterruptedException {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		AtomicReference<Throwable> thrown = new AtomicReference<>();
+		Thread caller = new Thread(() -> {
+			try {
+				this.runner.runPipeline(Arrays.asList(new String[] {"forever"}, new String[] {"count", "-"}), executor);
+			} catch (Throwable e) {
+				thrown.set(e);
+			}
+		});
+		caller.start();
+		Thread.sleep(100);
+		caller.interrupt();
+		caller.join();
+		executor.shutdown();
+
+		assertTrue(thrown.get() instanceof InterruptedException);
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * A @Cacheable command reading from a pipe is not replayed for different
+	 * input with the same arguments
+	 */
+	@Test(timeout = 10000)
+	public void testCacheableStageIsNotReplayed() throws InterruptedException {
+		this.stdout.beginCapture();
+		this.runner.runPipeline("numbers 3 | sum");
+		this.runner.runPipeline("numbers 4 | sum");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertEquals("6" + System.lineSeparator() + "10" + System.lineSeparator(), output.getOutString());
+	}
+
+	/**
+	 * The next command sees the end of its input when one fails
+	 */
+	@Test(timeout = 10000)
+	public void testFailingStage() throws InterruptedException {
+		this.stdout.beginCapture();
+		int[] exitCodes = this.runner.runPipeline("numbers x | count -");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertArrayEquals(new int[] {1, 0}, exitCodes);
+		assertEquals("0" + System.lineSeparator(), output.getOutString());
+	}
+
+	/**
+	 * A quoted | is an argument, not a separator
+	 */
+	@Test
+	public void testQuotedPipeIsAnArgument() throws InterruptedException {
+		this.stdout.beginCapture();
+		int[] exitCodes = this.runner.runPipeline("count '|' a \"|\"");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertArrayEquals(new int[] {0}, exitCodes);
+		assertEquals("3" + System.lineSeparator(), output.getOutString());
+	}
+
+	@Test
+	public void testEmptyStage() throws InterruptedException {
+		this.stdout.beginCapture();
+		int[] exitCodes = this.runner.runPipeline("numbers 3 | | count -");
+		CapturedOutput output = this.stdout.endCapture();
+
+		assertArrayEquals(new int[] {1}, exitCodes);
+		assertEquals("No command given" + System.lineSeparator(), output.getErrString());
+	}
+
+	private static class PipelineModule implements CommandModuleInterface {
+		private final Stdout stdout;
+		private final Stdin stdin;
+
+		private PipelineModule(Stdout stdout, Stdin stdin) {
+			this.stdout = stdout;
+			this.stdin = stdin;
+		}
+
+		@Override
+		public Map<String, Supplier<? extends CommandInterface>> getCommandSuppliers() {
+			Map<String, Supplier<? extends CommandInterface>> suppliers = new HashMap<>();
+			suppliers.put("numbers", () -> new NumbersCommand(this.stdout));
+			suppliers.put("evens", () -> new FilterCommand(this.stdout, false));
+			suppliers.put("first", () -> new FilterCommand(this.stdout, true));
+			suppliers.put("count", () -> new CountCommand(this.stdout));
+			suppliers.put("forever", () -> new ForeverCommand(this.stdout));
+			suppliers.put("sum", () -> new SumCommand(this.stdout, this.stdin));
+			return suppliers;
+		}
+	}
+
+	private static class NumbersCommand implements CommandInterface {
+		private final Stdout stdout;
+
+		private NumbersCommand(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			int count = inputArgs.getInt(0);
+			for (int i = 1; i <= count; i++) {
+				this.stdout.writeLnOut(Integer.toString(i));
+			}
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addArgument("count", Type.INT);
+		}
+	}
+
+	private static class ForeverCommand implements CommandInterface {
+		private final Stdout stdout;
+
+		private ForeverCommand(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			while (true) {
+				this.stdout.writeLnOut("y");
+			}
+		}
+	}
+
+	/**
+	 * Adds up the numbers it reads from standard input
+	 */
+	@Cacheable
+	private static class SumCommand implements CommandInterface {
+		private final Stdout stdout;
+		private final Stdin stdin;
+
+		private SumCommand(Stdout stdout, Stdin stdin) {
+			this.stdout = stdout;
+			this.stdin = stdin;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			long sum = 0;
+			try {
+				BufferedReader reader = this.stdin.getReader();
+				String line;
+				while ((line = reader.readLine()) != null) {
+					sum += Long.parseLong(line);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			this.stdout.writeLnOut(Long.toString(sum));
+			return 0;
+		}
+	}
+
+	/**
+	 * Writes the even numbers it reads, or only the first one it reads
+	 */
+	private static class FilterCommand implements CommandInterface {
+		private final Stdout stdout;
+		private final boolean firstOnly;
+
+		private FilterCommand(Stdout stdout, boolean firstOnly) {
+			this.stdout = stdout;
+			this.firstOnly = firstOnly;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			Iterator<String> numbers = inputArgs.getStreamingArgument();
+			while (numbers.hasNext()) {
+				String number = numbers.next();
+				if (this.firstOnly) {
+					this.stdout.writeLnOut(number);
+					break;
+				}
+				if (Integer.parseInt(number) % 2 == 0) {
+					this.stdout.writeLnOut(number);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addStreamingArgument("numbers");
+		}
+	}
+
+	private static class CountCommand implements CommandInterface {
+		private final Stdout stdout;
+
+		private CountCommand(Stdout stdout) {
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			int count = 0;
+			for (Iterator<String> values = inputArgs.getStreamingArgument(); values.hasNext(); values.next()) {
+				count++;
+			}
+			this.stdout.writeLnOut(Integer.toString(count));
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addStreamingArgument("values");
+		}
+	}
+}
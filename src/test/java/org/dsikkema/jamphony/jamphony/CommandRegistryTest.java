@@ -4,7 +4,10 @@ import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -16,8 +19,12 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import com.google.inject.Injector;
+import com.google.inject.Provider;
 
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinitionFactory;
 import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.processor.AddCommand;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CommandRegistryTest {
@@ -28,6 +35,7 @@ public class CommandRegistryTest {
 	@Mock CommandModuleInterface commandModule;
 	@Mock Injector injector;
 	@Mock CommandInterface commandMock;
+	@Mock CommandInputDefinitionFactory inputDefinitionFactory;
 	@InjectMocks CommandRegistry commandRegistry;
 	
 	String commandName = "test-command";
@@ -48,29 +56,170 @@ public class CommandRegistryTest {
 		// expectations
 		expectedException.expect(InputException.class);
 		expectedException.expectMessage(String.format("Command '%s' not found", commandName));
-		verify(this.injector, never()).getInstance(any(Class.class));
 		
-		this.commandRegistry.getCommandInstance(commandName);
+		try {
+			this.commandRegistry.getCommandInstance(commandName);
+		} finally {
+			verify(this.injector, never()).getInstance(any(Class.class));
+		}
 	}
 	
 	@Test
 	public void testErrorCreatingCommand() throws InputException {
 		expectedException.expect(RuntimeException.class);
 		expectedException.expectMessage(String.format("Could not load command '%s'", this.commandName));
-		when(this.injector.getInstance(this.commandMock.getClass())).thenThrow(Exception.class);
+		Provider<CommandInterface> failingProvider = () -> {
+			throw new RuntimeException("Binding failed");
+		};
+		doReturn(failingProvider).when(this.injector).getProvider(this.commandMock.getClass());
 		
 		this.commandRegistry.getCommandInstance(this.commandName);
 	}
 
 	@Test
 	public void testSuccessfullyCreateCommand() throws InputException {
-		when(this.injector.getInstance(any(Class.class))).thenReturn(this.commandMock);
+		doReturn(this.commandProvider()).when(this.injector).getProvider(any(Class.class));
 		
 		assertEquals(
 			this.commandMock,
 			this.commandRegistry.getCommandInstance(this.commandName)
 		);
+	}
+	
+	/**
+	 * The command map is read and providers are resolved once, not per lookup
+	 */
+	@Test
+	public void testProvidersAreResolvedOnce() throws InputException {
+		doReturn(this.commandProvider()).when(this.injector).getProvider(any(Class.class));
+		
+		this.commandRegistry.getCommandInstance(this.commandName);
+		this.commandRegistry.getCommandInstance(this.commandName);
+		
+		verify(this.commandModule, times(1)).getCommandMap();
+		verify(this.injector, times(1)).getProvider(this.commandMock.getClass());
+		assertEquals(2, this.commandRegistry.getLookupCount());
+	}
+	
+	@Test
+	public void testRefreshReadsCommandMapAgain() throws InputException {
+		doReturn(this.commandProvider()).when(this.injector).getProvider(any(Class.class));
 		
-		verify(this.injector, times(1)).getInstance(this.commandMock.getClass());
+		this.commandRegistry.getCommandInstance(this.commandName);
+		this.commandRegistry.refresh();
+		this.commandRegistry.getCommandInstance(this.commandName);
+		
+		verify(this.commandModule, times(2)).getCommandMap();
+	}
+
+	/**
+	 * Commands given by class name are only loaded when they are run, so one
+	 * that cannot be loaded does not affect the others
+	 */
+	@Test
+	public void testCommandRegisteredByClassName() throws InputException {
+		Map<String, String> classNames = new HashMap<>();
+		classNames.put("add", "org.dsikkema.jamphony.jamphony.processor.AddCommand");
+		classNames.put("missing", "org.dsikkema.jamphony.jamphony.DoesNotExist");
+		when(this.commandModule.getCommandClassNames()).thenReturn(classNames);
+		doReturn(this.commandProvider()).when(this.injector).getProvider(any(Class.class));
+
+		assertEquals(this.commandMock, this.commandRegistry.getCommandInstance(this.commandName));
+		verify(this.injector, never()).getProvider(AddCommand.class);
+
+		assertEquals(this.commandMock, this.commandRegistry.getCommandInstance("add"));
+		verify(this.injector, times(1)).getProvider(AddCommand.class);
+
+		expectedException.expect(RuntimeException.class);
+		expectedException.expectMessage("Could not load command 'missing'");
+		this.commandRegistry.getCommandInstance("missing");
+	}
+
+	/**
+	 * A table is only asked for the command that is run, and the class is
+	 * not loaded by name when the table provides the command itself
+	 */
+	@Test
+	public void testCommandTableProvidesCommandByName() throws InputException {
+		CommandTable table = mock(CommandTable.class);
+		Map<String, String> classNames = new HashMap<>();
+		classNames.put("add", "org.dsikkema.jamphony.jamphony.processor.AddCommand");
+		classNames.put("missing", "org.dsikkema.jamphony.jamphony.DoesNotExist");
+		when(table.getCommandClassNames()).thenReturn(classNames);
+		doReturn((Provider<CommandInterface>)AddCommand::new).when(table).getProvider("missing", this.injector);
+		CommandRegistry registry = new CommandRegistry(table, this.injector, this.inputDefinitionFactory);
+
+		assertTrue(registry.getCommandInstance("missing") instanceof AddCommand);
+		verify(table, never()).getProvider("add", this.injector);
+	}
+
+	@Test
+	public void testCommandRegisteredBySupplier() throws InputException {
+		Map<String, Supplier<? extends CommandInterface>> suppliers = new HashMap<>();
+		suppliers.put("supplied", AddCommand::new);
+		when(this.commandModule.getCommandSuppliers()).thenReturn(suppliers);
+
+		assertTrue(this.commandRegistry.getCommandInstance("supplied") instanceof AddCommand);
+		verify(this.injector, never()).getProvider(any(Class.class));
+	}
+
+	@Test
+	public void testCommandRegisteredTwice() throws InputException {
+		when(this.commandModule.getCommandClassNames()).thenReturn(Collections.singletonMap(this.commandName, "com.example.Other"));
+
+		expectedException.expect(RuntimeException.class);
+		expectedException.expectMessage("Command 'test-command' is registered more than once");
+		this.commandRegistry.getCommandInstance(this.commandName);
+	}
+
+	@Test
+	public void testAbbreviatedCommandName() throws InputException {
+		Map<String, Supplier<? extends CommandInterface>> suppliers = new HashMap<>();
+		suppliers.put("cache:clear", AddCommand::new);
+		suppliers.put("cache:warmup", AddCommand::new);
+		when(this.commandModule.getCommandSuppliers()).thenReturn(suppliers);
+
+		assertEquals("cache:clear", this.commandRegistry.resolveCommandName("c:cl"));
+		assertEquals("test-command", this.commandRegistry.resolveCommandName("te"));
+		assertTrue(this.commandRegistry.getCommandInstance("ca:w") instanceof AddCommand);
+
+		expectedException.expect(InputException.class);
+		expectedException.expectMessage("Command 'ca' is ambiguous, it could be: cache:clear, cache:warmup");
+		this.commandRegistry.resolveCommandName("ca");
+	}
+
+	@Test
+	public void testNotFoundSuggestsCloseNames() throws InputException {
+		expectedException.expect(InputException.class);
+		expectedException.expectMessage("Command 'tset-comand' not found, did you mean: test-command?");
+		this.commandRegistry.getCommandInstance("tset-comand");
+	}
+
+	@Test
+	public void testInputDefinitionIsBuiltOncePerCommandClass() {
+		when(this.inputDefinitionFactory.create()).thenAnswer(invocation -> new CommandInputDefinition());
+
+		CommandInputDefinition first = this.commandRegistry.getInputDefinition(this.commandMock);
+		CommandInputDefinition second = this.commandRegistry.getInputDefinition(this.commandMock);
+
+		assertSame(first, second);
+		assertTrue(first.isFrozen());
+		verify(this.commandMock, times(1)).populateInputDefinition(first);
+	}
+
+	@Test
+	public void testInvalidatedInputDefinitionIsRebuilt() {
+		when(this.inputDefinitionFactory.create()).thenAnswer(invocation -> new CommandInputDefinition());
+
+		CommandInputDefinition first = this.commandRegistry.getInputDefinition(this.commandMock);
+		this.commandRegistry.invalidateInputDefinition(this.commandMock.getClass());
+		CommandInputDefinition second = this.commandRegistry.getInputDefinition(this.commandMock);
+
+		assertNotSame(first, second);
+		verify(this.commandMock, times(2)).populateInputDefinition(any(CommandInputDefinition.class));
+	}
+
+	private Provider<CommandInterface> commandProvider() {
+		return () -> this.commandMock;
 	}
 }
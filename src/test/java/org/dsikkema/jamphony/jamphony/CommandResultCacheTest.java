@@ -0,0 +1,202 @@
+package org.dsikkema.jamphony.jamphony;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.dsikkema.jamphony.jamphony.io.CapturedOutput;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.io.Type;
+import org.dsikkema.jamphony.jamphony.metrics.NoCommandInstrumentation;
+
+public class CommandResultCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private long now = 1000;
+	private final CommandResultCache cache = new CommandResultCache(() -> this.now);
+
+	@Test
+	public void testResultsExpire() {
+		this.cache.put("key", 0, output("cached"), 100);
+
+		this.now += 99;
+		assertEquals("cached", new String(this.cache.get("key").getOutput().getOut(), StandardCharsets.UTF_8));
+		this.now += 1;
+		assertNull(this.cache.get("key"));
+		assertEquals(0, this.cache.size());
+		assertEquals(1, this.cache.getHitCount());
+		assertEquals(1, this.cache.getMissCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		this.cache.setMaxEntries(2);
+		this.cache.put("a", 0, output("a"), 100);
+		this.cache.put("b", 0, output("b"), 100);
+		this.cache.get("a");
+		this.cache.put("c", 0, output("c"), 100);
+
+		assertNotNull(this.cache.get("a"));
+		assertNull(this.cache.get("b"));
+		assertNotNull(this.cache.get("c"));
+	}
+
+	@Test
+	public void testOutputSizeIsBounded() {
+		this.cache.setMaxBytes(10);
+		this.cache.put("a", 0, output("123456"), 100);
+		this.cache.put("b", 0, output("123456"), 100);
+
+		assertNull(this.cache.get("a"));
+		assertNotNull(this.cache.get("b"));
+
+		this.cache.put("c", 0, output("12345678901"), 100);
+		assertEquals(0, this.cache.size());
+	}
+
+	/**
+	 * Another process, here another cache, replays results from the directory
+	 */
+	@Test
+	public void testDirectoryIsShared() throws IOException {
+		Path directory = this.temporaryFolder.getRoot().toPath();
+		this.cache.setDirectory(directory);
+		this.cache.put("key", 3, new CapturedOutput("out".getBytes(StandardCharsets.UTF_8), "err".getBytes(StandardCharsets.UTF_8)), 100);
+
+		CommandResultCache other = new CommandResultCache(() -> this.now);
+		other.setDirectory(directory);
+		CommandResultCache.Result result = other.get("key");
+		assertEquals(3, result.getExitCode());
+		assertEquals("out", new String(result.getOutput().getOut(), StandardCharsets.UTF_8));
+		assertEquals("err", new String(result.getOutput().getErr(), StandardCharsets.UTF_8));
+		assertNull(other.get("other key"));
+
+		this.now += 100;
+		CommandResultCache later = new CommandResultCache(() -> this.now);
+		later.setDirectory(directory);
+		assertNull(later.get("key"));
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	public void testCorruptFileIsAMiss() throws IOException {
+		Path directory = this.temporaryFolder.getRoot().toPath();
+		this.cache.setDirectory(directory);
+		this.cache.put("key", 0, output("out"), 100);
+		try (Stream<Path> files = Files.list(directory)) {
+			Path file = files.findFirst().get();
+			Files.write(file, new byte[] {0x4A, 0x52, 0x43, 0x31, 0x7F, 0, 0, 0});
+		}
+
+		CommandResultCache other = new CommandResultCache(() -> this.now);
+		other.setDirectory(directory);
+		assertNull(other.get("key"));
+	}
+
+	/**
+	 * The same input, however it is written, runs the command once
+	 */
+	@Test
+	public void testRunnerReplaysCachedResult() {
+		AtomicInteger executions = new AtomicInteger();
+		Stdout stdout = new Stdout();
+		CommandRunner runner = new Bootstrap(new CacheableModule(executions, stdout))
+				.setStdout(stdout)
+				.setInstrumentation(new NoCommandInstrumentation())
+				.setResultCache(this.cache)
+				.createRunner();
+
+		stdout.beginCapture();
+		int[] exitCodes = {runner.run("lookup 7 --verbose --limit=10"), runner.run("lookup 007 --limit=010 --verbose"), runner.run("lookup 8")};
+		CapturedOutput output = stdout.endCapture();
+
+		String newline = System.lineSeparator();
+		assertEquals("", output.getErrString());
+		assertArrayEquals(new int[] {0, 0, 0}, exitCodes);
+		assertEquals(2, executions.get());
+		assertEquals("found 7" + newline + "found 7" + newline + "found 8" + newline, output.getOutString());
+	}
+
+	/**
+	 * The replayed output already ends the JSON array
+	 */
+	@Test
+	public void testReplayedJsonIsNotCompletedAgain() {
+		Stdout stdout = new Stdout();
+		CommandRunner runner = new Bootstrap(new CacheableModule(new AtomicInteger(), stdout))
+				.setStdout(stdout)
+				.setInstrumentation(new NoCommandInstrumentation())
+				.setResultCache(this.cache)
+				.createRunner();
+
+		stdout.beginCapture();
+		runner.run("--format=json lookup 7");
+		runner.run("--format=json lookup 7");
+		CapturedOutput output = stdout.endCapture();
+
+		String run = "found 7" + System.lineSeparator() + "[]\n";
+		assertEquals(run + run, output.getOutString());
+	}
+
+	private static CapturedOutput output(String out) {
+		return new CapturedOutput(out.getBytes(StandardCharsets.UTF_8), new byte[0]);
+	}
+
+	private static class CacheableModule implements CommandModuleInterface {
+		private final AtomicInteger executions;
+		private final Stdout stdout;
+
+		private CacheableModule(AtomicInteger executions, Stdout stdout) {
+			this.executions = executions;
+			this.stdout = stdout;
+		}
+
+		@Override
+		public Map<String, Supplier<? extends CommandInterface>> getCommandSuppliers() {
+			return Collections.singletonMap("lookup", () -> new LookupCommand(this.executions, this.stdout));
+		}
+	}
+
+	@Cacheable
+	private static class LookupCommand implements CommandInterface {
+		private final AtomicInteger executions;
+		private final Stdout stdout;
+
+		private LookupCommand(AtomicInteger executions, Stdout stdout) {
+			this.executions = executions;
+			this.stdout = stdout;
+		}
+
+		@Override
+		public int execute(InputData inputArgs) {
+			this.executions.incrementAndGet();
+			this.stdout.writeLnOut("found " + inputArgs.getInt(0));
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addArgument("id", Type.INT);
+			inputDefinition.addOption("limit", Type.INT);
+			inputDefinition.addFlag("verbose");
+		}
+	}
+}
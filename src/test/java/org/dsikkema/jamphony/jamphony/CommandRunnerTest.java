@@ -1,29 +1,41 @@
 package org.dsikkema.jamphony.jamphony;
 
 import static org.junit.Assert.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.Mockito.*;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
-import org.dsikkema.jamphony.jamphony.io.CommandInputDefinitionFactory;
 import org.dsikkema.jamphony.jamphony.io.InputData;
 import org.dsikkema.jamphony.jamphony.io.Stdout;
 import org.dsikkema.jamphony.jamphony.io.InputData.Factory;
 import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.OutputFormat;
+import org.dsikkema.jamphony.jamphony.io.RecordWriter;
+import org.dsikkema.jamphony.jamphony.io.UncheckedInputException;
+import org.dsikkema.jamphony.jamphony.metrics.CommandInstrumentation;
+import org.dsikkema.jamphony.jamphony.metrics.Phase;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 
@@ -35,15 +47,18 @@ public class CommandRunnerTest {
 	
 	@Mock CommandRegistry commandRegistryMock;
 	@Mock Factory inputDataFactoryMock;
-	@Mock CommandInputDefinitionFactory inputDefinitionFactoryMock;
 	@Mock Stdout stdoutMock;
 	@Mock CommandInterface commandMock;
+	@Mock CommandInstrumentation instrumentationMock;
+	@Mock RecordWriter recordWriterMock;
+	@Mock CommandResultCache resultCacheMock;
 	
 	@InjectMocks CommandRunner commandRunner;
 	
 	@Before
-	public void setUp() {
+	public void setUp() throws InputException {
 		MockitoAnnotations.initMocks(this);
+		when(this.commandRegistryMock.resolveCommandName(anyString())).then(returnsFirstArg());
 	}
 	
 	/**
@@ -57,7 +72,7 @@ public class CommandRunnerTest {
 		String commandString = "test-command stringArg 123 --option1";
 		
 		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
-		when(this.inputDefinitionFactoryMock.create()).thenReturn(Mockito.mock(CommandInputDefinition.class));
+		when(this.commandRegistryMock.getInputDefinition(this.commandMock)).thenReturn(Mockito.mock(CommandInputDefinition.class));
 		when(this.commandMock.execute(any())).thenReturn(exitCode);
 		
 		assertEquals(exitCode, this.commandRunner.run(commandString));
@@ -72,13 +87,29 @@ public class CommandRunnerTest {
 		String commandString = "test-command something is wrong with this input";
 		
 		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
-		when(this.inputDefinitionFactoryMock.create()).thenReturn(Mockito.mock(CommandInputDefinition.class));
+		when(this.commandRegistryMock.getInputDefinition(this.commandMock)).thenReturn(Mockito.mock(CommandInputDefinition.class));
 		when(this.inputDataFactoryMock.create(any(), any())).thenThrow(new InputException("Bad input"));
 
 		assertEquals(1, this.commandRunner.run(commandString));
 		
 		verify(this.commandMock, never()).execute(any());
 		verify(this.stdoutMock, times(1)).writeLnErr("Bad input");
+		verify(this.instrumentationMock).inputError(eq("test-command"), eq(Phase.INPUT), any());
+	}
+	
+	/**
+	 * Invalid input found only once the command reads it is an input error,
+	 * not a command failure
+	 */
+	@Test
+	public void testCatchUncheckedInputException() throws InputException {
+		String commandString = "test-command --lazyOption=invalid";
+		
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+		when(this.commandMock.execute(any())).thenThrow(new UncheckedInputException(new InputException("Bad lazy input")));
+		
+		assertEquals(1, this.commandRunner.run(commandString));
+		verify(this.stdoutMock, times(1)).writeLnErr("Bad lazy input");
 	}
 	
 	@Test
@@ -91,7 +122,7 @@ public class CommandRunnerTest {
 		this.expectedException.expectMessage(expectedExceptionMessage);
 		
 		when(this.commandRegistryMock.getCommandInstance("test-command-throws-exception")).thenReturn(this.commandMock);
-		when(this.inputDefinitionFactoryMock.create()).thenReturn(Mockito.mock(CommandInputDefinition.class));
+		when(this.commandRegistryMock.getInputDefinition(this.commandMock)).thenReturn(Mockito.mock(CommandInputDefinition.class));
 		when(this.commandMock.execute(any())).thenThrow(new RuntimeException(expectedExceptionMessage));
 
 		this.commandRunner.run(commandString);
@@ -107,6 +138,185 @@ public class CommandRunnerTest {
 		verify(this.stdoutMock, times(1)).writeLnErr(expectedErrorMessage);
 	}
 	
+	/**
+	 * Global options go before the command name and are not passed on to
+	 * the command
+	 */
+	@Test
+	public void testNoBufferGlobalOption() throws InputException {
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+		when(this.commandMock.execute(any())).thenReturn(0);
+
+		assertEquals(0, this.commandRunner.run("--no-buffer test-command arg1"));
+
+		verify(this.inputDataFactoryMock).create(any(), eq(new String[] {"test-command", "arg1"}));
+		verify(this.stdoutMock).setUnbufferedForThread(true);
+		verify(this.stdoutMock).setUnbufferedForThread(false);
+		verify(this.stdoutMock, never()).setBuffered(anyBoolean());
+		verify(this.stdoutMock).flush();
+	}
+
+	@Test
+	public void testUnknownGlobalOption() {
+		assertEquals(1, this.commandRunner.run("--no-such-thing test-command"));
+		verify(this.stdoutMock).writeLnErr("Global option '--no-such-thing' is not defined");
+		verify(this.stdoutMock).flush();
+	}
+
+	/**
+	 * Every phase that was reached is timed and passed on
+	 */
+	@Test
+	public void testInstrumentation() throws InputException {
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+		when(this.commandMock.execute(any())).thenReturn(0);
+
+		this.commandRunner.run("test-command arg1");
+
+		ArgumentCaptor<long[]> timings = ArgumentCaptor.forClass(long[].class);
+		verify(this.instrumentationMock).runCompleted(eq("test-command"), eq(0), timings.capture());
+		for (Phase phase : Phase.values()) {
+			assertTrue(phase + " not timed", timings.getValue()[phase.ordinal()] >= 0);
+		}
+	}
+
+	@Test
+	public void testInstrumentationOfUnknownCommand() throws InputException {
+		InputException notFound = new InputException("Command 'unknown-command' not found");
+		when(this.commandRegistryMock.getCommandInstance("unknown-command")).thenThrow(notFound);
+
+		this.commandRunner.run(new String[] {"unknown-command"});
+
+		ArgumentCaptor<long[]> timings = ArgumentCaptor.forClass(long[].class);
+		verify(this.instrumentationMock).inputError(null, Phase.LOOKUP, notFound);
+		verify(this.instrumentationMock).runCompleted(isNull(), eq(1), timings.capture());
+		assertEquals(-1, timings.getValue()[Phase.TOKENIZE.ordinal()]);
+		assertEquals(-1, timings.getValue()[Phase.EXECUTE.ordinal()]);
+	}
+
+	@Test
+	public void testProfileGlobalOption() throws InputException {
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+		when(this.instrumentationMock.report("test-command")).thenReturn("test-command: 1 runs, 0 input errors\n");
+
+		this.commandRunner.run("--profile test-command");
+
+		verify(this.stdoutMock).writeLnErr(startsWith("profile: tokenize "));
+		verify(this.stdoutMock).writeLnErr("test-command: 1 runs, 0 input errors");
+	}
+
+	@Test
+	public void testFormatGlobalOption() throws InputException {
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+
+		this.commandRunner.run("--format=ndjson test-command");
+
+		verify(this.recordWriterMock).setFormat(OutputFormat.NDJSON);
+		verify(this.recordWriterMock).endRun();
+	}
+
+	@Test
+	public void testUnknownFormat() {
+		assertEquals(1, this.commandRunner.run("--format=xml test-command"));
+		verify(this.stdoutMock).writeLnErr("Output format 'xml' is not defined, use one of: text, ndjson, json");
+		verify(this.recordWriterMock).endRun();
+	}
+
+	/**
+	 * A training run loads every command without executing any, unless a
+	 * command is given too
+	 */
+	@Test
+	public void testTrainCdsLoadsEveryCommand() throws InputException {
+		CommandInputDefinition inputDefinition = Mockito.mock(CommandInputDefinition.class);
+		when(this.commandRegistryMock.getCommandIndex()).thenReturn(new CommandIndex(Arrays.asList("test-command", "other-command")));
+		when(this.commandRegistryMock.getCommandInstance(anyString())).thenReturn(this.commandMock);
+		when(this.commandRegistryMock.getInputDefinition(this.commandMock)).thenReturn(inputDefinition);
+		when(this.inputDataFactoryMock.create(eq(inputDefinition), any())).thenThrow(new InputException("Missing argument"));
+
+		assertEquals(0, this.commandRunner.run("--train-cds"));
+		verify(this.commandRegistryMock, times(2)).getInputDefinition(this.commandMock);
+		verify(this.commandMock, never()).execute(any());
+		verify(this.stdoutMock).writeLnErr("Loaded 2 of 2 commands for class data sharing");
+
+		when(this.commandMock.execute(any())).thenReturn(7);
+		when(this.inputDataFactoryMock.create(eq(inputDefinition), any())).thenReturn(Mockito.mock(InputData.class));
+		assertEquals(7, this.commandRunner.run("--train-cds test-command"));
+	}
+
+	@Test
+	public void testUnterminatedQuote() {
+		assertEquals(1, this.commandRunner.run("test-command 'not closed"));
+		verify(this.stdoutMock, times(1)).writeLnErr("Unterminated quote in command string");
+	}
+	
+	/**
+	 * Exit codes come back in the order the commands were given, and one
+	 * failing command does not stop the others
+	 */
+	@Test
+	public void testRunAll() throws Exception {
+		CommandInterface failingCommandMock = Mockito.mock(CommandInterface.class);
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+		when(this.commandRegistryMock.getCommandInstance("test-command-throws-exception")).thenReturn(failingCommandMock);
+		when(this.commandMock.execute(any())).thenReturn(0);
+		when(failingCommandMock.execute(any())).thenThrow(new RuntimeException("This is a test exception message!"));
+
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"test-command"});
+		commands.add(new String[] {"test-command-throws-exception"});
+		commands.add(new String[] {"unknown-command"});
+		commands.add(new String[] {"test-command", "arg1"});
+		when(this.commandRegistryMock.getCommandInstance("unknown-command")).thenThrow(new InputException("Command 'unknown-command' not found"));
+
+		assertArrayEquals(new int[] {0, 1, 1, 0}, this.commandRunner.runAll(commands));
+		verify(this.stdoutMock, times(4)).beginCapture();
+		verify(this.stdoutMock, times(4)).endCapture();
+		verify(this.stdoutMock, times(4)).replay(any());
+		verify(this.stdoutMock).writeLnErr("Command 'unknown-command' not found");
+		verify(this.stdoutMock).writeLnErr("java.lang.RuntimeException: This is a test exception message!");
+	}
+
+	/**
+	 * Interrupting the waiting thread interrupts the running command and
+	 * keeps the queued one from starting
+	 */
+	@Test(timeout = 10000)
+	public void testRunAllCancelsCommandsWhenInterrupted() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean commandInterrupted = new AtomicBoolean();
+		AtomicBoolean runAllInterrupted = new AtomicBoolean();
+		when(this.commandRegistryMock.getCommandInstance("test-command")).thenReturn(this.commandMock);
+		when(this.commandMock.execute(any())).then(invocation -> {
+			started.countDown();
+			try {
+				Thread.sleep(10000);
+			} catch (InterruptedException e) {
+				commandInterrupted.set(true);
+			}
+			return 0;
+		});
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Thread caller = new Thread(() -> {
+			try {
+				this.commandRunner.runAll(Arrays.asList(new String[] {"test-command"}, new String[] {"test-command"}), executor);
+			} catch (InterruptedException e) {
+				runAllInterrupted.set(true);
+			}
+		});
+		caller.start();
+		started.await();
+		caller.interrupt();
+		caller.join();
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+
+		assertTrue(runAllInterrupted.get());
+		assertTrue(commandInterrupted.get());
+		verify(this.commandMock, times(1)).execute(any());
+	}
+
 	@Test
 	@Parameters(method="splitSpaceDelimitedStringTestData")
 	public void testSpaceSplitting(String commandString, String[] expectedSplitArray) throws Exception {
@@ -136,6 +346,18 @@ public class CommandRunnerTest {
 		String[] escapedSpacesArray = new String[] {"test-command", "arg with  several  spaces", "arg2", "--option1=  val including spaces  ", "--flag1"};
 		testCases.add(new Object[] {escapedSpaces, escapedSpacesArray});
 		
+		String surroundingWhitespace = "  test-command\targ1   arg2 ";
+		String[] surroundingWhitespaceArray = new String[] {"test-command", "arg1", "arg2"};
+		testCases.add(new Object[] {surroundingWhitespace, surroundingWhitespaceArray});
+		
+		String quoted = "test-command 'single  quoted' \"double \\\"quoted\\\"\" --option1=\"a b\"c '' --flag1";
+		String[] quotedArray = new String[] {"test-command", "single  quoted", "double \"quoted\"", "--option1=a bc", "", "--flag1"};
+		testCases.add(new Object[] {quoted, quotedArray});
+		
+		String literalBackslashes = "test-command C:\\dir\\file 'it\\s' a\\\\b";
+		String[] literalBackslashesArray = new String[] {"test-command", "C:\\dir\\file", "it\\s", "a\\b"};
+		testCases.add(new Object[] {literalBackslashes, literalBackslashesArray});
+		
 		return testCases.toArray(new Object[testCases.size()]);
 	}
 }
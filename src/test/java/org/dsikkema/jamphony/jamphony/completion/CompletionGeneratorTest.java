@@ -0,0 +1,89 @@
+package org.dsikkema.jamphony.jamphony.completion;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import org.dsikkema.jamphony.jamphony.Bootstrap;
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandModuleInterface;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.Type;
+
+public class CompletionGeneratorTest {
+
+	private final CompletionGenerator generator = new CompletionGenerator(new Bootstrap(new DeployModule()).createRegistry());
+
+	@Test
+	public void testBashScript() {
+		String script = this.generator.generate(Shell.BASH, "my-app");
+
+		assertTrue(script.contains("candidates='--no-buffer --profile --format=text --format=ndjson --format=json --train-cds deploy:run'"));
+		assertTrue(script.contains("candidates='--dry-run --config= --replicas='"));
+		assertTrue(script.contains("'--replicas=') name='replicas' type=Int ;;"));
+		assertTrue(script.contains("0) name='environment' type=String ;;"));
+		assertTrue(script.contains("*) name='hosts' type=String ;;"));
+		assertTrue(script.contains("$MY_APP_COMPLETION_PORT"));
+		assertTrue(script.endsWith("complete -F _my_app_complete 'my-app'\n"));
+	}
+
+	@Test
+	public void testZshScript() {
+		String script = this.generator.generate(Shell.ZSH, "my-app");
+
+		assertTrue(script.startsWith("#compdef my-app\n"));
+		assertTrue(script.contains("compadd -- '--dry-run'"));
+		assertTrue(script.contains("compadd -S '' -- '--config=' '--replicas='"));
+		assertTrue(script.contains("('--replicas') name='replicas' type=Int ;;"));
+		assertTrue(script.endsWith("compdef _my_app_complete 'my-app'\n"));
+	}
+
+	@Test
+	public void testFishScript() {
+		String script = this.generator.generate(Shell.FISH, "my-app");
+
+		assertTrue(script.contains("printf '%s\\t%s\\n' '--dry-run' 'flag' '--config=' 'String' '--replicas=' 'Int'"));
+		assertTrue(script.contains("case '--replicas='\n                        set name 'replicas'; set type Int"));
+		assertTrue(script.endsWith("complete -c 'my-app' -f -a '(_my_app_complete)'\n"));
+	}
+
+	@Test
+	public void testPortVariable() {
+		assertEquals("MY_APP_COMPLETION_PORT", CompletionGenerator.getPortVariable("my-app"));
+	}
+
+	static class DeployModule implements CommandModuleInterface {
+		@Override
+		public Map<String, Supplier<? extends CommandInterface>> getCommandSuppliers() {
+			return Collections.singletonMap("deploy:run", DeployCommand::new);
+		}
+	}
+
+	static class DeployCommand implements CommandInterface, CompletingCommand {
+		@Override
+		public int execute(InputData inputArgs) {
+			return 0;
+		}
+
+		@Override
+		public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+			inputDefinition.addArgument("environment", Type.STRING);
+			inputDefinition.addOption("replicas", Type.INT);
+			inputDefinition.addOption("config", Type.STRING);
+			inputDefinition.addFlag("dry-run");
+			inputDefinition.addStreamingArgument("hosts");
+		}
+
+		@Override
+		public List<String> completeValue(String entryName, String prefix) {
+			return entryName.equals("environment") ? Arrays.asList("preview", "prod", "staging") : Collections.emptyList();
+		}
+	}
+}
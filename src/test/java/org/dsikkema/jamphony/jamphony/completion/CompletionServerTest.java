@@ -0,0 +1,68 @@
+package org.dsikkema.jamphony.jamphony.completion;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.dsikkema.jamphony.jamphony.Bootstrap;
+import org.dsikkema.jamphony.jamphony.completion.CompletionGeneratorTest.DeployModule;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+
+public class CompletionServerTest {
+
+	private final CompletionServer server = new CompletionServer(new Bootstrap(new DeployModule()).createRegistry(), mock(Stdout.class));
+
+	@Test
+	public void testCompleteFiltersByPrefix() {
+		assertEquals(Arrays.asList("preview", "prod"), this.server.complete("deploy:run", "environment", "pr"));
+		assertEquals(Arrays.asList("staging"), this.server.complete("d:r", "environment", "s"));
+	}
+
+	@Test
+	public void testNothingToComplete() {
+		assertEquals(Collections.emptyList(), this.server.complete("deploy:run", "config", ""));
+		assertEquals(Collections.emptyList(), this.server.complete("missing", "environment", ""));
+	}
+
+	@Test
+	public void testServeAnswersOneQuestionPerConnection() throws Exception {
+		ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(() -> {
+			try {
+				this.server.serve(serverSocket);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		thread.start();
+
+		try (
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+		) {
+			writer.write("deploy:run\tenvironment\tp\n");
+			writer.flush();
+
+			assertEquals("preview", reader.readLine());
+			assertEquals("prod", reader.readLine());
+			assertNull(reader.readLine());
+		} finally {
+			serverSocket.close();
+			thread.join(5000);
+		}
+	}
+}
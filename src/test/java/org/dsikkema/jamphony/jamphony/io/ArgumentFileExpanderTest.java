@@ -0,0 +1,137 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+/**
+ * Every test runs twice, once reading the file into a String and once
+ * memory-mapping it
+ */
+@RunWith(JUnitParamsRunner.class)
+public class ArgumentFileExpanderTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException expectedException = ExpectedException.none();
+
+	private CommandInputDefinition inputDefinition;
+
+	@Before
+	public void setUp() {
+		this.inputDefinition = new CommandInputDefinition();
+		this.inputDefinition.addArgument("target", Type.STRING);
+		this.inputDefinition.setArgumentFiles(true);
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testEntriesWithoutArgumentFileAreReturnedAsIs(long mapThreshold) throws InputException {
+		String[] entries = {"cmd", "arg", "--flag"};
+
+		assertSame(entries, this.expander(mapThreshold).expand(entries, this.inputDefinition));
+	}
+
+	/**
+	 * Commands that do not turn argument files on get "@" values as they are
+	 */
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testEntriesAreKeptWithoutArgumentFiles(long mapThreshold) throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addArgument("user", Type.STRING);
+		String[] entries = {"cmd", "@alice", "@@bob"};
+
+		assertSame(entries, this.expander(mapThreshold).expand(entries, inputDefinition.freeze()));
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testArgumentFileIsExpandedInPlace(long mapThreshold) throws InputException, IOException {
+		File argfile = this.argfile("--name=\"Zoë Smith\"\n--path=C:\\temp\r\n  --quiet\t'it''s'\n");
+
+		assertArrayEquals(
+			new String[] {"cmd", "arg", "--name=Zoë Smith", "--path=C:\\temp", "--quiet", "its", "--last", "@literal"},
+			this.expander(mapThreshold).expand(new String[] {"cmd", "arg", "@" + argfile.getPath(), "--last", "@@literal"}, this.inputDefinition)
+		);
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testArgumentsFromArgumentFile(long mapThreshold) throws InputException, IOException {
+		File argfile = this.argfile("the-target --flag");
+
+		assertArrayEquals(
+			new String[] {"cmd", "the-target", "--flag"},
+			this.expander(mapThreshold).expand(new String[] {"cmd", "@" + argfile.getPath()}, this.inputDefinition)
+		);
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testStreamingArgumentKeepsItsFiles(long mapThreshold) throws InputException, IOException {
+		File argfile = this.argfile("the-target");
+		this.inputDefinition.addStreamingArgument("values");
+		String source = "@" + argfile.getPath();
+
+		assertArrayEquals(
+			new String[] {"cmd", "the-target", source, "@@x"},
+			this.expander(mapThreshold).expand(new String[] {"cmd", source, source, "@@x"}, this.inputDefinition)
+		);
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testEmptyArgumentFile(long mapThreshold) throws InputException, IOException {
+		File argfile = this.argfile("");
+
+		assertArrayEquals(
+			new String[] {"cmd", "arg"},
+			this.expander(mapThreshold).expand(new String[] {"cmd", "arg", "@" + argfile.getPath()}, this.inputDefinition)
+		);
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testMissingArgumentFile(long mapThreshold) throws InputException {
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("Could not read argument file 'does-not-exist.txt'");
+
+		this.expander(mapThreshold).expand(new String[] {"cmd", "@does-not-exist.txt"}, this.inputDefinition);
+	}
+
+	@Test
+	@Parameters({"0", "1048576"})
+	public void testErrorInArgumentFileNamesFile(long mapThreshold) throws InputException, IOException {
+		File argfile = this.argfile("--name=\"unterminated\n");
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("Argument file '" + argfile.getPath() + "': Unterminated quote in command string");
+
+		this.expander(mapThreshold).expand(new String[] {"cmd", "@" + argfile.getPath()}, this.inputDefinition);
+	}
+
+	private ArgumentFileExpander expander(long mapThreshold) {
+		return new ArgumentFileExpander(new CommandLineTokenizer(), mapThreshold);
+	}
+
+	private File argfile(String content) throws IOException {
+		File file = this.temporaryFolder.newFile();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,152 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.dsikkema.jamphony.jamphony.io.ValidationError.Code;
+
+public class ArgumentStreamTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private CommandInputDefinition inputDefinition;
+	private InputData.Factory inputDataFactory;
+
+	@Before
+	public void setUp() {
+		this.inputDefinition = new CommandInputDefinition();
+		this.inputDefinition.addArgument("target", Type.STRING);
+		this.inputDefinition.addStreamingArgument("files");
+		this.inputDefinition.addFlag("verbose");
+		this.inputDefinition.freeze();
+		this.inputDataFactory = new InputData.Factory(this.stdin("from-stdin\n\nalso-stdin\n"));
+	}
+
+	@Test
+	public void testValuesFromAllSources() throws Exception {
+		File argfile = this.temporaryFolder.newFile("args.txt");
+		Files.write(argfile.toPath(), "one\r\ntwo\n\nthree".getBytes(StandardCharsets.UTF_8));
+
+		InputData inputData = this.inputDataFactory.create(this.inputDefinition, new String[] {
+			"cmd", "dest", "first", "@" + argfile.getPath(), "--verbose", "-", "@@literal"
+		});
+
+		assertEquals("dest", inputData.getArgument("target").getStringValue());
+		assertTrue(inputData.isFlagSet("verbose"));
+		assertEquals(
+			Arrays.asList("first", "one", "two", "three", "from-stdin", "also-stdin", "@literal"),
+			inputData.getStreamingArgument().stream().collect(Collectors.toList())
+		);
+	}
+
+	/**
+	 * Every reader of standard input is the same one, so nothing is lost in
+	 * the read-ahead of an earlier reader
+	 */
+	@Test
+	public void testStdinIsSharedWithCommand() throws IOException {
+		Stdin stdin = this.stdin("first\nsecond\nthird\n");
+
+		assertEquals("first", stdin.getReader().readLine());
+		try (ArgumentStream values = new ArgumentStream(Arrays.asList("-", "-"), stdin)) {
+			assertEquals("second", values.next());
+		}
+		assertEquals("third", stdin.getReader().readLine());
+	}
+
+	@Test
+	public void testNoValues() throws InputException {
+		InputData inputData = this.inputDataFactory.create(this.inputDefinition, new String[] {"cmd", "dest"});
+
+		assertFalse(inputData.getStreamingArgument().hasNext());
+	}
+
+	@Test
+	public void testUnreadableFileIsAnInputError() {
+		try {
+			this.inputDataFactory.create(this.inputDefinition, new String[] {"cmd", "dest", "@does/not/exist"});
+			fail();
+		} catch (InputValidationException e) {
+			assertEquals(Code.UNREADABLE_FILE, e.getErrors().get(0).getCode());
+			assertEquals("File 'does/not/exist' does not exist or is not readable", e.getMessage());
+		} catch (InputException e) {
+			fail();
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testCommandWithoutStreamingArgument() throws InputException {
+		CommandInputDefinition definition = new CommandInputDefinition();
+		this.inputDataFactory.create(definition, new String[] {"cmd"}).getStreamingArgument();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testOnlyOneStreamingArgument() {
+		CommandInputDefinition definition = new CommandInputDefinition();
+		definition.addStreamingArgument("a");
+		definition.addStreamingArgument("b");
+	}
+
+	/**
+	 * A window much smaller than the file, so that lines cross window
+	 * boundaries
+	 */
+	@Test
+	public void testMappedLineReaderMovesWindow() throws IOException {
+		List<String> expected = new ArrayList<>();
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			String line = "line-" + i + "-é";
+			expected.add(line);
+			content.append(line).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		File file = this.temporaryFolder.newFile("lines.txt");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+		List<String> lines = new ArrayList<>();
+		try (MappedLineReader reader = new MappedLineReader(file.toPath(), 64)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		assertEquals(expected, lines);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMappedLineReaderLineLongerThanWindow() throws IOException {
+		File file = this.temporaryFolder.newFile("long.txt");
+		Files.write(file.toPath(), "short\nmuch-too-long-for-the-window\n".getBytes(StandardCharsets.UTF_8));
+
+		try (MappedLineReader reader = new MappedLineReader(file.toPath(), 16)) {
+			assertEquals("short", reader.readLine());
+			reader.readLine();
+		}
+	}
+
+	private Stdin stdin(String content) {
+		InputStream in = new ByteArrayInputStream(content.getBytes());
+		return new Stdin() {
+			@Override
+			public InputStream getInputStream() {
+				return in;
+			}
+		};
+	}
+}
@@ -0,0 +1,154 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.inject.Guice;
+
+public class BufferedStdoutTest {
+
+	private static final String NEWLINE = System.lineSeparator();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ByteArrayOutputStream out;
+	private ByteArrayOutputStream err;
+
+	@Before
+	public void setUp() {
+		this.out = new ByteArrayOutputStream();
+		this.err = new ByteArrayOutputStream();
+	}
+
+	@Test
+	public void testHoldsOutputUntilFlush() {
+		BufferedStdout stdout = this.createStdout(1024, 60_000);
+
+		stdout.writeLnOut("line 1");
+		stdout.writeLnOut("line 2");
+		assertEquals("", this.out.toString());
+
+		stdout.flush();
+		assertEquals("line 1" + NEWLINE + "line 2" + NEWLINE, this.out.toString());
+	}
+
+	@Test
+	public void testFlushesWhenBufferIsFull() {
+		BufferedStdout stdout = this.createStdout(16, 60_000);
+
+		stdout.writeLnOut("more than sixteen characters");
+		assertEquals("more than sixteen characters" + NEWLINE, this.out.toString());
+	}
+
+	@Test
+	public void testFlushesAfterInterval() {
+		BufferedStdout stdout = this.createStdout(1024, 0);
+
+		stdout.writeLnOut("line 1");
+		assertEquals("line 1" + NEWLINE, this.out.toString());
+	}
+
+	@Test
+	public void testUnbuffered() {
+		BufferedStdout stdout = this.createStdout(1024, 60_000);
+
+		stdout.writeLnOut("line 1");
+		stdout.setBuffered(false);
+		assertEquals("line 1" + NEWLINE, this.out.toString());
+
+		stdout.writeLnOut("line 2");
+		assertEquals("line 1" + NEWLINE + "line 2" + NEWLINE, this.out.toString());
+		assertFalse(stdout.isBuffered());
+	}
+
+	/**
+	 * --no-buffer on one thread leaves buffering of other threads alone
+	 */
+	@Test
+	public void testUnbufferedForThread() throws InterruptedException {
+		BufferedStdout stdout = this.createStdout(1024, 60_000);
+
+		stdout.setUnbufferedForThread(true);
+		stdout.writeLnOut("line 1");
+		assertEquals("line 1" + NEWLINE, this.out.toString());
+
+		Thread other = new Thread(() -> stdout.writeLnOut("other thread"));
+		other.start();
+		other.join();
+		assertEquals("line 1" + NEWLINE, this.out.toString());
+
+		stdout.setUnbufferedForThread(false);
+		stdout.writeLnOut("line 2");
+		assertEquals("line 1" + NEWLINE, this.out.toString());
+		assertTrue(stdout.isBuffered());
+	}
+
+	/**
+	 * Standard error goes out right away, after whatever standard output
+	 * was written before it
+	 */
+	@Test
+	public void testErrorFlushesPendingOutput() {
+		BufferedStdout stdout = this.createStdout(1024, 60_000);
+
+		stdout.writeLnOut("line 1");
+		stdout.writeLnErr("error");
+		assertEquals("line 1" + NEWLINE, this.out.toString());
+		assertEquals("error" + NEWLINE, this.err.toString());
+	}
+
+	@Test
+	public void testReplayGoesAfterPendingOutput() {
+		BufferedStdout stdout = this.createStdout(1024, 60_000);
+
+		stdout.writeLnOut("line 1");
+		stdout.beginCapture();
+		stdout.writeLnOut("captured");
+		CapturedOutput captured = stdout.endCapture();
+		assertEquals("", this.out.toString());
+
+		stdout.replay(captured);
+		assertEquals("line 1" + NEWLINE + "captured" + NEWLINE, this.out.toString());
+	}
+
+	@Test
+	public void testBytesGoAfterPendingOutput() throws IOException {
+		BufferedStdout stdout = this.createStdout(1024, 60_000);
+		File file = this.temporaryFolder.newFile();
+		Files.write(file.toPath(), "from file".getBytes(StandardCharsets.US_ASCII));
+
+		stdout.writeLnOut("line 1");
+		stdout.write(ByteBuffer.wrap("bytes ".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals("line 1" + NEWLINE + "bytes ", this.out.toString());
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			stdout.transferFrom(channel, 0, Long.MAX_VALUE);
+		}
+		assertEquals("line 1" + NEWLINE + "bytes from file", this.out.toString());
+	}
+
+	@Test
+	public void testModuleBindsBufferedStdout() {
+		Stdout stdout = Guice.createInjector(new BufferedStdoutModule()).getInstance(Stdout.class);
+		assertTrue(stdout instanceof BufferedStdout);
+	}
+
+	private BufferedStdout createStdout(int bufferSize, long flushIntervalMillis) {
+		return new BufferedStdout(this.out, new PrintStream(this.err, true), bufferSize, flushIntervalMillis);
+	}
+}
@@ -1,7 +1,12 @@
 package org.dsikkema.jamphony.jamphony.io;
 
+import static org.junit.Assert.*;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -49,6 +54,21 @@ public class CommandInputIntegrationTest {
 		testData.verifyProcessedInputData(inputData);
 	}
 	
+	/**
+	 * Frozen definitions use different lookup structures, so run the same
+	 * input through them
+	 */
+	@Test
+	@Parameters(method = "validCommandInput")
+	public void testWithFrozenDefinition(String argString, CommandInputTestData testData) throws InputException {
+		String[] args = this.explodeByWhiteSpace(argString);
+		CommandInputDefinition inputDefinition = testData.createInputDefinition().freeze();
+
+		InputData inputData = this.inputDataFactory.create(inputDefinition, args);
+
+		testData.verifyProcessedInputData(inputData);
+	}
+
 	@Test
 	@Parameters(method = "invalidCommandInput")
 	public void testInvalidInput(String commandString, CommandInputTestData testData, String exceptionMessage) throws InputException {
@@ -398,6 +418,237 @@ public class CommandInputIntegrationTest {
 		testData.verifyProcessedInputData(inputData);
 	}
 	
+	@Test
+	public void testSlotGetters() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		int idSlot = inputDefinition.addArgument("id", Type.LONG);
+		int nameSlot = inputDefinition.addArgument("name", Type.STRING);
+		int countSlot = inputDefinition.addOption("count", Type.INT);
+		int ratioSlot = inputDefinition.addOption("ratio", Type.DOUBLE);
+		int missingSlot = inputDefinition.addOption("missing", Type.INT);
+
+		String[] args = new String[] {"test-command", "9223372036854775807", "some-name", "--count=-12", "--ratio=0.25"};
+		InputData inputData = this.inputDataFactory.create(inputDefinition, args);
+
+		assertEquals(Long.MAX_VALUE, inputData.getLong(idSlot));
+		assertEquals("some-name", inputData.getString(nameSlot));
+		assertEquals(-12, inputData.getInt(countSlot));
+		assertEquals(0.25, inputData.getDouble(ratioSlot), 0);
+		assertFalse(inputData.isProvided(missingSlot));
+
+		// name-based getters see the same values
+		assertEquals(Long.MAX_VALUE, inputData.getArgument("id").getLongValue());
+		assertEquals(-12, inputData.getOption("count").getIntValue());
+		assertNull(inputData.getOption("missing"));
+		assertSame(inputData.getOption("count"), inputData.getOption("count"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testOptionNameCanOnlyBeUsedOnce() {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addOption("count", Type.INT);
+		inputDefinition.addOption("count", Type.STRING);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testArgumentNameCanOnlyBeUsedOnce() {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addArgument("name", Type.STRING);
+		inputDefinition.addArgument("name", Type.STRING);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFlagsCannotBeModified() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addFlag("verbose");
+
+		this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "--verbose"}).getFlags().clear();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testArgumentsCannotBeModified() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addArgument("name", Type.STRING);
+
+		this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "x"}).getArguments().clear();
+	}
+
+	/**
+	 * Flags keep the number they were added with once frozen, though their
+	 * names are sorted for lookups
+	 */
+	@Test
+	public void testFlagNumbersSurviveFreezing() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addFlag("zebra");
+		inputDefinition.addFlag("apple");
+		InputData before = this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "--zebra"});
+
+		inputDefinition.freeze();
+		InputData after = this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "--zebra"});
+
+		assertEquals(0, inputDefinition.findFlagIndex("zebra"));
+		assertEquals(1, inputDefinition.findFlagIndex("apple"));
+		assertEquals(-1, inputDefinition.findFlagIndex("missing"));
+		assertEquals("apple", inputDefinition.getFlagName(1));
+		assertTrue(before.isFlagSet("zebra"));
+		assertFalse(before.isFlagSet("apple"));
+		assertEquals(before.getFlags(), after.getFlags());
+	}
+
+	/**
+	 * Threads reading lazily converted values of shared input all see them
+	 * converted
+	 */
+	@Test
+	public void testLazyConversionAcrossThreads() throws Exception {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		List<Integer> slots = new ArrayList<>();
+		List<String> args = new ArrayList<>();
+		args.add("test-command");
+		for (int i = 0; i < 100; i++) {
+			slots.add(inputDefinition.addOption("option" + i, Type.INT));
+			args.add("--option" + i + "=" + i);
+		}
+		inputDefinition.setLazyConversion(true);
+		InputData inputData = this.inputDataFactory.create(inputDefinition.freeze(), args.toArray(new String[args.size()]));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> sums = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				sums.add(executor.submit(() -> {
+					int sum = 0;
+					for (int slot : slots) {
+						sum += inputData.getInt(slot);
+					}
+					return sum;
+				}));
+			}
+			for (Future<Integer> sum : sums) {
+				assertEquals(4950, (int)sum.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Lazy conversion still runs the same valid input through to the same values
+	 */
+	@Test
+	@Parameters(method = "validCommandInput")
+	public void testWithLazyConversion(String argString, CommandInputTestData testData) throws InputException {
+		String[] args = this.explodeByWhiteSpace(argString);
+		CommandInputDefinition inputDefinition = testData.createInputDefinition();
+		inputDefinition.setLazyConversion(true);
+
+		InputData inputData = this.inputDataFactory.create(inputDefinition, args);
+
+		testData.verifyProcessedInputData(inputData);
+	}
+
+	@Test
+	public void testLazyConversionDefersTypeErrors() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		int validSlot = inputDefinition.addOption("valid", Type.INT);
+		int invalidSlot = inputDefinition.addOption("invalid", Type.INT);
+		inputDefinition.setLazyConversion(true);
+
+		InputData inputData = this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "--valid=1", "--invalid=x"});
+		assertEquals(1, inputData.getInt(validSlot));
+
+		try {
+			inputData.getInt(invalidSlot);
+			fail("Reading the invalid value should fail");
+		} catch (UncheckedInputException e) {
+			assertEquals("Entry 'invalid' with value 'x' does not match expected type 'Int'", e.getMessage());
+		}
+
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("Entry 'invalid' with value 'x' does not match expected type 'Int'");
+		inputData.validateAll();
+	}
+
+	@Test
+	public void testLazyConversionStillRejectsUndefinedOptions() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.setLazyConversion(true);
+
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("Option 'undefined' is not defined");
+		this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "--undefined=1"});
+	}
+
+	/**
+	 * Every invalid entry is reported, with what is wrong and where
+	 */
+	@Test
+	public void testAllErrorsAreCollected() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addArgument("count", Type.INT);
+		inputDefinition.addOption("size", Type.DOUBLE);
+		inputDefinition.addFlag("verbose");
+
+		String[] entries = {"test-command", "x", "--size=big", "--undefined=1", "--verbose", "--loud", "stray", "-"};
+		try {
+			this.inputDataFactory.create(inputDefinition, entries);
+			fail("Invalid input should be rejected");
+		} catch (InputValidationException e) {
+			List<ValidationError> errors = e.getErrors();
+			assertEquals(6, errors.size());
+			this.assertError(errors.get(0), ValidationError.Code.TYPE_MISMATCH, "count", 1);
+			this.assertError(errors.get(1), ValidationError.Code.TYPE_MISMATCH, "size", 2);
+			this.assertError(errors.get(2), ValidationError.Code.UNDEFINED_OPTION, "undefined", 3);
+			this.assertError(errors.get(3), ValidationError.Code.UNDEFINED_FLAG, "loud", 5);
+			this.assertError(errors.get(4), ValidationError.Code.MISPLACED_ARGUMENT, "stray", 6);
+			this.assertError(errors.get(5), ValidationError.Code.UNRECOGNIZED_ENTRY, "-", 7);
+
+			String[] lines = e.getMessage().split("\n");
+			assertEquals(6, lines.length);
+			assertEquals("Option 'undefined' is not defined", lines[2]);
+			assertEquals(0, e.getStackTrace().length);
+		}
+	}
+
+	@Test
+	public void testArgumentCountErrorsAreCollected() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addArgument("first", Type.STRING);
+		inputDefinition.addArgument("second", Type.STRING);
+
+		try {
+			this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "given", "--undefined"});
+			fail("Invalid input should be rejected");
+		} catch (InputValidationException e) {
+			assertEquals(2, e.getErrors().size());
+			this.assertError(e.getErrors().get(0), ValidationError.Code.TOO_FEW_ARGUMENTS, null, 2);
+			this.assertError(e.getErrors().get(1), ValidationError.Code.UNDEFINED_FLAG, "undefined", 2);
+		}
+	}
+
+	@Test
+	public void testValidateAllCollectsErrors() throws InputException {
+		CommandInputDefinition inputDefinition = new CommandInputDefinition();
+		inputDefinition.addOption("a", Type.INT);
+		inputDefinition.addOption("b", Type.LONG);
+		inputDefinition.setLazyConversion(true);
+
+		InputData inputData = this.inputDataFactory.create(inputDefinition, new String[] {"test-command", "--a=x", "--b=y"});
+		try {
+			inputData.validateAll();
+			fail("Invalid input should be rejected");
+		} catch (InputValidationException e) {
+			assertEquals(2, e.getErrors().size());
+		}
+	}
+
+	private void assertError(ValidationError error, ValidationError.Code code, String entry, int position) {
+		assertEquals(code, error.getCode());
+		assertEquals(entry, error.getEntry());
+		assertEquals(position, error.getPosition());
+	}
+
     private String[] explodeByWhiteSpace(String s) {
         return s.split("\\s+");
     }
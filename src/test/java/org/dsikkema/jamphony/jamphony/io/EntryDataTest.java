@@ -0,0 +1,78 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class EntryDataTest {
+
+	@Rule
+	public ExpectedException expectedException = ExpectedException.none();
+
+	@Test
+	@Parameters({"0", "1", "-1", "+7", "007", "2147483647", "-2147483648", "-0"})
+	public void testValidInt(String value) throws InputException {
+		EntryData entryData = new EntryData(new OptionDefinition("opt", Type.INT), value);
+		assertEquals(Integer.parseInt(value), entryData.getIntValue());
+	}
+
+	@Test
+	@Parameters(method = "invalidIntValues")
+	public void testInvalidInt(String value) throws InputException {
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("does not match expected type 'Int'");
+
+		new EntryData(new OptionDefinition("opt", Type.INT), value);
+	}
+
+	private Object[] invalidIntValues() {
+		return new Object[] {"", "-", "+", "1x", "x1", "1.0", "1_000", "2147483648", "-2147483649", "99999999999999999999"};
+	}
+
+	@Test
+	@Parameters({"0", "-1", "9223372036854775807", "-9223372036854775808", "-009223372036854775808", "2147483648"})
+	public void testValidLong(String value) throws InputException {
+		EntryData entryData = new EntryData(new OptionDefinition("opt", Type.LONG), value);
+		assertEquals(Long.parseLong(value), entryData.getLongValue());
+	}
+
+	@Test
+	@Parameters({"9223372036854775808", "-9223372036854775809", "-92233720368547758080", "--1", "1L"})
+	public void testInvalidLong(String value) throws InputException {
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("does not match expected type 'Long'");
+
+		new EntryData(new OptionDefinition("opt", Type.LONG), value);
+	}
+
+	@Test
+	@Parameters({"0", "-0", "-1.5", "+.5", "3.", "1e10", "-2.5E-3", "123456789", "0.1", "9007199254740993", "1.7976931348623157e308", "4.9e-324", "1e400", "12345678901234567890.5", "0.000000000000000000000001"})
+	public void testValidDouble(String value) throws InputException {
+		EntryData entryData = new EntryData(new OptionDefinition("opt", Type.DOUBLE), value);
+		assertEquals(Double.doubleToLongBits(Double.parseDouble(value)), Double.doubleToLongBits(entryData.getDoubleValue()));
+	}
+
+	@Test
+	@Parameters({".", "-", "1e", "1e+", "NaN", "Infinity", "0x1p3", "1.5d", "1..2"})
+	public void testInvalidDouble(String value) throws InputException {
+		this.expectedException.expect(InputException.class);
+		this.expectedException.expectMessage("does not match expected type 'Double'");
+
+		new EntryData(new OptionDefinition("opt", Type.DOUBLE), value);
+	}
+
+	@Test
+	public void testWrongTypeGetter() throws InputException {
+		this.expectedException.expect(RuntimeException.class);
+		this.expectedException.expectMessage("Argument 'opt' is not of type Int");
+
+		new EntryData(new OptionDefinition("opt", Type.LONG), "1").getIntValue();
+	}
+}
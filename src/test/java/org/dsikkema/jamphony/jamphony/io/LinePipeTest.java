@@ -0,0 +1,172 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class LinePipeTest {
+
+	@Test
+	public void testLinesAndBytes() {
+		LinePipe pipe = new LinePipe(16);
+
+		pipe.writeLine("first");
+		pipe.writeBytes(ByteBuffer.wrap("second\r\nthi".getBytes(StandardCharsets.UTF_8)));
+		pipe.writeBytes(ByteBuffer.wrap("rd\nunterminated".getBytes(StandardCharsets.UTF_8)));
+		pipe.closeWriter();
+
+		assertEquals("first", pipe.readLine());
+		assertEquals("second", pipe.readLine());
+		assertEquals("third", pipe.readLine());
+		assertEquals("unterminated", pipe.readLine());
+		assertFalse(pipe.isEnded());
+		assertNull(pipe.readLine());
+		assertNull(pipe.readLine());
+		assertTrue(pipe.isEnded());
+	}
+
+	/**
+	 * The writer waits for the reader once the pipe is full, and gets every
+	 * line through in order
+	 */
+	@Test
+	public void testBackpressure() throws InterruptedException {
+		LinePipe pipe = new LinePipe(4);
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 1000; i++) {
+				pipe.writeLine(Integer.toString(i));
+			}
+			pipe.closeWriter();
+		});
+		writer.start();
+
+		List<String> lines = new ArrayList<>();
+		String line;
+		while ((line = pipe.readLine()) != null) {
+			lines.add(line);
+		}
+		writer.join();
+
+		assertEquals(1000, lines.size());
+		assertEquals("0", lines.get(0));
+		assertEquals("999", lines.get(999));
+	}
+
+	/**
+	 * A line is not held back for a chunk to fill up while the reader waits
+	 */
+	@Test(timeout = 5000)
+	public void testWaitingReaderGetsLineRightAway() throws InterruptedException {
+		LinePipe pipe = new LinePipe();
+		String[] read = new String[2];
+		CountDownLatch firstRead = new CountDownLatch(1);
+		Thread reader = new Thread(() -> {
+			read[0] = pipe.readLine();
+			firstRead.countDown();
+			read[1] = pipe.readLine();
+		});
+		reader.start();
+
+		pipe.writeLine("first");
+		firstRead.await();
+		pipe.writeLine("second");
+		reader.join();
+
+		assertEquals("first", read[0]);
+		assertEquals("second", read[1]);
+	}
+
+	/**
+	 * A writer blocked on a full pipe learns that the reader is done
+	 */
+	@Test(timeout = 5000)
+	public void testClosedReaderBreaksPipe() throws InterruptedException {
+		LinePipe pipe = new LinePipe(2);
+		AtomicReference<BrokenPipeException> broken = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 100; i++) {
+					pipe.writeLine(Integer.toString(i));
+				}
+			} catch (BrokenPipeException e) {
+				broken.set(e);
+			}
+			pipe.closeWriter();
+		});
+		writer.start();
+
+		assertEquals("0", pipe.readLine());
+		pipe.closeReader();
+		writer.join();
+
+		assertNotNull(broken.get());
+		assertFalse(pipe.isEnded());
+	}
+
+	@Test
+	public void testReader() throws IOException {
+		LinePipe pipe = new LinePipe();
+		pipe.writeLine("ab");
+		pipe.writeLine("cd");
+		pipe.closeWriter();
+
+		BufferedReader reader = pipe.getReader();
+		assertSame(reader, pipe.getReader());
+		assertEquals('a', reader.read());
+		assertEquals("b", reader.readLine());
+		char[] buffer = new char[8];
+		assertEquals(3, reader.read(buffer, 0, 8));
+		assertEquals("cd\n", new String(buffer, 0, 3));
+		assertNull(reader.readLine());
+		assertEquals(-1, reader.read());
+	}
+
+	@Test
+	public void testInputStream() throws IOException {
+		LinePipe pipe = new LinePipe();
+		pipe.writeLine("line");
+		pipe.closeWriter();
+
+		InputStream in = pipe.newInputStream();
+		byte[] bytes = new byte[16];
+		int length = in.read(bytes, 0, bytes.length);
+		assertEquals("line\n", new String(bytes, 0, length, Charset.defaultCharset()));
+		assertEquals(-1, in.read());
+	}
+
+	/**
+	 * A capture begun while writing into a pipe takes the output first, and
+	 * replaying it afterwards sends standard output into the pipe
+	 */
+	@Test
+	public void testStdoutIntoPipe() {
+		Stdout stdout = new Stdout();
+		LinePipe pipe = new LinePipe();
+
+		stdout.setPipe(pipe);
+		stdout.writeLnOut("line");
+		stdout.write(ByteBuffer.wrap("bytes\n".getBytes(StandardCharsets.UTF_8)));
+		stdout.beginCapture();
+		stdout.writeLnOut("captured");
+		stdout.replay(stdout.endCapture());
+		stdout.setPipe(null);
+		pipe.closeWriter();
+
+		assertEquals("line", pipe.readLine());
+		assertEquals("bytes", pipe.readLine());
+		assertEquals("captured", pipe.readLine());
+		assertNull(pipe.readLine());
+		assertNull(stdout.getPipe());
+	}
+}
@@ -0,0 +1,177 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RecordWriterTest {
+
+	private static final String NEWLINE = System.lineSeparator();
+
+	private Stdout stdout;
+	private RecordWriter records;
+
+	@Before
+	public void setUp() {
+		this.stdout = new Stdout();
+		this.records = new RecordWriter(this.stdout);
+		this.stdout.beginCapture();
+	}
+
+	@Test
+	public void testText() {
+		this.writeRecords();
+
+		assertEquals(
+			"id=1 name=plain score=0.5 active=true note=" + NEWLINE
+			+ "id=-42 name=\"Zoë \\\"Z\\\" Smith\" score=NaN active=false note=\"\"" + NEWLINE,
+			this.output()
+		);
+	}
+
+	@Test
+	public void testNdjson() {
+		this.records.setFormat(OutputFormat.NDJSON);
+		this.writeRecords();
+
+		assertEquals(
+			"{\"id\":1,\"name\":\"plain\",\"score\":0.5,\"active\":true,\"note\":null}\n"
+			+ "{\"id\":-42,\"name\":\"Zoë \\\"Z\\\" Smith\",\"score\":null,\"active\":false,\"note\":\"\"}\n",
+			this.output()
+		);
+	}
+
+	@Test
+	public void testJson() {
+		this.records.setFormat(OutputFormat.JSON);
+		this.writeRecords();
+
+		assertEquals(
+			"[{\"id\":1,\"name\":\"plain\",\"score\":0.5,\"active\":true,\"note\":null},\n"
+			+ "{\"id\":-42,\"name\":\"Zoë \\\"Z\\\" Smith\",\"score\":null,\"active\":false,\"note\":\"\"}]\n",
+			this.output()
+		);
+		assertEquals(OutputFormat.TEXT, this.records.getFormat());
+	}
+
+	@Test
+	public void testJsonEscapes() {
+		this.records.setFormat(OutputFormat.NDJSON);
+		this.records.begin().field("s", "tab\there\nnew \u0001 \\ 😀").field("min", Long.MIN_VALUE).end();
+
+		assertEquals("{\"s\":\"tab\\there\\nnew \\u0001 \\\\ 😀\",\"min\":-9223372036854775808}\n", this.output());
+	}
+
+	/**
+	 * A line break in a value does not split the record over two lines
+	 */
+	@Test
+	public void testTextEscapesControlCharacters() {
+		this.records.begin().field("s", "two\nlines\tand \u0001").end();
+
+		assertEquals("s=\"two\\nlines\\tand \\u0001\"" + NEWLINE, this.output());
+	}
+
+	@Test
+	public void testJsonWithoutRecords() {
+		this.records.setFormat(OutputFormat.JSON);
+
+		assertEquals("[]\n", this.output());
+	}
+
+	/**
+	 * Flushing writes the records ended so far and keeps the open one, which
+	 * can still be dropped
+	 */
+	@Test
+	public void testFlushWhileRecordIsOpen() {
+		this.records.setFormat(OutputFormat.JSON);
+		this.records.begin().field("n", 1).end();
+		this.records.begin().field("n", 2);
+		this.records.flush();
+		assertEquals("[{\"n\":1}", new String(this.stdout.endCapture().getOut(), StandardCharsets.UTF_8));
+		this.stdout.beginCapture();
+		this.records.flush();
+
+		assertEquals("]\n", this.output());
+	}
+
+	@Test
+	public void testFlushBeforeOpenRecordIsEnded() {
+		this.records.setFormat(OutputFormat.NDJSON);
+		Record record = this.records.begin().field("n", 1);
+		this.records.flush();
+		record.field("m", 2).end();
+
+		assertEquals("{\"n\":1,\"m\":2}\n", this.output());
+	}
+
+	/**
+	 * Records are passed on in blocks, not held until the command is done
+	 */
+	@Test
+	public void testFlushesLargeOutput() {
+		this.records.setFormat(OutputFormat.NDJSON);
+		int count = 0;
+		while (this.stdout.endCapture().getOut().length == 0) {
+			this.stdout.beginCapture();
+			this.records.begin().field("n", count++).end();
+		}
+		assertTrue(count > 1000);
+		this.stdout.beginCapture();
+	}
+
+	@Test
+	public void testUnendedRecordIsDropped() {
+		this.records.setFormat(OutputFormat.NDJSON);
+		this.records.begin().field("complete", true).end();
+		this.records.begin().field("complete", false);
+
+		assertEquals("{\"complete\":true}\n", this.output());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFieldOutsideRecord() {
+		Record record = this.records.begin();
+		record.end();
+		record.field("late", 1);
+	}
+
+	/**
+	 * A command that runs another one gets its array back, still open
+	 */
+	@Test
+	public void testNestedRun() {
+		this.records.beginRun();
+		this.records.setFormat(OutputFormat.JSON);
+		this.records.begin().field("outer", 1).end();
+
+		this.records.beginRun();
+		this.records.setFormat(OutputFormat.NDJSON);
+		this.records.begin().field("inner", 1).end();
+		this.records.endRun();
+
+		assertEquals(OutputFormat.JSON, this.records.getFormat());
+		this.records.begin().field("outer", 2).end();
+		this.records.endRun();
+
+		assertEquals(
+			"[{\"outer\":1}{\"inner\":1}\n,\n{\"outer\":2}]\n",
+			this.output()
+		);
+		assertEquals(OutputFormat.TEXT, this.records.getFormat());
+	}
+
+	private void writeRecords() {
+		this.records.begin().field("id", 1).field("name", "plain").field("score", 0.5).field("active", true).nullField("note").end();
+		this.records.begin().field("id", -42).field("name", "Zoë \"Z\" Smith").field("score", Double.NaN).field("active", false).field("note", "").end();
+	}
+
+	private String output() {
+		this.records.finish();
+		return new String(this.stdout.endCapture().getOut(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,131 @@
+package org.dsikkema.jamphony.jamphony.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StdoutTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testCaptureKeepsStreamsApart() {
+		Stdout stdout = new Stdout();
+
+		stdout.beginCapture();
+		stdout.writeLnOut("out 1");
+		stdout.writeLnErr("err 1");
+		stdout.writeLnOut("out 2");
+		CapturedOutput output = stdout.endCapture();
+
+		String newline = System.lineSeparator();
+		assertEquals("out 1" + newline + "out 2" + newline, output.getOutString());
+		assertEquals("err 1" + newline, output.getErrString());
+	}
+
+	/**
+	 * Capturing is per thread, another thread's output is not mixed in
+	 */
+	@Test
+	public void testCaptureIsPerThread() throws InterruptedException {
+		Stdout stdout = new Stdout();
+
+		CapturedOutput[] otherOutput = new CapturedOutput[1];
+
+		stdout.beginCapture();
+		Thread other = new Thread(() -> {
+			stdout.beginCapture();
+			stdout.writeLnOut("other thread");
+			otherOutput[0] = stdout.endCapture();
+		});
+		other.start();
+		other.join();
+		stdout.writeLnOut("this thread");
+
+		assertEquals("this thread" + System.lineSeparator(), stdout.endCapture().getOutString());
+		assertEquals("other thread" + System.lineSeparator(), otherOutput[0].getOutString());
+	}
+
+	/**
+	 * An inner capture does not end the outer one, and replaying goes into
+	 * the capture that is going on
+	 */
+	@Test
+	public void testNestedCapture() {
+		Stdout stdout = new Stdout();
+		String newline = System.lineSeparator();
+
+		stdout.beginCapture();
+		stdout.writeLnOut("outer");
+		stdout.beginCapture();
+		stdout.writeLnOut("inner");
+		stdout.writeLnErr("inner err");
+		CapturedOutput inner = stdout.endCapture();
+		stdout.replay(inner);
+		stdout.writeLnOut("outer again");
+		CapturedOutput outer = stdout.endCapture();
+
+		assertEquals("inner" + newline, inner.getOutString());
+		assertEquals("outer" + newline + "inner" + newline + "outer again" + newline, outer.getOutString());
+		assertEquals("inner err" + newline, outer.getErrString());
+	}
+
+	@Test
+	public void testEndCaptureWithoutBegin() {
+		assertEquals(0, new Stdout().endCapture().getOut().length);
+	}
+
+	@Test
+	public void testCaptureBytes() throws IOException {
+		Stdout stdout = new Stdout();
+		File file = this.temporaryFolder.newFile();
+		Files.write(file.toPath(), "0123456789".getBytes(StandardCharsets.US_ASCII));
+		ByteBuffer direct = ByteBuffer.allocateDirect(3);
+		direct.put("dir".getBytes(StandardCharsets.US_ASCII)).flip();
+
+		stdout.beginCapture();
+		stdout.write(ByteBuffer.wrap("heap ".getBytes(StandardCharsets.US_ASCII)));
+		stdout.write(direct);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			stdout.transferFrom(channel, 2, 100);
+			stdout.transferFrom(channel, 8, Long.MAX_VALUE);
+		}
+		CapturedOutput output = stdout.endCapture();
+
+		assertEquals("heap dir2345678989", output.getOutString());
+		assertFalse(direct.hasRemaining());
+	}
+
+	/**
+	 * Bytes follow System.out when it has been replaced, in order with lines
+	 */
+	@Test
+	public void testBytesGoToReplacedSystemOut() throws IOException {
+		PrintStream originalOut = System.out;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(out, false));
+		try {
+			Stdout stdout = new Stdout();
+			stdout.writeLnOut("line");
+			stdout.write(ByteBuffer.wrap(new byte[] {'a', 'b'}));
+			stdout.getOutChannel().write(ByteBuffer.wrap(new byte[] {'c'}));
+			stdout.flush();
+		} finally {
+			System.setOut(originalOut);
+		}
+		assertEquals("line" + System.lineSeparator() + "abc", out.toString());
+	}
+}
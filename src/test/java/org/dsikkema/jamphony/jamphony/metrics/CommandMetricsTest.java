@@ -0,0 +1,99 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.dsikkema.jamphony.jamphony.io.InputException;
+import org.dsikkema.jamphony.jamphony.io.InputValidationException;
+import org.dsikkema.jamphony.jamphony.io.ValidationError;
+import org.junit.Test;
+
+public class CommandMetricsTest {
+
+	@Test
+	public void testRecordsPhasesAndTotal() {
+		CommandMetrics metrics = new CommandMetrics();
+		long[] timings = Phase.newTimings();
+		timings[Phase.LOOKUP.ordinal()] = 2000;
+		timings[Phase.EXECUTE.ordinal()] = 8000;
+
+		metrics.runCompleted("test-command", 0, timings);
+
+		assertEquals(1, metrics.getRunCount("test-command"));
+		assertEquals(0, metrics.getHistogram("test-command", "tokenize").getCount());
+		assertEquals(2000, metrics.getHistogram("test-command", "lookup").getMax());
+		assertEquals(10000, metrics.getHistogram("test-command", "total").getMax());
+		assertEquals(10.0, metrics.getPercentileMicros("test-command", "total", 99), 0);
+	}
+
+	/**
+	 * Errors are counted per reason, with the values taken out
+	 */
+	@Test
+	public void testInputErrorReasons() {
+		CommandMetrics metrics = new CommandMetrics();
+
+		metrics.inputError("test-command", Phase.INPUT, new InputException("Option 'a' is not defined"));
+		metrics.inputError("test-command", Phase.INPUT, new InputException("Option 'b' is not defined"));
+		metrics.inputError("test-command", Phase.INPUT, new InputException("Argument at index 12 does not exist"));
+		metrics.inputError(null, Phase.LOOKUP, new InputException("Command 'tset' not found"));
+
+		assertEquals(3, metrics.getInputErrorCount("test-command"));
+		assertEquals(2, metrics.getInputErrorCount("test-command", "Option '*' is not defined"));
+		assertEquals(1, metrics.getInputErrorCount("test-command", "Argument at index N does not exist"));
+		assertEquals(1, metrics.getInputErrorCount(CommandMetrics.UNKNOWN_COMMAND, "Command '*' not found"));
+	}
+
+	@Test
+	public void testEveryValidationErrorIsCounted() {
+		CommandMetrics metrics = new CommandMetrics();
+		List<ValidationError> errors = Arrays.asList(
+				new ValidationError(ValidationError.Code.UNDEFINED_FLAG, "a", 1, "Flag 'a' is not defined"),
+				new ValidationError(ValidationError.Code.UNDEFINED_FLAG, "b", 2, "Flag 'b' is not defined")
+		);
+
+		metrics.inputError("test-command", Phase.INPUT, new InputValidationException(errors));
+
+		assertEquals(1, metrics.getInputErrorCount("test-command"));
+		assertEquals(2, metrics.getInputErrorCount("test-command", "UNDEFINED_FLAG"));
+		assertEquals(0, metrics.getInputErrorCount("test-command", "Flag '*' is not defined"));
+	}
+
+	@Test
+	public void testReport() {
+		CommandMetrics metrics = new CommandMetrics();
+		long[] timings = Phase.newTimings();
+		timings[Phase.EXECUTE.ordinal()] = 1500;
+		metrics.runCompleted("b-command", 0, timings);
+		metrics.runCompleted("a-command", 0, timings);
+		metrics.inputError("a-command", Phase.INPUT, new InputException("Too many arguments given"));
+
+		String report = metrics.getReport();
+
+		assertTrue(report.startsWith("a-command: 1 runs, 1 input errors"));
+		assertTrue(report.contains("b-command: 1 runs, 0 input errors"));
+		assertTrue(report.contains("execute"));
+		assertFalse(report.contains("tokenize"));
+		assertTrue(report.contains("1 x Too many arguments given"));
+		assertEquals("", metrics.report("c-command"));
+	}
+
+	@Test
+	public void testRegisterMBean() throws Exception {
+		CommandMetrics metrics = new CommandMetrics();
+		ObjectName name = new ObjectName(CommandMetrics.OBJECT_NAME);
+
+		metrics.registerMBean();
+		try {
+			assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+			metrics.registerMBean();
+		} finally {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+}
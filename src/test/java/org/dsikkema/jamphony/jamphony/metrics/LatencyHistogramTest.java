@@ -0,0 +1,51 @@
+package org.dsikkema.jamphony.jamphony.metrics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class LatencyHistogramTest {
+
+	/**
+	 * Every value falls inside its own bucket's bounds, and the bucket is at
+	 * most 12.5% wide
+	 */
+	@Test
+	@Parameters({"0", "7", "8", "9", "15", "16", "1000", "123456789", "9223372036854775807"})
+	public void testBuckets(long value) {
+		int bucket = LatencyHistogram.bucketOf(value);
+		long lower = LatencyHistogram.lowerBoundOf(bucket);
+		long upper = LatencyHistogram.upperBoundOf(bucket);
+
+		assertTrue(lower <= value && value <= upper);
+		assertTrue(upper - lower <= lower / 8);
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+		assertEquals(500_500, histogram.getMean(), 0.001);
+		assertEquals(500_000, histogram.getPercentile(50), 500_000 / 8);
+		assertEquals(990_000, histogram.getPercentile(99), 990_000 / 8);
+		assertEquals(1_000_000, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getPercentile(99));
+		assertEquals(0, histogram.getMean(), 0);
+	}
+}
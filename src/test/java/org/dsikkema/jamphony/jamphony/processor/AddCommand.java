@@ -0,0 +1,23 @@
+package org.dsikkema.jamphony.jamphony.processor;
+
+import org.dsikkema.jamphony.jamphony.Command;
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.Type;
+
+/**
+ * Declares its input in the annotation, and can be created without Guice
+ */
+@Command(
+	name = "add",
+	arguments = {@Command.Argument(name = "a", type = Type.INT), @Command.Argument(name = "b", type = Type.INT)},
+	flags = {"negate"}
+)
+public class AddCommand implements CommandInterface {
+
+	@Override
+	public int execute(InputData inputArgs) {
+		int sum = inputArgs.getInt(0) + inputArgs.getInt(1);
+		return inputArgs.isFlagSet("negate") ? -sum : sum;
+	}
+}
@@ -0,0 +1,193 @@
+package org.dsikkema.jamphony.jamphony.processor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.CommandModuleInterface;
+import org.dsikkema.jamphony.jamphony.CommandRunner;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.io.Type;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * The processor runs on the test sources, so GeneratedCommandTable is built
+ * from AddCommand and GreetCommand
+ */
+public class CommandProcessorTest {
+
+	/**
+	 * Commands are registered by class name, so that building the table does
+	 * not load every command class
+	 */
+	@Test
+	public void testCommandClassNames() {
+		GeneratedCommandTable table = new GeneratedCommandTable();
+
+		assertTrue(table.getCommandMap().isEmpty());
+		assertEquals(2, table.getCommandClassNames().size());
+		assertEquals(AddCommand.class.getName(), table.getCommandClassNames().get("add"));
+		assertEquals(GreetCommand.class.getName(), table.getCommandClassNames().get("greet"));
+	}
+
+	/**
+	 * Commands that need nothing injected are created without the injector
+	 */
+	@Test
+	public void testProviders() {
+		GeneratedCommandTable table = new GeneratedCommandTable();
+		Injector injectorMock = mock(Injector.class);
+		Provider<GreetCommand> greetProvider = () -> new GreetCommand(new Stdout());
+		when(injectorMock.getProvider(GreetCommand.class)).thenReturn(greetProvider);
+
+		assertTrue(table.getProvider("add", injectorMock).get() instanceof AddCommand);
+		assertSame(greetProvider, table.getProvider("greet", injectorMock));
+		assertNull(table.getProvider("unknown", injectorMock));
+		verify(injectorMock, never()).getProvider(AddCommand.class);
+	}
+
+	@Test
+	public void testInputDefinitions() throws Exception {
+		GeneratedCommandTable table = new GeneratedCommandTable();
+
+		CommandInputDefinition addDefinition = table.getInputDefinition(AddCommand.class);
+		assertEquals(2, addDefinition.getArgumentCount());
+		assertEquals(Type.INT, addDefinition.getArgumentDefinitionByIndex(1).getType());
+		assertTrue(addDefinition.isFlagDefined("negate"));
+		assertNotSame(addDefinition, table.getInputDefinition(AddCommand.class));
+
+		assertNull(table.getInputDefinition(GreetCommand.class));
+	}
+
+	@Test
+	public void testRunThroughGeneratedTable() {
+		Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(CommandModuleInterface.class).to(GeneratedCommandTable.class);
+				bind(Stdout.class).toInstance(mock(Stdout.class));
+			}
+		});
+		CommandRunner runner = injector.getInstance(CommandRunner.class);
+
+		assertEquals(5, runner.run("add 2 3"));
+		assertEquals(-5, runner.run("add 2 3 --negate"));
+		assertEquals(0, runner.run("greet world"));
+		verify(injector.getInstance(Stdout.class)).writeLnOut("Hello, world");
+	}
+
+	@Test
+	public void testDuplicateName() throws Exception {
+		List<Diagnostic<? extends JavaFileObject>> errors = this.compile(
+				this.command("FirstCommand", "@Command(name = \"same\")"),
+				this.command("SecondCommand", "@Command(name = \"same\")")
+		);
+
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0).getMessage(null).contains("Command name 'same' is already used by example.FirstCommand"));
+	}
+
+	@Test
+	public void testInvalidCommands() throws Exception {
+		List<Diagnostic<? extends JavaFileObject>> errors = this.compile(
+				this.command("DashCommand", "@Command(name = \"--dash\")"),
+				this.source("NotACommand", "@Command(name = \"not-a-command\") public class NotACommand {}")
+		);
+
+		assertEquals(2, errors.size());
+	}
+
+	/**
+	 * The injector would call the @Inject constructor, so the table must not
+	 * use the no-argument one instead
+	 */
+	@Test
+	public void testInjectConstructorIsNotBypassed() throws Exception {
+		Path output = Files.createTempDirectory("jamphony-processor");
+		List<Diagnostic<? extends JavaFileObject>> errors = this.compile(output,
+				this.source("BothCommand", "@Command(name = \"both\") public class BothCommand implements CommandInterface {"
+						+ " public BothCommand() {}"
+						+ " @com.google.inject.Inject public BothCommand(Runnable dependency) {}"
+						+ " public int execute(InputData inputArgs) { return 0; } }"),
+				this.command("PlainCommand", "@Command(name = \"plain\")")
+		);
+
+		assertEquals(0, errors.size());
+		String table = new String(Files.readAllBytes(output.resolve("example/GeneratedCommandTable.java")), "UTF-8");
+		assertFalse(table.contains("new example.BothCommand()"));
+		assertTrue(table.contains("new example.PlainCommand()"));
+	}
+
+	@Test
+	public void testLiteral() {
+		assertEquals("\"a\\\"b\\\\c\\n\"", CommandTableWriter.literal("a\"b\\c\n"));
+	}
+
+	private JavaFileObject command(String className, String annotation) {
+		return this.source(className, annotation + " public class " + className
+				+ " implements CommandInterface { public int execute(InputData inputArgs) { return 0; } }");
+	}
+
+	private JavaFileObject source(String className, String body) {
+		String code = "package example;\n"
+				+ "import org.dsikkema.jamphony.jamphony.Command;\n"
+				+ "import org.dsikkema.jamphony.jamphony.CommandInterface;\n"
+				+ "import org.dsikkema.jamphony.jamphony.io.InputData;\n"
+				+ body;
+		return new SimpleJavaFileObject(URI.create("string:///example/" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+
+	/**
+	 * Compiles the sources with the processor and returns the errors
+	 */
+	private List<Diagnostic<? extends JavaFileObject>> compile(JavaFileObject... sources) throws Exception {
+		return this.compile(Files.createTempDirectory("jamphony-processor"), sources);
+	}
+
+	/**
+	 * Same, with the generated sources written to output
+	 */
+	private List<Diagnostic<? extends JavaFileObject>> compile(Path output, JavaFileObject... sources) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		String classPath = new File(CommandInterface.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath()
+				+ File.pathSeparator
+				+ new File(Injector.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+				Arrays.asList("-proc:only", "-classpath", classPath, "-s", output.toString(), "-d", output.toString()),
+				null, Arrays.asList(sources));
+		task.setProcessors(Arrays.asList(new CommandProcessor()));
+		task.call();
+
+		return diagnostics.getDiagnostics().stream()
+				.filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,35 @@
+package org.dsikkema.jamphony.jamphony.processor;
+
+import org.dsikkema.jamphony.jamphony.Command;
+import org.dsikkema.jamphony.jamphony.CommandInterface;
+import org.dsikkema.jamphony.jamphony.io.CommandInputDefinition;
+import org.dsikkema.jamphony.jamphony.io.InputData;
+import org.dsikkema.jamphony.jamphony.io.Stdout;
+import org.dsikkema.jamphony.jamphony.io.Type;
+
+import com.google.inject.Inject;
+
+/**
+ * Needs injection and populates its own input definition
+ */
+@Command(name = "greet")
+public class GreetCommand implements CommandInterface {
+
+	private final Stdout stdout;
+
+	@Inject
+	public GreetCommand(Stdout stdout) {
+		this.stdout = stdout;
+	}
+
+	@Override
+	public int execute(InputData inputArgs) {
+		this.stdout.writeLnOut("Hello, " + inputArgs.getString(0));
+		return 0;
+	}
+
+	@Override
+	public void populateInputDefinition(CommandInputDefinition inputDefinition) {
+		inputDefinition.addArgument("name", Type.STRING);
+	}
+}